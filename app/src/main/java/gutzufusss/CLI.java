@@ -0,0 +1,302 @@
+package gutzufusss;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import gutzufusss.ImageDBController.QuarantineEntry;
+import gutzufusss.ImageDBController.SearchHit;
+import gutzufusss.filter.FilterPipeline;
+import gutzufusss.scan.ScanJob;
+import gutzufusss.util.Config;
+import gutzufusss.util.Logger;
+import gutzufusss.util.WordBoxes;
+import gutzufusss.wrapper.OCRWrapper;
+
+// headless entry point, prints one json object per line on stdout while all logging goes to stderr
+public class CLI {
+	public static final int EXIT_OK			= 0;
+	public static final int EXIT_NO_RESULT	= 1;	// search found nothing or some images could not be scanned
+	public static final int EXIT_USAGE		= 2;
+	public static final int EXIT_ERROR		= 3;
+
+	public static final int DEF_SEARCH_LIMIT = 50;
+	public static final long SHUTDOWN_MS = 10000;	// how long ctrl+c waits for queued or finished images to be written
+
+	private PrintStream out = System.out;
+	private Main main;
+
+	public int run(String[] args) {
+		if(args.length < 2) {
+			printUsage();
+			return EXIT_USAGE;
+		}
+
+		// options
+		int threads = 0;
+		int limit = DEF_SEARCH_LIMIT;
+		boolean verbose = false;
+		boolean reprocess = false;
+		boolean global = false;
+		int frameCacheMB = -1;
+		List<String> positional = new ArrayList<String>();
+		try {
+			for(int i = 1; i < args.length; i++) {
+				switch(args[i]) {
+				case "--threads":
+					threads = Integer.parseInt(args[++i]);
+					break;
+				case "--limit":
+					limit = Integer.parseInt(args[++i]);
+					break;
+				case "--verbose":
+					verbose = true;
+					break;
+				case "--reprocess":
+					reprocess = true;
+					break;
+				case "--frame-cache":
+					frameCacheMB = Integer.parseInt(args[++i]);
+					break;
+				case "--global":
+					global = true;
+					break;
+				default:
+					positional.add(args[i]);
+				}
+			}
+		} catch(NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			printUsage();
+			return EXIT_USAGE;
+		}
+
+		main = new Main(true);
+		main.getConfig().curConfig.logLevel = verbose ? Logger.LVL_DEBUG : Logger.LVL_WARN;
+		if(threads > 0)
+			main.getConfig().curConfig.scanThreads = threads;
+		if(frameCacheMB >= 0)
+			main.getConfig().curConfig.frameCacheMB = frameCacheMB;
+
+		if(positional.isEmpty() && !global) {
+			printUsage();
+			return EXIT_USAGE;
+		}
+		String arg = String.join(" ", positional);
+		switch(args[0]) {
+		case "scan":
+			return scan(arg, false, reprocess);
+		case "watch":
+			return scan(arg, true, reprocess);
+		case "search":
+			return search(arg, limit);
+		case "pipeline":
+			if(global)
+				return globalPipeline(arg);
+			return pipeline(positional.get(0), String.join(" ", positional.subList(1, positional.size())));
+		case "quarantine":
+			return quarantine(arg);
+		default:
+			printUsage();
+			return EXIT_USAGE;
+		}
+	}
+
+	private int scan(String dir, boolean watch, boolean reprocess) {
+		File f = new File(dir);
+		if(!f.isDirectory()) {
+			out.println("{\"type\":\"error\",\"message\":" + json("Not a directory: " + dir) + "}");
+			return EXIT_ERROR;
+		}
+
+		long start = System.nanoTime();
+		OCRWrapper ocr = new OCRWrapper(main.getLogger(), main.getConfig(), main, main.getImgDB(), f.getAbsolutePath());
+		ocr.setResultListener((ScanJob job) -> {
+			synchronized(out) {
+				out.println("{\"type\":\"result\",\"path\":" + json(job.getPath()) + ",\"confidence\":" + job.conf + ",\"text\":" + json(job.result) + "}");
+			}
+		});
+		ocr.setWatchMode(watch);
+		ocr.setReprocess(reprocess);
+		// ctrl+c: a watch lets the pipeline drain first, a scan is cancelled right away (finished images are still written)
+		CountDownLatch scanDone = new CountDownLatch(1);
+		Thread shutdownHook = new Thread(() -> {
+			if(watch)
+				ocr.stopWatching();
+			else
+				ocr.cancel();
+			try {
+				scanDone.await(SHUTDOWN_MS, TimeUnit.MILLISECONDS);
+			} catch(InterruptedException e) {
+				// exiting anyways
+			}
+		}, "scan-shutdown");
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+		try {
+			ocr.scanDirectory(f.getAbsolutePath());
+
+			out.println("{\"type\":\"summary\",\"dir\":" + json(f.getAbsolutePath()) +
+					",\"processed\":" + ocr.getProcessedCount() +
+					",\"skipped\":" + ocr.getSkippedCount() +
+					",\"failed\":" + ocr.getFailedCount() +
+					",\"cancelled\":" + ocr.isCancelled() +
+					",\"seconds\":" + String.format(java.util.Locale.ROOT, "%.3f", (System.nanoTime() - start) / 1e9) + "}");
+		} finally {
+			scanDone.countDown();
+		}
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch(IllegalStateException e) {
+			// already shutting down
+		}
+
+		return ocr.getFailedCount() == 0 ? EXIT_OK : EXIT_NO_RESULT;
+	}
+
+	private int search(String query, int limit) {
+		List<SearchHit> hits = main.getImgDB().search(query, limit);
+		for(SearchHit hit : hits)
+			out.println("{\"type\":\"hit\",\"path\":" + json(hit.absPath) + ",\"name\":" + json(hit.name) +
+					",\"confidence\":" + hit.confidence + ",\"rank\":" + hit.rank + ",\"snippet\":" + json(hit.snippet) +
+					",\"locations\":" + locations(main.getImgDB().getHitLocations(hit, query)) + "}");
+
+		return hits.isEmpty() ? EXIT_NO_RESULT : EXIT_OK;
+	}
+
+	// the matched words, boxes as x, y, width, height in fractions of the image size
+	private static String locations(List<WordBoxes.Word> words) {
+		StringBuilder sb = new StringBuilder("[");
+		for(WordBoxes.Word w : words) {
+			if(sb.length() > 1)
+				sb.append(',');
+			sb.append("{\"text\":").append(json(w.text)).append(",\"confidence\":").append(w.conf).append(String.format(Locale.ROOT,
+					",\"box\":[%.4f,%.4f,%.4f,%.4f]}", (double)w.x / WordBoxes.SCALE, (double)w.y / WordBoxes.SCALE, (double)w.w / WordBoxes.SCALE, (double)w.h / WordBoxes.SCALE));
+		}
+
+		return sb.append(']').toString();
+	}
+
+	// lists the images the ocr gave up on, "clear" gives all of them another try
+	private int quarantine(String action) {
+		switch(action) {
+		case "list":
+			List<QuarantineEntry> entries = main.getImgDB().getQuarantine();
+			for(QuarantineEntry e : entries)
+				out.println("{\"type\":\"quarantined\",\"path\":" + json(e.absPath) + ",\"reason\":" + json(e.reason) +
+						",\"attempts\":" + e.attempts + ",\"since\":" + e.since + "}");
+			return entries.isEmpty() ? EXIT_NO_RESULT : EXIT_OK;
+		case "clear":
+			out.println("{\"type\":\"summary\",\"released\":" + main.getImgDB().clearQuarantine() + "}");
+			return EXIT_OK;
+		default:
+			printUsage();
+			return EXIT_USAGE;
+		}
+	}
+
+	// shows or sets the filters of a directory, "default" removes its own filters again
+	private int pipeline(String dir, String spec) {
+		File f = new File(dir);
+		if(!f.isDirectory()) {
+			out.println("{\"type\":\"error\",\"message\":" + json("Not a directory: " + dir) + "}");
+			return EXIT_ERROR;
+		}
+		String path = f.getAbsolutePath();
+		ConfigDBController configDB = main.getConfig().getConfigDB();
+
+		boolean own;
+		FilterPipeline effective;
+		try {
+			if(spec.equals("default"))
+				configDB.setDirPipeline(path, null);
+			else if(!spec.isEmpty())
+				configDB.setDirPipeline(path, FilterPipeline.parse(spec).toString()); // stored normalized, broken specs never get in
+
+			// same lookup as the scan, a parent directory's filters apply as well
+			Map<String, FilterPipeline> byDir = new HashMap<String, FilterPipeline>();
+			for(Map.Entry<String, String> e : configDB.getDirPipelines().entrySet())
+				byDir.put(e.getKey(), FilterPipeline.parse(e.getValue()));
+			String global = main.getConfig().curConfig.filterPipeline;
+			FilterPipeline def = global.trim().isEmpty() ? FilterPipeline.fromFlags(main.getConfig().curConfig) : FilterPipeline.parse(global);
+			effective = FilterPipeline.forPath(path, byDir, def);
+			own = byDir.containsKey(path);
+		} catch(IllegalArgumentException e) {
+			out.println("{\"type\":\"error\",\"message\":" + json(e.getMessage()) + "}");
+			return EXIT_USAGE;
+		}
+
+		out.println("{\"type\":\"pipeline\",\"dir\":" + json(path) + ",\"own\":" + own +
+				",\"pipeline\":" + json(effective.toString()) + ",\"passes\":" + json(effective.describePasses()) + "}");
+
+		return EXIT_OK;
+	}
+
+	// shows or sets the filters of every directory without its own, "default" goes back to the filter flags
+	private int globalPipeline(String spec) {
+		Config config = main.getConfig();
+		FilterPipeline effective;
+		try {
+			if(!spec.isEmpty()) {
+				// the stored settings, not the ones this run overrode with options
+				Config.ConfigVariables stored = config.new ConfigVariables();
+				if(!config.getConfigDB().loadConfig(config.defConfig.configName, stored)) {
+					out.println("{\"type\":\"error\",\"message\":" + json("Could not load the configuration") + "}");
+					return EXIT_ERROR;
+				}
+				stored.filterPipeline = spec.equals("default") ? "" : FilterPipeline.parse(spec).toString(); // stored normalized, broken specs never get in
+				config.getConfigDB().saveConfig(stored);
+				config.curConfig.filterPipeline = stored.filterPipeline;
+			}
+
+			String global = config.curConfig.filterPipeline;
+			effective = global.trim().isEmpty() ? FilterPipeline.fromFlags(config.curConfig) : FilterPipeline.parse(global);
+		} catch(IllegalArgumentException e) {
+			out.println("{\"type\":\"error\",\"message\":" + json(e.getMessage()) + "}");
+			return EXIT_USAGE;
+		}
+
+		out.println("{\"type\":\"pipeline\",\"dir\":null,\"own\":" + !config.curConfig.filterPipeline.trim().isEmpty() +
+				",\"pipeline\":" + json(effective.toString()) + ",\"passes\":" + json(effective.describePasses()) + "}");
+
+		return EXIT_OK;
+	}
+
+	private void printUsage() {
+		System.err.println("Usage: ImgFinder scan <directory> [--threads n] [--reprocess] [--frame-cache MiB] [--verbose]");
+		System.err.println("       ImgFinder watch <directory> [--threads n] [--reprocess] [--frame-cache MiB] [--verbose]");
+		System.err.println("       ImgFinder search <query> [--limit n] [--verbose]");
+		System.err.println("       ImgFinder pipeline <directory> [<filters> | default]");
+		System.err.println("       ImgFinder pipeline --global [<filters> | default]");
+		System.err.println("       ImgFinder quarantine list | clear");
+		System.err.println("Without arguments the GUI is started.");
+	}
+
+	static String json(String s) {
+		if(s == null)
+			return "null";
+
+		StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+		for(int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch(c) {
+			case '"':	sb.append("\\\""); break;
+			case '\\':	sb.append("\\\\"); break;
+			case '\n':	sb.append("\\n"); break;
+			case '\r':	sb.append("\\r"); break;
+			case '\t':	sb.append("\\t"); break;
+			default:
+				if(c < 0x20)
+					sb.append(String.format("\\u%04x", (int)c));
+				else
+					sb.append(c);
+			}
+		}
+
+		return sb.append('"').toString();
+	}
+}
@@ -0,0 +1,263 @@
+package gutzufusss;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import gutzufusss.util.Config;
+import gutzufusss.util.Logger;
+import gutzufusss.wrapper.SQLWrapper;
+
+public class ConfigDBController extends SQLWrapper {
+	public static final String TABLE_CONF = "config_data";
+	public static final String TABLE_PIPELINES = "pipeline_data";
+	
+	private Config config;
+
+	public ConfigDBController(Config config) {
+		this.config = config;
+	}
+
+	@Override
+	public void tableCheck() throws SQLException {
+		pipelineTableCheck();
+
+		logger.log(Logger.LVL_DEBUG, "Attempting to create table: " + TABLE_CONF);
+		if(tableExists(TABLE_CONF)) {
+			logger.log(Logger.LVL_DEBUG, "Found SQL table " + TABLE_CONF);
+			migrateTable();
+			return;
+		}
+		
+		logger.log(Logger.LVL_DEBUG, "Attempting to create table: " + TABLE_CONF);
+		
+		// create our config table
+		StringBuilder sql = new StringBuilder("CREATE TABLE " + TABLE_CONF + " (config_name VARCHAR PRIMARY KEY"); // name of the configuration
+		for(Map.Entry<String, Object> col : columns(config.defConfig).entrySet())
+			sql.append(", ").append(col.getKey()).append(' ').append(sqlType(col.getValue()));
+		execSQL(sql.append(");").toString());
+		
+		// insert a default entry
+		saveConfig(config.defConfig);
+
+		logger.log(Logger.LVL_INFO, "SQL table '" + TABLE_CONF + "' was generated.");
+	}
+
+	// settings added after the table was created get their column, it stays NULL (= the default) until the config is saved
+	private void migrateTable() throws SQLException {
+		Set<String> columnNames = new HashSet<String>();
+		try(ResultSet columns = execQuerry("PRAGMA table_info(" + TABLE_CONF + ");")) {
+			while(columns.next())
+				columnNames.add(columns.getString("name").toLowerCase(Locale.ROOT));
+		}
+
+		for(Map.Entry<String, Object> col : columns(config.defConfig).entrySet()) {
+			if(columnNames.contains(col.getKey()))
+				continue;
+
+			logger.log(Logger.LVL_INFO, "Adding column '" + col.getKey() + "' to table '" + TABLE_CONF + "'.");
+			execSQL("ALTER TABLE " + TABLE_CONF + " ADD COLUMN " + col.getKey() + " " + sqlType(col.getValue()) + ";");
+		}
+	}
+
+	// every stored setting with its value in v, the sql type of a column follows from the java type
+	private static Map<String, Object> columns(Config.ConfigVariables v) {
+		Map<String, Object> c = new LinkedHashMap<String, Object>();
+		c.put("debug",				v.debug);				// enables/disables debugging mode
+		c.put("log_lvl",			v.logLevel);			// logging level
+		c.put("log_async",			v.logAsync);			// write the log on a background thread
+		c.put("log_caller",			v.logCaller);			// include class/method of the caller in log messages
+		c.put("log_view_cap",		v.logViewCapacity);		// max lines kept in the log view
+		c.put("crit_conf",			v.critConf);			// critical confidence treshold
+		c.put("min_word_conf",		v.minWordConf);			// words with a lower confidence are left out of the search index
+		c.put("scan_threads",		v.scanThreads);			// number of parallel ocr workers
+		c.put("decode_threads",		v.decodeThreads);		// number of threads reading images from disk
+		c.put("preproc_threads",	v.preprocessThreads);	// number of threads running the pre-processing filters
+		c.put("ocr_timeout",		v.ocrTimeout);			// seconds the ocr may take per image before it is aborted and quarantined, 0 = no limit
+		c.put("languages",			v.languages);			// tesseract languages joined by +, e.g. eng+deu
+		c.put("lang_routing",		v.langRouting);			// read every image with only the languages detected in it
+		c.put("scan_max_depth",		v.scanMaxDepth);		// how deep to recurse into sub directories, 0 = unlimited
+		c.put("follow_symlinks",	v.followSymlinks);		// follow symbolic links while walking
+		c.put("exclude_globs",		v.excludeGlobs);		// comma separated globs of paths that are not scanned
+		c.put("dedup_distance",		v.dedupDistance);		// max perceptual hash distance to reuse the result of a similar image, -1 = off
+		c.put("watch_mode",			v.watchMode);			// keep watching the directory for changes after the scan
+		c.put("max_img_dim",		v.maxImgDimension);		// bigger images are scaled down before pre-processing, 0 = off
+		c.put("text_line_height",	v.textLineHeight);		// images are scaled so text lines are about this high, 0 = off
+		c.put("filter_pipeline",	v.filterPipeline);		// pre-processing filters and their parameters, empty = the fl_* columns
+		c.put("adaptive_pipelines",	v.adaptivePipelines);	// filter variants of the adaptive mode separated by |, cheapest first, empty = built-in ones
+		c.put("frame_cache_mb",		v.frameCacheMB);		// disk space for pre-processed frames that rescans with other filters can start from, 0 = off
+		c.put("fl_grayscale",		v.flGrayscale);			// convert image to grayscale
+		c.put("fl_binary",			v.flBinary);			// convert image to binary
+		c.put("fl_smooth",			v.flSmooth);			// smooth image
+		c.put("fl_border",			v.flBorder);			// add border to the image
+		c.put("fl_swt",				v.flSWT);				// use stroke width transformation
+		c.put("fl_contrast",		v.flContrast);			// increase contrast
+		c.put("fl_text_regions",	v.flTextRegions);		// only recognize detected text regions
+		c.put("fl_adaptive",		v.flAdaptive);			// more expensive filter variants only for images below crit_conf
+
+		return c;
+	}
+
+	private static String sqlType(Object value) {
+		if(value instanceof Boolean)
+			return "BOOLEAN";
+
+		return value instanceof Integer ? "INTEGER" : "VARCHAR";
+	}
+
+	// writes all settings of v to its row, creating it if needed
+	public synchronized void saveConfig(Config.ConfigVariables v) {
+		Map<String, Object> cols = columns(v);
+		StringBuilder names = new StringBuilder("config_name"), params = new StringBuilder("?"), updates = new StringBuilder();
+		for(String col : cols.keySet()) {
+			names.append(", ").append(col);
+			params.append(", ?");
+			updates.append(updates.length() > 0 ? ", " : "").append(col).append(" = excluded.").append(col);
+		}
+
+		synchronized(WRITE_LOCK) {
+			try {
+				PreparedStatement stmt = prepareStatement("INSERT INTO " + TABLE_CONF + " (" + names + ") VALUES (" + params + ") " +
+						"ON CONFLICT(config_name) DO UPDATE SET " + updates + ";");
+				stmt.setString(1, v.configName);
+				int i = 2;
+				for(Object value : cols.values())
+					stmt.setObject(i++, value);
+				stmt.executeUpdate();
+			} catch(SQLException e) {
+				logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage());
+				return;
+			}
+		}
+
+		logger.log(Logger.LVL_DEBUG, "Saved configuration '" + v.configName + "'.");
+	}
+	
+	// per directory filter pipelines, images below a directory use its pipeline instead of the global one
+	private void pipelineTableCheck() throws SQLException {
+		if(tableExists(TABLE_PIPELINES)) {
+			logger.log(Logger.LVL_DEBUG, "Found SQL table " + TABLE_PIPELINES);
+			return;
+		}
+
+		execSQL("CREATE TABLE " + TABLE_PIPELINES + " " +
+				"(dir_path			VARCHAR PRIMARY KEY," +	// absolute path of the directory
+				" pipeline			VARCHAR);");			// filter pipeline spec, same syntax as config_data.filter_pipeline
+
+		logger.log(Logger.LVL_INFO, "SQL table '" + TABLE_PIPELINES + "' was generated.");
+	}
+
+	// fills v from the stored row, columns older databases don't have yet keep their default
+	public synchronized boolean loadConfig(String configName, Config.ConfigVariables v) {
+		try {
+			PreparedStatement stmt = prepareStatement("SELECT * FROM " + TABLE_CONF + " WHERE config_name = ?;");
+			stmt.setString(1, configName);
+			try(ResultSet r = stmt.executeQuery()) {
+				if(!r.next())
+					return false;
+
+				Set<String> cols = new HashSet<String>();
+				ResultSetMetaData meta = r.getMetaData();
+				for(int i = 1; i <= meta.getColumnCount(); i++)
+					cols.add(meta.getColumnName(i).toLowerCase(Locale.ROOT));
+
+				Config.ConfigVariables d = config.defConfig;
+				v.configName		= configName;
+				v.debug				= getBool(r, cols, "debug",				d.debug);
+				v.logLevel			= getInt(r, cols, "log_lvl",			d.logLevel);
+				v.logAutoScroll		= d.logAutoScroll; // not stored
+				v.logAsync			= getBool(r, cols, "log_async",			d.logAsync);
+				v.logCaller			= getBool(r, cols, "log_caller",		d.logCaller);
+				v.logViewCapacity	= getInt(r, cols, "log_view_cap",		d.logViewCapacity);
+				v.critConf			= getInt(r, cols, "crit_conf",			d.critConf);
+				v.minWordConf		= getInt(r, cols, "min_word_conf",		d.minWordConf);
+				v.scanThreads		= getInt(r, cols, "scan_threads",		d.scanThreads);
+				v.decodeThreads		= getInt(r, cols, "decode_threads",		d.decodeThreads);
+				v.preprocessThreads	= getInt(r, cols, "preproc_threads",	d.preprocessThreads);
+				v.ocrTimeout		= getInt(r, cols, "ocr_timeout",		d.ocrTimeout);
+				v.languages			= getString(r, cols, "languages",		d.languages);
+				v.langRouting		= getBool(r, cols, "lang_routing",		d.langRouting);
+				v.scanMaxDepth		= getInt(r, cols, "scan_max_depth",		d.scanMaxDepth);
+				v.followSymlinks	= getBool(r, cols, "follow_symlinks",	d.followSymlinks);
+				v.excludeGlobs		= getString(r, cols, "exclude_globs",	d.excludeGlobs);
+				v.dedupDistance		= getInt(r, cols, "dedup_distance",		d.dedupDistance);
+				v.watchMode			= getBool(r, cols, "watch_mode",		d.watchMode);
+				v.maxImgDimension	= getInt(r, cols, "max_img_dim",		d.maxImgDimension);
+				v.textLineHeight	= getInt(r, cols, "text_line_height",	d.textLineHeight);
+				v.filterPipeline	= getString(r, cols, "filter_pipeline",	d.filterPipeline);
+				v.adaptivePipelines	= getString(r, cols, "adaptive_pipelines", d.adaptivePipelines);
+				v.frameCacheMB		= getInt(r, cols, "frame_cache_mb",		d.frameCacheMB);
+				v.flGrayscale		= getBool(r, cols, "fl_grayscale",		d.flGrayscale);
+				v.flBinary			= getBool(r, cols, "fl_binary",			d.flBinary);
+				v.flSmooth			= getBool(r, cols, "fl_smooth",			d.flSmooth);
+				v.flBorder			= getBool(r, cols, "fl_border",			d.flBorder);
+				v.flSWT				= getBool(r, cols, "fl_swt",			d.flSWT);
+				v.flContrast		= getBool(r, cols, "fl_contrast",		d.flContrast);
+				v.flTextRegions		= getBool(r, cols, "fl_text_regions",	d.flTextRegions);
+				v.flAdaptive		= getBool(r, cols, "fl_adaptive",		d.flAdaptive);
+
+				logger.log(Logger.LVL_DEBUG, "Loaded configuration '" + configName + "'.");
+				return true;
+			}
+		} catch(SQLException e) {
+			logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage());
+		}
+
+		return false;
+	}
+
+	public synchronized Map<String, String> getDirPipelines() {
+		Map<String, String> pipelines = new HashMap<String, String>();
+		try(ResultSet r = prepareStatement("SELECT dir_path, pipeline FROM " + TABLE_PIPELINES + ";").executeQuery()) {
+			while(r.next())
+				pipelines.put(r.getString(1), r.getString(2));
+		} catch(SQLException e) {
+			logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage());
+		}
+
+		return pipelines;
+	}
+
+	// a null pipeline removes the directory's own pipeline again
+	public synchronized void setDirPipeline(String dirPath, String pipeline) {
+		String sql = pipeline == null ?
+				"DELETE FROM " + TABLE_PIPELINES + " WHERE dir_path = ?;" :
+				"INSERT INTO " + TABLE_PIPELINES + " (dir_path, pipeline) VALUES (?, ?) ON CONFLICT(dir_path) DO UPDATE SET pipeline = excluded.pipeline;";
+		synchronized(WRITE_LOCK) {
+			try {
+				PreparedStatement stmt = prepareStatement(sql);
+				stmt.setString(1, dirPath);
+				if(pipeline != null)
+					stmt.setString(2, pipeline);
+				stmt.executeUpdate();
+			} catch(SQLException e) {
+				logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage());
+			}
+		}
+	}
+
+	private static int getInt(ResultSet r, Set<String> cols, String col, int def) throws SQLException {
+		if(!cols.contains(col) || r.getObject(col) == null)
+			return def;
+		return r.getInt(col);
+	}
+
+	private static boolean getBool(ResultSet r, Set<String> cols, String col, boolean def) throws SQLException {
+		if(!cols.contains(col) || r.getObject(col) == null)
+			return def;
+		return r.getBoolean(col);
+	}
+
+	private static String getString(ResultSet r, Set<String> cols, String col, String def) throws SQLException {
+		if(!cols.contains(col) || r.getObject(col) == null)
+			return def;
+		return r.getString(col);
+	}
+}
@@ -0,0 +1,703 @@
+package gutzufusss;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import gutzufusss.util.Logger;
+import gutzufusss.util.WordBoxes;
+import gutzufusss.wrapper.PooledConnection;
+import gutzufusss.wrapper.SQLWrapper;
+
+public class ImageDBController extends SQLWrapper {
+	public static final int 	MAX_IMG_TEXT_LEN 	= 1024 * 1024;	// chars, long documents are kept whole
+	public static final String 	TABLE_IMG 			= "image_data";
+	public static final String 	TABLE_FTS 			= "image_fts";
+	public static final String 	TABLE_WORDS 		= "word_data";
+	public static final int 	SNIPPET_TOKENS 		= 12;		// max words around a hit in search snippets
+	public static final int 	WRITE_BATCH_SIZE 	= 500;		// results are written in one transaction once this many are pending...
+	public static final long 	WRITE_FLUSH_MS 		= 2000;		// ...or this much time has passed since the last flush
+	public static final String 	TABLE_QUARANTINE 	= "quarantine_data";
+	public static final int 	MAX_CRASHES 		= 2;		// an image that was being read during this many crashes is skipped, others that happened to run at the same time get another try
+
+	// why an image is in the quarantine
+	public static final String 	Q_RUNNING 			= "running";	// ocr started, a row still saying so on the next start means the process died
+	public static final String 	Q_CRASHED 			= "crashed";
+	public static final String 	Q_TIMEOUT 			= "timeout";
+	public static final String 	Q_ERROR 			= "error";
+	public static final String 	Q_TOO_LARGE 		= "too large";	// would need too much memory to decode
+
+	private static final Pattern QUERY_TOKEN = Pattern.compile("\"[^\"]*\"\\*?|[()]|[^\\s()\"]+");
+
+	private static final String SQL_SEARCH_HITS	= "SELECT i.id, i.name, i.abs_path, i.confidence, bm25(" + TABLE_FTS + ") AS rank, " +
+			"snippet(" + TABLE_FTS + ", 1, '[', ']', '...', " + SNIPPET_TOKENS + ") " +
+			"FROM " + TABLE_FTS + " JOIN " + TABLE_IMG + " i ON i.id = " + TABLE_FTS + ".rowid " +
+			"WHERE " + TABLE_FTS + " MATCH ? ";
+	private static final String SQL_SEARCH		= SQL_SEARCH_HITS + "ORDER BY rank, i.id LIMIT ?;";
+	// keyset pagination, continues after the (rank, id) of the previous page's last hit instead of skipping OFFSET rows
+	private static final String SQL_SEARCH_AFTER = SQL_SEARCH_HITS + "AND (bm25(" + TABLE_FTS + ") > ? OR (bm25(" + TABLE_FTS + ") = ? AND i.id > ?)) " +
+			"ORDER BY rank, i.id LIMIT ?;";
+	private static final String SQL_COUNT		= "SELECT count(*) FROM " + TABLE_FTS + " WHERE " + TABLE_FTS + " MATCH ?;";
+	private static final String SQL_FILE_INFO	= "SELECT file_size, last_modified, content_hash FROM " + TABLE_IMG + " WHERE abs_path = ?;";
+	private static final String SQL_PHASHES		= "SELECT abs_path, phash FROM " + TABLE_IMG + " WHERE phash IS NOT NULL;";
+	private static final String SQL_RESULT		= "SELECT i.ocr_data, i.confidence, w.words FROM " + TABLE_IMG + " i LEFT JOIN " + TABLE_WORDS + " w ON w.image_id = i.id WHERE i.abs_path = ?;";
+	private static final String SQL_WORDS		= "SELECT words FROM " + TABLE_WORDS + " WHERE image_id = ?;";
+	private static final String SQL_DELETE		= "DELETE FROM " + TABLE_IMG + " WHERE abs_path = ? OR (abs_path > ? AND abs_path < ?);";
+	private static final String SQL_UPSERT		= "INSERT INTO " + TABLE_IMG + " (name, abs_path, ocr_data, confidence, file_size, last_modified, content_hash, phash) " +
+			"VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+			"ON CONFLICT(abs_path) DO UPDATE SET name = excluded.name, ocr_data = excluded.ocr_data, confidence = excluded.confidence, " +
+			"file_size = excluded.file_size, last_modified = excluded.last_modified, content_hash = excluded.content_hash, phash = excluded.phash;";
+	// runs after the image upsert of the same batch, so the id exists
+	private static final String SQL_WORDS_UPSERT = "INSERT INTO " + TABLE_WORDS + " (image_id, words) SELECT id, ? FROM " + TABLE_IMG + " WHERE abs_path = ? " +
+			"ON CONFLICT(image_id) DO UPDATE SET words = excluded.words;";
+	private static final String SQL_TOUCH		= "UPDATE " + TABLE_IMG + " SET file_size = ?, last_modified = ? WHERE abs_path = ?;";
+	private static final String SQL_Q_RUNNING	= "INSERT INTO " + TABLE_QUARANTINE + " (abs_path, file_size, last_modified, reason, attempts, since) VALUES (?, ?, ?, '" + Q_RUNNING + "', 0, ?) " +
+			"ON CONFLICT(abs_path) DO UPDATE SET reason = excluded.reason, " +
+			"attempts = CASE WHEN file_size = excluded.file_size AND last_modified = excluded.last_modified THEN attempts ELSE 0 END, " + // a changed file starts over
+			"file_size = excluded.file_size, last_modified = excluded.last_modified;";
+	private static final String SQL_Q_ADD		= "UPDATE " + TABLE_QUARANTINE + " SET reason = ?, attempts = attempts + 1, since = ? WHERE abs_path = ?;";
+	private static final String SQL_Q_REMOVE	= "DELETE FROM " + TABLE_QUARANTINE + " WHERE abs_path = ?;";
+	private static final String SQL_Q_DONE		= "DELETE FROM " + TABLE_QUARANTINE + " WHERE abs_path = ? AND reason = '" + Q_RUNNING + "';"; // batched with the result of the read
+	private static final String SQL_Q_CRASHED	= "UPDATE " + TABLE_QUARANTINE + " SET reason = '" + Q_CRASHED + "', attempts = attempts + 1 WHERE reason = '" + Q_RUNNING + "';";
+	private static final String SQL_Q_GET		= "SELECT reason, attempts FROM " + TABLE_QUARANTINE + " WHERE abs_path = ? AND file_size = ? AND last_modified = ?;";
+	private static final String SQL_Q_CLEAR		= "DELETE FROM " + TABLE_QUARANTINE + " WHERE reason <> '" + Q_RUNNING + "';";
+	private static final String SQL_Q_LIST		= "SELECT abs_path, reason, attempts, since FROM " + TABLE_QUARANTINE + " WHERE reason <> '" + Q_RUNNING + "' ORDER BY since DESC;";
+
+	private int pendingWrites = 0;
+	private final Map<String, OCRResult> pendingResults = new ConcurrentHashMap<String, OCRResult>(); // path -> result of the open batch, readers only see commits
+	private long lastFlush = System.currentTimeMillis();
+	private final AtomicLong writeGeneration = new AtomicLong(); // bumped by every committed write, cached searches of older generations are stale
+	private final SearchCache searchCache;
+
+	public ImageDBController() {
+		searchCache = new SearchCache(logger, SearchCache.MAX_BYTES);
+		searchCache.registerMBean();
+	}
+
+	// what we know about a file from the last scan, used to skip files that did not change
+	public static class FileInfo {
+		public long		size;
+		public long		lastModified;
+		public String	contentHash;
+	}
+
+	// a stored ocr result, reused for near-duplicate images
+	public static class OCRResult {
+		public String	text;
+		public int		confidence;
+		public byte[]	words;			// packed WordBoxes, null for results of older versions
+	}
+
+	// an image that timed out, failed or crashed the ocr
+	public static class QuarantineEntry {
+		public String	absPath;
+		public String	reason;
+		public int		attempts;
+		public long		since;			// ms since epoch
+	}
+
+	public static class SearchHit {
+		public long		id;
+		public String	name;
+		public String	absPath;
+		public int		confidence;
+		public double	rank;			// bm25, lower is better
+		public String	snippet;		// ocr text around the hit, matches are wrapped in []
+	}
+
+	@Override
+	public void tableCheck() throws SQLException {
+		quarantineCheck();
+
+		if(tableExists(TABLE_IMG)) {
+			logger.log(Logger.LVL_DEBUG, "Found SQL table " + TABLE_IMG);
+			migrateTable();
+			ftsCheck();
+			wordsCheck();
+			return;
+		}
+		
+		logger.log(Logger.LVL_DEBUG, "Attempting to create table: " + TABLE_IMG);
+
+		execSQL("CREATE TABLE " + TABLE_IMG + " " +
+		        "(id 			INTEGER PRIMARY KEY AUTOINCREMENT," +				// pkey
+		        " name			VARCHAR(256)," +									// max filename length is 255 (on win at least, haaaaah)
+		        " abs_path		VARCHAR(1024)," +									// absolute path to the file
+		        " ocr_data		VARCHAR(" + MAX_IMG_TEXT_LEN + ")," +				// text that was found in the image
+		        " confidence	INTEGER," +											// how sure the ocr was about the result
+		        " file_size		INTEGER," +											// size in bytes when the file was scanned
+		        " last_modified	INTEGER," +											// mtime (ms since epoch) when the file was scanned
+		        " content_hash	VARCHAR(32)," +										// md5 of the file content
+		        " phash			INTEGER)");											// perceptual hash (dHash) of the image, finds near-duplicates
+		execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_" + TABLE_IMG + "_path ON " + TABLE_IMG + " (abs_path);");
+
+		logger.log(Logger.LVL_INFO, "SQL table '" + TABLE_IMG + "' was generated.");
+
+		ftsCheck();
+		wordsCheck();
+	}
+
+	// full-text index over the ocr results, kept in sync with image_data by triggers
+	private void ftsCheck() throws SQLException {
+		if(tableExists(TABLE_FTS)) {
+			logger.log(Logger.LVL_DEBUG, "Found SQL table " + TABLE_FTS);
+			return;
+		}
+
+		logger.log(Logger.LVL_DEBUG, "Attempting to create table: " + TABLE_FTS);
+
+		// external content table, the text itself is only stored once in image_data
+		execSQL("CREATE VIRTUAL TABLE " + TABLE_FTS + " USING fts5(name, ocr_data, " +
+				"content='" + TABLE_IMG + "', content_rowid='id', tokenize='unicode61 remove_diacritics 2');");
+
+		execSQL("CREATE TRIGGER " + TABLE_FTS + "_ai AFTER INSERT ON " + TABLE_IMG + " BEGIN " +
+				"INSERT INTO " + TABLE_FTS + " (rowid, name, ocr_data) VALUES (new.id, new.name, new.ocr_data); END;");
+		execSQL("CREATE TRIGGER " + TABLE_FTS + "_ad AFTER DELETE ON " + TABLE_IMG + " BEGIN " +
+				"INSERT INTO " + TABLE_FTS + " (" + TABLE_FTS + ", rowid, name, ocr_data) VALUES ('delete', old.id, old.name, old.ocr_data); END;");
+		execSQL("CREATE TRIGGER " + TABLE_FTS + "_au AFTER UPDATE OF name, ocr_data ON " + TABLE_IMG + " BEGIN " + // mtime updates don't need reindexing
+				"INSERT INTO " + TABLE_FTS + " (" + TABLE_FTS + ", rowid, name, ocr_data) VALUES ('delete', old.id, old.name, old.ocr_data); " +
+				"INSERT INTO " + TABLE_FTS + " (rowid, name, ocr_data) VALUES (new.id, new.name, new.ocr_data); END;");
+
+		// index whatever was scanned before the index existed
+		execSQL("INSERT INTO " + TABLE_FTS + " (" + TABLE_FTS + ") VALUES ('rebuild');");
+
+		logger.log(Logger.LVL_INFO, "SQL table '" + TABLE_FTS + "' was generated.");
+	}
+
+	// the words of every result with their boxes, one packed blob per image keeps a million images at a few gb
+	private void wordsCheck() throws SQLException {
+		if(tableExists(TABLE_WORDS)) {
+			logger.log(Logger.LVL_DEBUG, "Found SQL table " + TABLE_WORDS);
+			return;
+		}
+
+		logger.log(Logger.LVL_DEBUG, "Attempting to create table: " + TABLE_WORDS);
+
+		execSQL("CREATE TABLE " + TABLE_WORDS + " " +
+				"(image_id		INTEGER PRIMARY KEY," +								// id in image_data, the rowid itself so there is no extra index
+				" words			BLOB)");											// see WordBoxes
+		execSQL("CREATE TRIGGER " + TABLE_WORDS + "_ad AFTER DELETE ON " + TABLE_IMG + " BEGIN " +
+				"DELETE FROM " + TABLE_WORDS + " WHERE image_id = old.id; END;");
+
+		logger.log(Logger.LVL_INFO, "SQL table '" + TABLE_WORDS + "' was generated.");
+	}
+
+	// images the ocr choked on, they are skipped until the file changes
+	private void quarantineCheck() throws SQLException {
+		if(tableExists(TABLE_QUARANTINE)) {
+			logger.log(Logger.LVL_DEBUG, "Found SQL table " + TABLE_QUARANTINE);
+			return;
+		}
+
+		logger.log(Logger.LVL_DEBUG, "Attempting to create table: " + TABLE_QUARANTINE);
+
+		execSQL("CREATE TABLE " + TABLE_QUARANTINE + " " +
+				"(abs_path		VARCHAR(1024) PRIMARY KEY," +						// absolute path to the file
+				" file_size		INTEGER," +											// the file is tried again once size...
+				" last_modified	INTEGER," +											// ...or mtime change
+				" reason		VARCHAR(16)," +										// running, crashed, timeout or error
+				" attempts		INTEGER," +											// how often it went wrong
+				" since			INTEGER)");											// ms since epoch
+
+		logger.log(Logger.LVL_INFO, "SQL table '" + TABLE_QUARANTINE + "' was generated.");
+	}
+
+	// brings tables from older versions up to date
+	private void migrateTable() throws SQLException {
+		Set<String> columnNames = new HashSet<String>();
+		try(ResultSet columns = execQuerry("PRAGMA table_info(" + TABLE_IMG + ");")) {
+			while(columns.next())
+				columnNames.add(columns.getString("name"));
+		}
+
+		if(!columnNames.contains("content_hash"))
+			addFingerprintColumns();
+		if(!columnNames.contains("phash")) {
+			logger.log(Logger.LVL_INFO, "Adding perceptual hashes to table '" + TABLE_IMG + "'.");
+			execSQL("ALTER TABLE " + TABLE_IMG + " ADD COLUMN phash INTEGER;"); // old rows stay NULL until they are rescanned
+		}
+	}
+
+	private void addFingerprintColumns() throws SQLException {
+		logger.log(Logger.LVL_INFO, "Adding file fingerprints to table '" + TABLE_IMG + "'.");
+		execSQL("ALTER TABLE " + TABLE_IMG + " ADD COLUMN file_size INTEGER;");
+		execSQL("ALTER TABLE " + TABLE_IMG + " ADD COLUMN last_modified INTEGER;");
+		execSQL("ALTER TABLE " + TABLE_IMG + " ADD COLUMN content_hash VARCHAR(32);");
+
+		// older versions inserted a new row on every scan, only keep the latest one per file
+		execSQL("DELETE FROM " + TABLE_IMG + " WHERE id NOT IN (SELECT MAX(id) FROM " + TABLE_IMG + " GROUP BY abs_path);");
+		execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_" + TABLE_IMG + "_path ON " + TABLE_IMG + " (abs_path);");
+	}
+
+	// query syntax: words, "exact phrases", prefix* and AND / OR / NOT with (brackets), words default to AND
+	// runs on a reader connection, a scan writing at the same time doesn't block it
+	// repeated searches are answered from the cache until the next write commits
+	public List<SearchHit> search(String query, int limit) {
+		return search(query, null, limit);
+	}
+
+	// the page after the given hit, the last one of the previous page (null for the first page)
+	public List<SearchHit> search(String query, SearchHit after, int limit) {
+		List<SearchHit> hits = new ArrayList<SearchHit>();
+		String ftsQuery = toFtsQuery(query);
+		if(ftsQuery.isEmpty())
+			return hits;
+
+		String cacheKey = after == null ? ftsQuery : ftsQuery + '\0' + after.rank + '\0' + after.id;
+		long generation = writeGeneration.get(); // before the query, a commit in between must not be cached as current
+		List<SearchHit> cached = searchCache.get(cacheKey, limit, generation);
+		if(cached != null) {
+			logger.log(Logger.LVL_DEBUG, "Search for '" + query + "' returned " + cached.size() + " cached hits (" + searchCache + ").");
+			return cached;
+		}
+
+		PooledConnection reader = null;
+		try {
+			reader = borrowReader();
+			PreparedStatement searchStmt = reader.prepare(after == null ? SQL_SEARCH : SQL_SEARCH_AFTER);
+			int i = 1;
+			searchStmt.setString(i++, ftsQuery);
+			if(after != null) {
+				searchStmt.setDouble(i++, after.rank);
+				searchStmt.setDouble(i++, after.rank);
+				searchStmt.setLong(i++, after.id);
+			}
+			searchStmt.setInt(i++, limit);
+			try(ResultSet result = searchStmt.executeQuery()) {
+				while(result.next()) {
+					SearchHit hit = new SearchHit();
+					hit.id = result.getLong(1);
+					hit.name = result.getString(2);
+					hit.absPath = result.getString(3);
+					hit.confidence = result.getInt(4);
+					hit.rank = result.getDouble(5);
+					hit.snippet = result.getString(6);
+					hits.add(hit);
+				}
+			}
+			searchCache.put(cacheKey, limit, generation, hits);
+		} catch(SQLException e) {
+			logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage() + " (query: " + ftsQuery + ")");
+		} finally {
+			returnReader(reader);
+		}
+
+		logger.log(Logger.LVL_DEBUG, "Search for '" + query + "' returned " + hits.size() + " hits.");
+
+		return hits;
+	}
+
+	// how many images match, without ranking them
+	public int countMatches(String query) {
+		String ftsQuery = toFtsQuery(query);
+		if(ftsQuery.isEmpty())
+			return 0;
+
+		PooledConnection reader = null;
+		try {
+			reader = borrowReader();
+			PreparedStatement countStmt = reader.prepare(SQL_COUNT);
+			countStmt.setString(1, ftsQuery);
+			try(ResultSet result = countStmt.executeQuery()) {
+				return result.next() ? result.getInt(1) : 0;
+			}
+		} catch(SQLException e) {
+			logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage() + " (query: " + ftsQuery + ")");
+		} finally {
+			returnReader(reader);
+		}
+
+		return 0;
+	}
+
+	// the searched words and phrases split into words, prefix* stays marked, operators and brackets are dropped
+	static List<String> queryTerms(String query) {
+		List<String> terms = new ArrayList<String>();
+		Matcher m = QUERY_TOKEN.matcher(query);
+		while(m.find()) {
+			String token = m.group();
+			if(token.equals("(") || token.equals(")") || token.equals("AND") || token.equals("OR") || token.equals("NOT"))
+				continue;
+
+			boolean prefix = token.endsWith("*");
+			if(prefix)
+				token = token.substring(0, token.length() - 1);
+			if(token.startsWith("\""))
+				token = token.substring(1, token.length() - 1);
+			String[] words = token.trim().split("\\s+");
+			for(int i = 0; i < words.length; i++)
+				if(!words[i].isEmpty())
+					terms.add(prefix && i == words.length - 1 ? words[i] + "*" : words[i]);
+		}
+
+		return terms;
+	}
+
+	// turns user input into a safe fts5 query, every word is quoted so characters like - or : can't break the syntax
+	static String toFtsQuery(String query) {
+		StringBuilder fts = new StringBuilder();
+		Matcher m = QUERY_TOKEN.matcher(query);
+		while(m.find()) {
+			String token = m.group();
+			boolean prefix = token.endsWith("*");
+			if(prefix)
+				token = token.substring(0, token.length() - 1);
+
+			if(token.equals("(") || token.equals(")") || token.equals("AND") || token.equals("OR") || token.equals("NOT")) {
+				fts.append(token);
+			} else {
+				if(token.startsWith("\""))
+					token = token.substring(1, token.length() - 1);
+				if(token.trim().isEmpty())
+					continue;
+				fts.append('"').append(token.replace("\"", "\"\"")).append('"');
+				if(prefix)
+					fts.append('*');
+			}
+			fts.append(' ');
+		}
+
+		return fts.toString().trim();
+	}
+
+	public FileInfo getFileInfo(String absPath) {
+		PooledConnection reader = null;
+		try {
+			reader = borrowReader();
+			PreparedStatement fileInfoStmt = reader.prepare(SQL_FILE_INFO);
+			fileInfoStmt.setString(1, absPath);
+			try(ResultSet result = fileInfoStmt.executeQuery()) {
+				if(!result.next())
+					return null;
+
+				FileInfo info = new FileInfo();
+				info.size = result.getLong(1);
+				info.lastModified = result.getLong(2);
+				info.contentHash = result.getString(3);
+				return info;
+			}
+		} catch(SQLException e) {
+			logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage());
+		} finally {
+			returnReader(reader);
+		}
+
+		return null;
+	}
+
+	// path -> perceptual hash of every image that has one, the scan builds its duplicate index from this
+	public Map<String, Long> getPerceptualHashes() {
+		Map<String, Long> hashes = new HashMap<String, Long>();
+		PooledConnection reader = null;
+		try {
+			reader = borrowReader();
+			try(ResultSet result = reader.prepare(SQL_PHASHES).executeQuery()) {
+				while(result.next())
+					hashes.put(result.getString(1), result.getLong(2));
+			}
+		} catch(SQLException e) {
+			logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage());
+		} finally {
+			returnReader(reader);
+		}
+
+		return hashes;
+	}
+
+	public OCRResult getResult(String absPath) {
+		// the image might have been scanned a moment ago and still sit in the batch, flushing it here would end the batching
+		OCRResult pending = pendingResults.get(absPath);
+		if(pending != null)
+			return pending;
+
+		PooledConnection reader = null;
+		try {
+			reader = borrowReader();
+			PreparedStatement resultStmt = reader.prepare(SQL_RESULT);
+			resultStmt.setString(1, absPath);
+			try(ResultSet result = resultStmt.executeQuery()) {
+				if(!result.next())
+					return null;
+
+				OCRResult r = new OCRResult();
+				r.text = result.getString(1);
+				r.confidence = result.getInt(2);
+				r.words = result.getBytes(3);
+				return r;
+			}
+		} catch(SQLException e) {
+			logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage());
+		} finally {
+			returnReader(reader);
+		}
+
+		return null;
+	}
+
+	// where the words of a search are in a hit's image, relative to its size (0..WordBoxes.SCALE), empty for results of older versions
+	public List<WordBoxes.Word> getHitLocations(SearchHit hit, String query) {
+		PooledConnection reader = null;
+		try {
+			reader = borrowReader();
+			PreparedStatement wordsStmt = reader.prepare(SQL_WORDS);
+			wordsStmt.setLong(1, hit.id);
+			try(ResultSet result = wordsStmt.executeQuery()) {
+				if(result.next())
+					return WordBoxes.find(WordBoxes.unpack(result.getBytes(1)), queryTerms(query));
+			}
+		} catch(SQLException e) {
+			logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage());
+		} catch(IllegalArgumentException | IndexOutOfBoundsException e) {
+			logger.log(Logger.LVL_WARN, "Broken word boxes of '" + hit.absPath + "': " + e.getMessage());
+		} finally {
+			returnReader(reader);
+		}
+
+		return new ArrayList<WordBoxes.Word>();
+	}
+
+	// removes a deleted file, or everything below a deleted directory, returns the number of removed images
+	public synchronized int removeResults(String absPath) {
+		// a queued result for the file must not be written after the delete
+		flushPending();
+
+		synchronized(WRITE_LOCK) {
+			try {
+				PreparedStatement deleteStmt = prepareStatement(SQL_DELETE);
+
+				// the range covers every path starting with the directory and a separator, and can use the path index
+				deleteStmt.setString(1, absPath);
+				deleteStmt.setString(2, absPath + File.separatorChar);
+				deleteStmt.setString(3, absPath + (char)(File.separatorChar + 1));
+				int removed = deleteStmt.executeUpdate();
+				if(removed > 0)
+					writeCommitted();
+				return removed;
+			} catch(SQLException e) {
+				logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage());
+			}
+		}
+
+		return 0;
+	}
+
+	// written right before the ocr starts and committed at once, so it survives if tesseract takes the whole process down
+	public void markRunning(String absPath, long size, long lastModified) {
+		quarantineWrite(SQL_Q_RUNNING, absPath, size, lastModified, System.currentTimeMillis());
+	}
+
+	public void quarantine(String absPath, String reason) {
+		quarantineWrite(SQL_Q_ADD, reason, System.currentTimeMillis(), absPath);
+	}
+
+	public void removeFromQuarantine(String absPath) {
+		quarantineWrite(SQL_Q_REMOVE, absPath);
+	}
+
+	// every image gets another try, returns how many were released
+	public int clearQuarantine() {
+		return quarantineWrite(SQL_Q_CLEAR);
+	}
+
+	// images that were being read when the last run died, returns how many
+	public int recoverCrashed() {
+		return quarantineWrite(SQL_Q_CRASHED);
+	}
+
+	// the reason if the file in this version should not be read again, null otherwise
+	public String getQuarantineReason(String absPath, long size, long lastModified) {
+		PooledConnection reader = null;
+		try {
+			reader = borrowReader();
+			PreparedStatement stmt = reader.prepare(SQL_Q_GET);
+			stmt.setString(1, absPath);
+			stmt.setLong(2, size);
+			stmt.setLong(3, lastModified);
+			try(ResultSet result = stmt.executeQuery()) {
+				if(!result.next())
+					return null;
+
+				String reason = result.getString(1);
+				if(reason.equals(Q_RUNNING) || (reason.equals(Q_CRASHED) && result.getInt(2) < MAX_CRASHES))
+					return null;
+				return reason;
+			}
+		} catch(SQLException e) {
+			logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage());
+		} finally {
+			returnReader(reader);
+		}
+
+		return null;
+	}
+
+	public List<QuarantineEntry> getQuarantine() {
+		List<QuarantineEntry> entries = new ArrayList<QuarantineEntry>();
+		PooledConnection reader = null;
+		try {
+			reader = borrowReader();
+			try(ResultSet result = reader.prepare(SQL_Q_LIST).executeQuery()) {
+				while(result.next()) {
+					QuarantineEntry e = new QuarantineEntry();
+					e.absPath = result.getString(1);
+					e.reason = result.getString(2);
+					e.attempts = result.getInt(3);
+					e.since = result.getLong(4);
+					entries.add(e);
+				}
+			}
+		} catch(SQLException e) {
+			logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage());
+		} finally {
+			returnReader(reader);
+		}
+
+		return entries;
+	}
+
+	// autocommit, outside of the result batches
+	private int quarantineWrite(String sql, Object... params) {
+		synchronized(WRITE_LOCK) {
+			try {
+				PreparedStatement stmt = prepareStatement(sql);
+				for(int i = 0; i < params.length; i++)
+					stmt.setObject(i + 1, params[i]);
+				return stmt.executeUpdate();
+			} catch(SQLException e) {
+				logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage());
+			}
+		}
+
+		return 0;
+	}
+
+	// queues a result for the next batch, the batch is flushed when it is full or due
+	// the image's running mark goes in the same transaction, so a crash before the commit still counts as one during its read
+	public synchronized void addResult(String name, String absPath, long size, long lastModified, String contentHash, long perceptualHash, String ocrData, byte[] words, int conf) {
+		try {
+			PreparedStatement upsertStmt = prepareStatement(SQL_UPSERT);
+			upsertStmt.setString(1, name);
+			upsertStmt.setString(2, absPath);
+			upsertStmt.setString(3, ocrData);
+			upsertStmt.setInt(4, conf);
+			upsertStmt.setLong(5, size);
+			upsertStmt.setLong(6, lastModified);
+			upsertStmt.setString(7, contentHash);
+			upsertStmt.setLong(8, perceptualHash);
+			upsertStmt.addBatch();
+
+			PreparedStatement wordsStmt = prepareStatement(SQL_WORDS_UPSERT);
+			wordsStmt.setBytes(1, words);
+			wordsStmt.setString(2, absPath);
+			wordsStmt.addBatch();
+
+			PreparedStatement doneStmt = prepareStatement(SQL_Q_DONE);
+			doneStmt.setString(1, absPath);
+			doneStmt.addBatch();
+			pendingWrites++;
+
+			OCRResult pending = new OCRResult();
+			pending.text = ocrData;
+			pending.confidence = conf;
+			pending.words = words;
+			pendingResults.put(absPath, pending);
+		} catch(SQLException e) {
+			logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage());
+		}
+
+		flushIfNeeded();
+	}
+
+	// the content is still the same, only remember the new size/mtime so the next scan can skip it early
+	public synchronized void updateFileInfo(String absPath, long size, long lastModified) {
+		try {
+			PreparedStatement touchStmt = prepareStatement(SQL_TOUCH);
+			touchStmt.setLong(1, size);
+			touchStmt.setLong(2, lastModified);
+			touchStmt.setString(3, absPath);
+			touchStmt.addBatch();
+			pendingWrites++;
+		} catch(SQLException e) {
+			logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage());
+		}
+
+		flushIfNeeded();
+	}
+
+	private void flushIfNeeded() {
+		if(pendingWrites >= WRITE_BATCH_SIZE)
+			flushResults();
+		else
+			flushResultsIfDue();
+	}
+
+	private synchronized void flushPending() {
+		if(pendingWrites > 0)
+			flushResults();
+	}
+
+	public synchronized void flushResultsIfDue() {
+		if(System.currentTimeMillis() - lastFlush >= WRITE_FLUSH_MS)
+			flushResults();
+	}
+
+	// writes all pending results inside a single transaction (one fsync instead of one per image)
+	public synchronized void flushResults() {
+		lastFlush = System.currentTimeMillis();
+		if(pendingWrites == 0)
+			return;
+
+		synchronized(WRITE_LOCK) {
+			Connection con = connection.getConnection();
+			try {
+				con.setAutoCommit(false);
+				prepareStatement(SQL_UPSERT).executeBatch();
+				prepareStatement(SQL_WORDS_UPSERT).executeBatch();
+				prepareStatement(SQL_Q_DONE).executeBatch();
+				prepareStatement(SQL_TOUCH).executeBatch();
+				con.commit();
+				writeCommitted();
+				logger.log(Logger.LVL_DEBUG, "Wrote " + pendingWrites + " results to " + TABLE_IMG + ".");
+			} catch(SQLException e) {
+				logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage() + " (" + pendingWrites + " results lost)");
+				try {
+					con.rollback();
+				} catch(SQLException e1) {
+					logger.log(Logger.LVL_ERROR, "SQL-Error: " + e1.getErrorCode() + " - " + e1.getMessage());
+				}
+			} finally {
+				pendingWrites = 0;
+				pendingResults.clear(); // committed (or lost), either way the database knows better now
+				try {
+					prepareStatement(SQL_UPSERT).clearBatch();
+					prepareStatement(SQL_WORDS_UPSERT).clearBatch();
+					prepareStatement(SQL_Q_DONE).clearBatch();
+					prepareStatement(SQL_TOUCH).clearBatch();
+					con.setAutoCommit(true);
+				} catch(SQLException e) {
+					logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	@Override
+	protected void writeCommitted() {
+		writeGeneration.incrementAndGet();
+	}
+
+	public SearchCache getSearchCache() { return searchCache; }
+}
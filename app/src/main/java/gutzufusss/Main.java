@@ -15,12 +15,15 @@ public class Main {
 	private ImageManipulation imgManipulator;
 
 	public Main() {
-		logger = new Logger();
+		this(false);
+	}
+
+	public Main(boolean headless) {
+		logger = new Logger(headless ? System.err : System.out); // stdout belongs to the cli output
 		config = new Config(logger);
+		SQLWrapper.setLogger(logger);
 		imgDB = new ImageDBController();
-		imgManipulator = new ImageManipulation(logger);
 
-		SQLWrapper.setLogger(logger);
 		logger.setConfig(config);
 
 		// database & table checks
@@ -31,21 +34,33 @@ public class Main {
 		} catch(SQLException e) {
 			logger.log(Logger.LVL_ERROR, "SQL-Error: " + ((SQLException)e).getErrorCode() + " - " + e.getMessage());
 		}
+		config.load();
 
-		new GUI(logger, config, this);
+		if(!headless)
+			new GUI(logger, config, this);
 
 		logger.log(Logger.LVL_INFO, "ImageFinder initialized completely successfully!");
-
-		//ocrWrapper.scanDirectory("test_images");
 	}
 
 	public OCRWrapper getOCR() { return ocrWrapper; }
 
 	public ImageDBController getImgDB() { return imgDB; }
 
-	public ImageManipulation getIMGManipulator() { return imgManipulator; }
+	// opencv is only loaded once the first image has to be processed, a search doesn't need it
+	public synchronized ImageManipulation getIMGManipulator() {
+		if(imgManipulator == null)
+			imgManipulator = new ImageManipulation(logger);
+		return imgManipulator;
+	}
+
+	public Logger getLogger() { return logger; }
+
+	public Config getConfig() { return config; }
 
 	public static void main(String[] args) { // entry point
+		if(args.length > 0)
+			System.exit(new CLI().run(args));
+
 		new Main();
 	}
 }
@@ -0,0 +1,157 @@
+package gutzufusss;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import gutzufusss.ImageDBController.SearchHit;
+import gutzufusss.util.Logger;
+
+// least recently used search results, bounded by their estimated memory
+// an entry is only valid for the write generation it was read in, every committed write makes all older entries stale
+public class SearchCache implements SearchCacheMBean {
+	public static final String JMX_NAME = "gutzufusss:type=SearchCache";
+	public static final long MAX_BYTES = 8L * 1024 * 1024;
+	public static final int ENTRY_OVERHEAD = 96;	// map node, key, list etc.
+	public static final int HIT_OVERHEAD = 80;		// SearchHit object & string headers
+
+	private static class Entry {
+		final List<SearchHit> hits;
+		final int limit;			// the limit the hits were fetched with
+		final long generation;
+		final long bytes;
+
+		Entry(List<SearchHit> hits, int limit, long generation, long bytes) {
+			this.hits = hits;
+			this.limit = limit;
+			this.generation = generation;
+			this.bytes = bytes;
+		}
+
+		// fewer hits than asked for means there are no more
+		boolean covers(int limit) { return limit <= this.limit || hits.size() < this.limit; }
+	}
+
+	private Logger logger;
+	private final long maxBytes;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true); // access order, the eldest is the least recently used
+	private long bytes = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private long invalidations = 0;
+
+	public SearchCache(Logger logger, long maxBytes) {
+		this.logger = logger;
+		this.maxBytes = maxBytes;
+	}
+
+	// query has to be normalized already, null if it has to go to the database
+	public synchronized List<SearchHit> get(String query, int limit, long generation) {
+		Entry e = entries.get(query);
+		if(e != null && e.generation != generation) {
+			remove(query, e);
+			invalidations++;
+			e = null;
+		}
+		if(e == null || !e.covers(limit)) {
+			misses++;
+			return null;
+		}
+
+		hits++;
+		return new ArrayList<SearchHit>(e.hits.subList(0, Math.min(limit, e.hits.size()))); // the caller may modify its list
+	}
+
+	// generation is the one from before the query ran, a write that committed meanwhile makes the result stale right away
+	public synchronized void put(String query, int limit, long generation, List<SearchHit> result) {
+		Entry old = entries.get(query);
+		if(old != null) {
+			if(old.generation == generation && old.covers(limit))
+				return; // another thread was faster
+			remove(query, old);
+		}
+
+		long size = estimateSize(query, result);
+		if(size > maxBytes / 4)
+			return; // one huge result would push out everything else
+
+		entries.put(query, new Entry(new ArrayList<SearchHit>(result), limit, generation, size));
+		bytes += size;
+
+		Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+		while(bytes > maxBytes && it.hasNext()) {
+			bytes -= it.next().getValue().bytes;
+			it.remove();
+			evictions++;
+		}
+	}
+
+	// makes the cache visible via jmx
+	public void registerMBean() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(JMX_NAME);
+			if(server.isRegistered(name))
+				server.unregisterMBean(name);
+			server.registerMBean(this, name);
+		} catch(Exception e) {
+			logger.log(Logger.LVL_WARN, "Could not register search cache via JMX: " + e.getMessage());
+		}
+	}
+
+	// START_MISC_FUNCTIONS
+	@Override
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	@Override
+	public synchronized long getHits() { return hits; }
+
+	@Override
+	public synchronized long getMisses() { return misses; }
+
+	@Override
+	public synchronized long getEvictions() { return evictions; }
+
+	@Override
+	public synchronized long getInvalidations() { return invalidations; }
+
+	@Override
+	public synchronized int getEntries() { return entries.size(); }
+
+	@Override
+	public synchronized long getSizeBytes() { return bytes; }
+
+	@Override
+	public synchronized double getHitRatio() { return hits + misses > 0 ? (double)hits / (hits + misses) : 0; }
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%d hits, %d misses (%.0f%%), %d evicted, %d stale, %d entries, %d KiB",
+				hits, misses, getHitRatio() * 100, evictions, invalidations, entries.size(), bytes / 1024);
+	}
+
+	private void remove(String query, Entry e) {
+		entries.remove(query);
+		bytes -= e.bytes;
+	}
+
+	private static long estimateSize(String query, List<SearchHit> result) {
+		long size = ENTRY_OVERHEAD + 2L * query.length();
+		for(SearchHit h : result)
+			size += HIT_OVERHEAD + 2L * (length(h.name) + length(h.absPath) + length(h.snippet));
+		return size;
+	}
+
+	private static int length(String s) { return s != null ? s.length() : 0; }
+	// END_MISC_FUNCTIONS
+}
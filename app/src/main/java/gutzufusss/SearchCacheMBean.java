@@ -0,0 +1,20 @@
+package gutzufusss;
+
+// hit rate & size of the search cache for jconsole & co.
+public interface SearchCacheMBean {
+	long getHits();
+
+	long getMisses();
+
+	long getEvictions();
+
+	long getInvalidations();
+
+	int getEntries();
+
+	long getSizeBytes();
+
+	double getHitRatio();
+
+	void clear();
+}
@@ -0,0 +1,232 @@
+package gutzufusss.filter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.opencv.core.Mat;
+
+import gutzufusss.scan.ScanMetrics;
+import gutzufusss.util.Config;
+import gutzufusss.util.ImageManipulation;
+
+// the pre-processing filters of a scan, parsed from a spec like "grayscale, smooth(diameter=16), border(size=8)"
+public class FilterPipeline {
+	private static final Pattern STEP = Pattern.compile("([a-zA-Z]+)\\s*(?:\\((.*)\\))?");
+
+	// the variants of the adaptive mode, each one is only tried if the one before left the confidence too low
+	public static final String DEFAULT_LADDER = "grayscale, border | grayscale, smooth, border | grayscale, contrast, smooth, border | grayscale, swt, border";
+
+	private final List<FilterStep> steps;	// as configured
+	private final List<FilterStep> passes;	// what actually runs, point operations are fused
+
+	public FilterPipeline(List<FilterStep> steps) {
+		this.steps = new ArrayList<FilterStep>(steps);
+		passes = fuse(steps);
+	}
+
+	public static FilterPipeline parse(String spec) {
+		List<FilterStep> steps = new ArrayList<FilterStep>();
+		for(String token : splitTopLevel(spec)) {
+			if(token.isEmpty())
+				continue;
+
+			Matcher m = STEP.matcher(token);
+			if(!m.matches())
+				throw new IllegalArgumentException("Can't read filter '" + token + "', expected e.g. name or name(key=value, ...)");
+
+			Map<String, String> params = new LinkedHashMap<String, String>();
+			if(m.group(2) != null)
+				for(String p : m.group(2).split(",")) {
+					if(p.trim().isEmpty())
+						continue;
+					String[] kv = p.split("=", 2);
+					if(kv.length != 2)
+						throw new IllegalArgumentException("Parameter '" + p.trim() + "' of filter '" + m.group(1) + "' has to be key=value");
+					params.put(kv[0].trim(), kv[1].trim());
+				}
+			steps.add(Filters.create(m.group(1).toLowerCase(), params));
+		}
+
+		return new FilterPipeline(steps);
+	}
+
+	// "spec | spec | ...", cheapest first
+	public static List<FilterPipeline> parseLadder(String specs) {
+		List<FilterPipeline> ladder = new ArrayList<FilterPipeline>();
+		for(String spec : specs.split("\\|"))
+			ladder.add(parse(spec.trim()));
+
+		return ladder;
+	}
+
+	// the check boxes of the gui, in the order the filters always had
+	public static FilterPipeline fromFlags(Config.ConfigVariables c) {
+		Map<String, String> none = Collections.emptyMap();
+		List<FilterStep> steps = new ArrayList<FilterStep>();
+		if(c.flGrayscale)
+			steps.add(Filters.create("grayscale", none));
+		if(c.flBinary)
+			steps.add(Filters.create("binary", none));
+		if(c.flSmooth)
+			steps.add(Filters.create("smooth", none));
+		if(c.flBorder)
+			steps.add(Filters.create("border", none));
+		if(c.flSWT)
+			steps.add(Filters.create("swt", none));
+		if(c.flContrast)
+			steps.add(Filters.create("contrast", none));
+
+		return new FilterPipeline(steps);
+	}
+
+	// the pipeline of the deepest configured directory containing path
+	public static FilterPipeline forPath(String path, Map<String, FilterPipeline> byDir, FilterPipeline def) {
+		FilterPipeline best = def;
+		int bestLen = -1;
+		for(Map.Entry<String, FilterPipeline> e : byDir.entrySet()) {
+			String dir = e.getKey();
+			if(dir.length() > bestLen && (path.equals(dir) || path.startsWith(dir.endsWith(File.separator) ? dir : dir + File.separator))) {
+				best = e.getValue();
+				bestLen = dir.length();
+			}
+		}
+
+		return best;
+	}
+
+	public Mat apply(ImageManipulation imgManipulator, Mat in, ScanMetrics metrics) { return apply(imgManipulator, in, 0, passes.size(), metrics); }
+
+	// only the passes from..to-1, e.g. the rest after an intermediate result from the frame cache
+	public Mat apply(ImageManipulation imgManipulator, Mat in, int from, int to, ScanMetrics metrics) {
+		Mat out = in;
+		for(FilterStep pass : passes.subList(from, to)) {
+			long start = System.nanoTime();
+			out = pass.apply(imgManipulator, out);
+			if(metrics != null)
+				metrics.record("filter." + pass.getName(), System.nanoTime() - start);
+		}
+
+		return out;
+	}
+
+	public int getPassCount() { return passes.size(); }
+
+	// the first n passes with all their parameters, an intermediate result can be reused as long as this stays the same
+	public String signature(int n) {
+		StringBuilder sb = new StringBuilder();
+		for(FilterStep p : passes.subList(0, n))
+			sb.append(sb.length() > 0 ? ", " : "").append(p);
+
+		return sb.toString();
+	}
+
+	// the result of this pass is worth keeping, the point operations and borders after it are cheap to redo
+	public boolean isCheckpoint(int pass) {
+		FilterStep p = passes.get(pass);
+		return !p.isPointOp() && p.getBorderSize() == 0;
+	}
+
+	// the decoder can skip the color if it is thrown away anyways
+	public boolean discardsColor() {
+		for(FilterStep s : steps)
+			if(s.outputsGray())
+				return true;
+		return false;
+	}
+
+	public int getBorderSize() {
+		int size = 0;
+		for(FilterStep s : steps)
+			size += s.getBorderSize();
+		return size;
+	}
+
+	// e.g. "grayscale+binary -> smooth -> border"
+	public String describePasses() {
+		if(passes.isEmpty())
+			return "none";
+
+		StringBuilder sb = new StringBuilder();
+		for(FilterStep p : passes) {
+			if(sb.length() > 0)
+				sb.append(" -> ");
+			sb.append(p.getName());
+		}
+
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for(FilterStep s : steps) {
+			if(sb.length() > 0)
+				sb.append(", ");
+			sb.append(s);
+		}
+
+		return sb.toString();
+	}
+
+	// a row of point operations becomes one pass, unless a gray one follows ones that ran on color (the result would differ)
+	private static List<FilterStep> fuse(List<FilterStep> steps) {
+		List<FilterStep> passes = new ArrayList<FilterStep>();
+		List<FilterStep> run = new ArrayList<FilterStep>();
+		boolean runGray = false;
+		for(FilterStep s : steps) {
+			if(s.isPointOp() && (run.isEmpty() || runGray || !s.outputsGray())) {
+				runGray |= s.outputsGray();
+				run.add(s);
+				continue;
+			}
+
+			endRun(run, passes);
+			runGray = false;
+			if(s.isPointOp()) {
+				run.add(s);
+				runGray = s.outputsGray();
+			} else {
+				passes.add(s);
+			}
+		}
+		endRun(run, passes);
+
+		return passes;
+	}
+
+	private static void endRun(List<FilterStep> run, List<FilterStep> passes) {
+		if(run.size() == 1)
+			passes.add(run.get(0)); // nothing to fuse, keeps the plain opencv call
+		else if(run.size() > 1)
+			passes.add(new FusedPointStep(run));
+		run.clear();
+	}
+
+	// splits at commas that are not inside brackets
+	private static List<String> splitTopLevel(String spec) {
+		List<String> tokens = new ArrayList<String>();
+		int depth = 0, start = 0;
+		for(int i = 0; i < spec.length(); i++) {
+			char c = spec.charAt(i);
+			if(c == '(')
+				depth++;
+			else if(c == ')')
+				depth--;
+			else if(c == ',' && depth == 0) {
+				tokens.add(spec.substring(start, i).trim());
+				start = i + 1;
+			}
+		}
+		if(depth != 0)
+			throw new IllegalArgumentException("Unbalanced brackets in filter pipeline '" + spec + "'");
+		tokens.add(spec.substring(start).trim());
+
+		return tokens;
+	}
+}
@@ -0,0 +1,74 @@
+package gutzufusss.filter;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.opencv.core.Mat;
+
+import gutzufusss.util.ImageManipulation;
+
+// one configurable step of the pre-processing pipeline, e.g. "smooth(diameter=16)"
+public abstract class FilterStep {
+	protected final String name;
+	protected final Map<String, String> params;
+
+	protected FilterStep(String name, Map<String, String> params, String... allowedParams) {
+		this.name = name;
+		this.params = new LinkedHashMap<String, String>(params);
+
+		List<String> allowed = Arrays.asList(allowedParams);
+		for(String key : params.keySet())
+			if(!allowed.contains(key))
+				throw new IllegalArgumentException("Unknown parameter '" + key + "' for filter '" + name + "', known: " + allowed);
+	}
+
+	public abstract Mat apply(ImageManipulation imgManipulator, Mat in);
+
+	// point operations only look at a single value, a row of them is fused into one lookup table
+	public boolean isPointOp() { return false; }
+
+	// value mapping of a point operation, applied after the conversion to gray if outputsGray()
+	public int map(int v) { return v; }
+
+	public boolean outputsGray() { return false; }
+
+	// pixels added on every side of the image
+	public int getBorderSize() { return 0; }
+
+	public String getName() { return name; }
+
+	protected int intParam(String key, int def) {
+		String v = params.get(key);
+		try {
+			return v != null ? Integer.parseInt(v.trim()) : def;
+		} catch(NumberFormatException e) {
+			throw new IllegalArgumentException("Parameter '" + key + "' of filter '" + name + "' has to be a whole number: " + v);
+		}
+	}
+
+	protected double doubleParam(String key, double def) {
+		String v = params.get(key);
+		try {
+			return v != null ? Double.parseDouble(v.trim()) : def;
+		} catch(NumberFormatException e) {
+			throw new IllegalArgumentException("Parameter '" + key + "' of filter '" + name + "' has to be a number: " + v);
+		}
+	}
+
+	@Override
+	public String toString() {
+		if(params.isEmpty())
+			return name;
+
+		StringBuilder sb = new StringBuilder(name).append('(');
+		for(Map.Entry<String, String> e : params.entrySet()) {
+			if(sb.charAt(sb.length() - 1) != '(')
+				sb.append(", ");
+			sb.append(e.getKey()).append('=').append(e.getValue());
+		}
+
+		return sb.append(')').toString();
+	}
+}
@@ -0,0 +1,122 @@
+package gutzufusss.filter;
+
+import java.util.Map;
+
+import org.opencv.core.Mat;
+
+import gutzufusss.util.ImageManipulation;
+
+// all filters a pipeline spec can name, the defaults are the values of the old fixed chain
+public class Filters {
+	public static final String[] NAMES = {"grayscale", "binary", "smooth", "border", "swt", "contrast"};
+
+	private Filters() {
+	}
+
+	public static FilterStep create(String name, Map<String, String> params) {
+		switch(name) {
+		case "grayscale":	return new Grayscale(params);
+		case "binary":		return new Binary(params);
+		case "smooth":		return new Smooth(params);
+		case "border":		return new Border(params);
+		case "swt":			return new SWT(params);
+		case "contrast":	return new Contrast(params);
+		default:
+			throw new IllegalArgumentException("Unknown filter '" + name + "', known: " + String.join(", ", NAMES));
+		}
+	}
+
+	static class Grayscale extends FilterStep {
+		Grayscale(Map<String, String> params) { super("grayscale", params); }
+
+		@Override
+		public Mat apply(ImageManipulation im, Mat in) { return im.toGrayscale(in); }
+
+		@Override
+		public boolean isPointOp() { return true; }
+
+		@Override
+		public boolean outputsGray() { return true; }
+	}
+
+	// doesn't help much on complex backgrounds
+	static class Binary extends FilterStep {
+		private final int threshold;
+
+		Binary(Map<String, String> params) {
+			super("binary", params, "threshold");
+			threshold = intParam("threshold", 127);
+		}
+
+		@Override
+		public Mat apply(ImageManipulation im, Mat in) { return im.toBinary(in, threshold); }
+
+		@Override
+		public boolean isPointOp() { return true; }
+
+		@Override
+		public int map(int v) { return v > threshold ? 255 : 0; }
+
+		@Override
+		public boolean outputsGray() { return true; }
+	}
+
+	static class Contrast extends FilterStep {
+		private final double offset;
+
+		Contrast(Map<String, String> params) {
+			super("contrast", params, "offset");
+			offset = doubleParam("offset", 0.1);
+		}
+
+		@Override
+		public Mat apply(ImageManipulation im, Mat in) { return im.changeContrast(in, (float)offset); }
+
+		@Override
+		public boolean isPointOp() { return true; }
+
+		@Override
+		public int map(int v) { return (int)Math.min(Math.max(Math.rint(v * (1 + (float)offset)), 0), 255); } // float math and rounding like convertTo, ties would differ in double
+	}
+
+	static class Smooth extends FilterStep {
+		private final int diameter;
+		private final double sigmaColor;
+		private final double sigmaSpace;
+
+		Smooth(Map<String, String> params) {
+			super("smooth", params, "diameter", "sigmaColor", "sigmaSpace");
+			diameter = intParam("diameter", 24);
+			sigmaColor = doubleParam("sigmaColor", 32.0);
+			sigmaSpace = doubleParam("sigmaSpace", 8.0);
+		}
+
+		@Override
+		public Mat apply(ImageManipulation im, Mat in) { return im.smoothImg(in, diameter, sigmaColor, sigmaSpace); }
+	}
+
+	static class Border extends FilterStep {
+		private final int size;
+
+		Border(Map<String, String> params) {
+			super("border", params, "size");
+			size = intParam("size", 6);
+		}
+
+		@Override
+		public Mat apply(ImageManipulation im, Mat in) { return im.addBorder(in, size); }
+
+		@Override
+		public int getBorderSize() { return size; }
+	}
+
+	static class SWT extends FilterStep {
+		SWT(Map<String, String> params) { super("swt", params); }
+
+		@Override
+		public Mat apply(ImageManipulation im, Mat in) { return im.performSWT(in); }
+
+		@Override
+		public boolean outputsGray() { return true; }
+	}
+}
@@ -0,0 +1,70 @@
+package gutzufusss.filter;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.opencv.core.Mat;
+
+import gutzufusss.util.ImageManipulation;
+
+// a row of point operations as one lookup table, e.g. grayscale + contrast + binary are two passes instead of three (one on gray input)
+// only the value mappings are fused, a color input still goes through cvtColor first: a java loop doing both in one sweep
+// was measured ~40% slower than the two native passes
+class FusedPointStep extends FilterStep {
+	private final boolean gray;
+	private final byte[] lut = new byte[256];
+	private final boolean identity;
+	private final String spec;		// the fused steps with their parameters
+
+	FusedPointStep(List<FilterStep> steps) {
+		super(joinNames(steps), Collections.<String, String>emptyMap());
+		StringBuilder sb = new StringBuilder();
+		for(FilterStep s : steps)
+			sb.append(sb.length() > 0 ? " + " : "").append(s);
+		spec = sb.toString();
+
+		boolean g = false;
+		for(FilterStep s : steps)
+			g |= s.outputsGray();
+		gray = g;
+
+		boolean id = true;
+		for(int v = 0; v < 256; v++) {
+			int mapped = v;
+			for(FilterStep s : steps)
+				mapped = s.map(mapped);
+			lut[v] = (byte)mapped;
+			id &= mapped == v;
+		}
+		identity = id;
+	}
+
+	@Override
+	public Mat apply(ImageManipulation im, Mat in) {
+		Mat out = gray ? im.toGrayscale(in) : in;
+		if(!identity)
+			out = im.applyLut(out, lut);
+
+		return out;
+	}
+
+	@Override
+	public boolean isPointOp() { return true; }
+
+	@Override
+	public boolean outputsGray() { return gray; }
+
+	@Override
+	public String toString() { return spec; }
+
+	private static String joinNames(List<FilterStep> steps) {
+		StringBuilder sb = new StringBuilder();
+		for(FilterStep s : steps) {
+			if(sb.length() > 0)
+				sb.append('+');
+			sb.append(s.getName());
+		}
+
+		return sb.toString();
+	}
+}
@@ -8,6 +8,7 @@ import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.List;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -43,6 +44,12 @@ public class GUIController implements ActionListener, ItemListener, ChangeListen
 		case "Start scanning":
 			model.startScanning(view.dirPathTF.getText());
 			break;
+		case "Stop scanning":
+			model.stopScanning();
+			break;
+		case "Search":
+			model.search(view.searchTF.getText());
+			break;
 		/*case LVL_ERROR:
 			break;*/
 		}
@@ -66,17 +73,45 @@ public class GUIController implements ActionListener, ItemListener, ChangeListen
 			model.updateFlSWT(e.getStateChange() == 1);
 		else if(e.getSource().toString().contains("flContrast"))
 			model.updateFlContrast(e.getStateChange() == 1);
+		else if(e.getSource().toString().contains("flTextRegions"))
+			model.updateFlTextRegions(e.getStateChange() == 1);
+		else if(e.getSource().toString().contains("flAdaptive"))
+			model.updateFlAdaptive(e.getStateChange() == 1);
+		else if(e.getSource().toString().contains("langRouting"))
+			model.updateLangRouting(e.getStateChange() == 1);
+		else if(e.getSource().toString().contains("watchMode"))
+			model.updateWatchMode(e.getStateChange() == 1);
 	}
 
 	@Override
 	public void stateChanged(ChangeEvent e) {
 		if(e.getSource().toString().contains("critConf"))
 			model.updateCritConf((int)((JSpinner)e.getSource()).getValue());
+		else if(e.getSource().toString().contains("scanThreads"))
+			model.updateScanThreads((int)((JSpinner)e.getSource()).getValue());
+		else if(e.getSource().toString().contains("ocrTimeout"))
+			model.updateOcrTimeout((int)((JSpinner)e.getSource()).getValue());
 	}
 
 	public void handleAutoScroll() { view.listLog.ensureIndexIsVisible(view.listLog.getModel().getSize() - 1); }
 
+	public void updateResultCount(int loaded, int total) { view.setResultCount(loaded, total); }
+
+	public void resultsLoaded() { view.updateVisibleResults(); }
+
+	public void loadMoreResults() { model.loadMoreResults(); }
+
+	public void openResult(int row) { model.openResult(row); }
+
 	public void setDirPath(String p) { view.dirPathTF.setText(p); }
 
 	public Config getConfig() { return model.getConfig(); }
+
+	public LogListModel getLogModel() { return model.getLogModel(); }
+
+	public ResultTableModel getResultModel() { return model.getResultModel(); }
+
+	public ThumbnailLoader getThumbnails() { return model.getThumbnails(); }
+
+	public List<String> getScanSummary() { return model.getScanSummary(); }
 }
@@ -0,0 +1,64 @@
+package gutzufusss.gui;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.Timer;
+
+import gutzufusss.util.Logger;
+
+// collects log lines from the log writer and hands them to the EDT in batches, at most MAX_FPS times a second
+public class GUILogSink implements Logger.LogListener {
+	public static final int MAX_FPS = 20;
+
+	private final ArrayDeque<String> pending = new ArrayDeque<String>();
+	private boolean scheduled = false;
+	private LogListModel model;
+	private Timer timer;
+	private Runnable afterPublish;
+
+	public GUILogSink(int capacity) {
+		model = new LogListModel(capacity);
+		timer = new Timer(1000 / MAX_FPS, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				publish();
+			}
+		});
+		timer.setRepeats(false); // only runs while there is something to show
+	}
+
+	@Override
+	public void linesLogged(List<String> lines) {
+		synchronized(pending) {
+			pending.addAll(lines);
+			while(pending.size() > model.getCapacity()) // would be evicted right away anyways
+				pending.pollFirst();
+
+			if(!scheduled) {
+				scheduled = true;
+				timer.start();
+			}
+		}
+	}
+
+	private void publish() { // on the EDT
+		List<String> batch;
+		synchronized(pending) {
+			batch = new ArrayList<String>(pending);
+			pending.clear();
+			scheduled = false;
+		}
+
+		model.addAll(batch);
+		if(afterPublish != null)
+			afterPublish.run();
+	}
+
+	public void setAfterPublish(Runnable r) { afterPublish = r; }
+
+	public LogListModel getModel() { return model; }
+}
@@ -0,0 +1,218 @@
+package gutzufusss.gui;
+
+import java.awt.Desktop;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.JFileChooser;
+import javax.swing.SwingUtilities;
+
+import gutzufusss.ImageDBController.SearchHit;
+import gutzufusss.Main;
+import gutzufusss.util.Config;
+import gutzufusss.util.Logger;
+import gutzufusss.wrapper.OCRWrapper;
+
+public class GUIModel {
+	public static final int RESULT_PAGE_SIZE = 100;
+
+	private Logger logger;
+	private Config config;
+	private Main controller; // for communication with the main programm
+	private GUIController guiCtrl;
+	private GUILogSink logSink;
+	private volatile OCRWrapper currentScan = null; // running or last scan, feeds the statistics panel
+	private ThumbnailLoader thumbnails;
+	private ResultTableModel resultModel;
+	private ExecutorService searchExecutor;	// one thread, the database work of the results view never runs on the EDT
+	private int searchSeq = 0;				// EDT only, pages of an older search are dropped
+	private String currentQuery = null;
+	private boolean pageLoading = false;
+	private int resultTotal = -1;
+
+	public GUIModel(Logger logger, Config config, Main m) {
+		this.config = config;
+		this.logger = logger;
+		controller = m;
+		logSink = new GUILogSink(config.curConfig.logViewCapacity);
+		logSink.setAfterPublish(this::logMessageAdded);
+		thumbnails = new ThumbnailLoader(logger);
+		resultModel = new ResultTableModel(thumbnails);
+		searchExecutor = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "gui-search");
+			t.setDaemon(true);
+			return t;
+		});
+		guiCtrl = new GUIController(logger, this);
+		
+		logger.setLogListener(logSink);
+	}
+
+	public void userBrowsePath() {
+		// open dialog
+		JFileChooser fc = new JFileChooser();
+		fc.setDialogTitle("Select the directory you want to scan");
+		fc.setDialogType(JFileChooser.OPEN_DIALOG);
+		fc.setCurrentDirectory(new java.io.File(".")); // start at application current directory
+		fc.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+		int returnVal = fc.showOpenDialog(null);
+		if(returnVal == JFileChooser.APPROVE_OPTION) {
+			String selectedDir = fc.getSelectedFile().getAbsolutePath();
+			guiCtrl.setDirPath(selectedDir);
+		}
+	}
+
+	public void updateLogLevel(String selectedItem) {
+		int newLogLvl = Integer.parseInt(selectedItem.split(":")[0]);
+		config.curConfig.logLevel = newLogLvl;
+		saveConfig();
+	}
+
+	public void updateDebuggingActive(boolean active) { config.curConfig.debug = active; saveConfig(); }
+
+	public void updateCritConf(int lvl) { config.curConfig.critConf = lvl; saveConfig(); }
+
+	public void updateScanThreads(int num) { config.curConfig.scanThreads = num; saveConfig(); }
+
+	public void updateOcrTimeout(int seconds) { config.curConfig.ocrTimeout = seconds; saveConfig(); }
+
+	public void updateFlGrayscale(boolean active) { config.curConfig.flGrayscale = active; saveConfig(); }
+
+	public void updateFlBinary(boolean active) { config.curConfig.flBinary = active; saveConfig(); }
+
+	public void updateFlSmooth(boolean active) { config.curConfig.flSmooth = active; saveConfig(); }
+
+	public void updateFlBorder(boolean active) { config.curConfig.flBorder = active; saveConfig(); }
+
+	public void updateFlSWT(boolean active) { config.curConfig.flSWT = active; saveConfig(); }
+
+	public void updateFlContrast(boolean active) { config.curConfig.flContrast = active; saveConfig(); }
+
+	public void updateFlTextRegions(boolean active) { config.curConfig.flTextRegions = active; saveConfig(); }
+
+	public void updateFlAdaptive(boolean active) { config.curConfig.flAdaptive = active; saveConfig(); }
+
+	public void updateLangRouting(boolean active) { config.curConfig.langRouting = active; saveConfig(); }
+
+	public void updateWatchMode(boolean active) {
+		config.curConfig.watchMode = active;
+		saveConfig();
+		if(!active)
+			stopWatching();
+	}
+
+	// written on the search thread like all other database work of the gui, in the order the changes were made
+	private void saveConfig() {
+		searchExecutor.execute(config::save);
+	}
+
+	public void startScanning(String path) {
+		if(new File(path).exists()) {
+			stopWatching(); // only one directory is watched at a time
+			OCRWrapper myRunnable = new OCRWrapper(logger, config, controller, controller.getImgDB(), path);
+			myRunnable.setWatchMode(config.curConfig.watchMode);
+			currentScan = myRunnable;
+	        Thread t = new Thread(myRunnable);
+	        t.start();
+		}
+		else
+			logger.log(Logger.LVL_ERROR, "The selected directory does not seem to exist.");
+	}
+	
+	// on the EDT, shows the first page right away and counts all matches afterwards
+	public void search(String query) {
+		int seq = ++searchSeq;
+		currentQuery = query;
+		resultTotal = -1;
+		pageLoading = true;
+		resultModel.clear();
+		guiCtrl.updateResultCount(0, -1);
+
+		searchExecutor.execute(() -> {
+			List<SearchHit> page = controller.getImgDB().search(query, null, RESULT_PAGE_SIZE + 1); // one more tells if there is another page
+			SwingUtilities.invokeLater(() -> pageLoaded(seq, page));
+
+			int total = controller.getImgDB().countMatches(query);
+			SwingUtilities.invokeLater(() -> {
+				if(seq != searchSeq)
+					return;
+				resultTotal = total;
+				guiCtrl.updateResultCount(resultModel.getRowCount(), total);
+			});
+		});
+	}
+
+	// on the EDT, called when the user scrolled close to the last loaded row
+	public void loadMoreResults() {
+		if(pageLoading || !resultModel.hasMore())
+			return;
+
+		int seq = searchSeq;
+		String query = currentQuery;
+		SearchHit after = resultModel.getLastHit();
+		pageLoading = true;
+		searchExecutor.execute(() -> {
+			List<SearchHit> page = controller.getImgDB().search(query, after, RESULT_PAGE_SIZE + 1);
+			SwingUtilities.invokeLater(() -> pageLoaded(seq, page));
+		});
+	}
+
+	private void pageLoaded(int seq, List<SearchHit> page) {
+		if(seq != searchSeq)
+			return;
+
+		pageLoading = false;
+		boolean more = page.size() > RESULT_PAGE_SIZE;
+		resultModel.addPage(more ? page.subList(0, RESULT_PAGE_SIZE) : page, more);
+		guiCtrl.updateResultCount(resultModel.getRowCount(), resultTotal);
+		guiCtrl.resultsLoaded();
+	}
+
+	public void openResult(int row) {
+		String path = resultModel.getHit(row).absPath;
+		searchExecutor.execute(() -> {
+			try {
+				Desktop.getDesktop().open(new File(path));
+			} catch(IOException | UnsupportedOperationException | IllegalArgumentException e) {
+				logger.log(Logger.LVL_WARN, "Could not open " + path + ": " + e.getMessage());
+			}
+		});
+	}
+
+	public void stopScanning() {
+		OCRWrapper scan = currentScan;
+		if(scan != null)
+			scan.cancel();
+	}
+
+	private void stopWatching() {
+		OCRWrapper scan = currentScan;
+		if(scan != null)
+			scan.stopWatching();
+	}
+
+	public void logMessageAdded() {
+		if(config.curConfig.logAutoScroll)
+			guiCtrl.handleAutoScroll();
+	}
+
+	public Config getConfig() { return config; }
+
+	public LogListModel getLogModel() { return logSink.getModel(); }
+
+	public ResultTableModel getResultModel() { return resultModel; }
+
+	public ThumbnailLoader getThumbnails() { return thumbnails; }
+
+	public List<String> getScanSummary() {
+		OCRWrapper scan = currentScan;
+		if(scan == null || scan.getMetrics() == null)
+			return Collections.emptyList();
+
+		return scan.getMetrics().getSummaryLines();
+	}
+}
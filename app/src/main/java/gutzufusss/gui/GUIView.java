@@ -37,11 +37,28 @@ import java.awt.event.ItemEvent;
 import javax.swing.JSpinner;
 import javax.swing.SpinnerNumberModel;
 import javax.swing.JCheckBox;
+import javax.swing.JTextArea;
+import javax.swing.Timer;
+import javax.swing.JTable;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 @SuppressWarnings("serial")
 public class GUIView extends JFrame {
+	private static final int STATS_REFRESH_MS = 500;
+	private static final int PREFETCH_ROWS = 30;	// the next page is loaded once the user gets this close to the last loaded row
+
 	public JTextField dirPathTF;
+	public JTextField searchTF;
 	public JList<String> listLog;
+	public JTextArea statsTA;
+	public JTable resultTable;
+	private JScrollPane resultScrollPane;
+	private JLabel lblResultCount;
 	
 	private Logger logger;
 	private GUIController guiCtrl;
@@ -64,9 +81,9 @@ public class GUIView extends JFrame {
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 		setTitle("ImageFinder");
 		setResizable(false);
-		setSize(new Dimension(980, 530));
-		getContentPane().setSize(new Dimension(980, 530));
-		setLocation(520, 300);
+		setSize(new Dimension(980, 840));
+		getContentPane().setSize(new Dimension(980, 840));
+		setLocation(520, 120);
 		getContentPane().setLayout(null);
 
 		JButton btnBrowse = new JButton("Browse...");
@@ -81,6 +98,21 @@ public class GUIView extends JFrame {
 		btnStartScanning.setFont(new Font("Tahoma", Font.PLAIN, 14));
 		getContentPane().add(btnStartScanning);
 
+		JButton btnStopScanning = new JButton("Stop scanning");
+		btnStopScanning.addActionListener(guiCtrl);
+		btnStopScanning.setToolTipText("Cancels the running scan. Images that are already done are kept, the rest is picked up by the next scan.");
+		btnStopScanning.setBounds(9, 135, 145, 25);
+		btnStopScanning.setFont(new Font("Tahoma", Font.PLAIN, 14));
+		getContentPane().add(btnStopScanning);
+
+		JCheckBox chckbxWatch = new JCheckBox("Keep watching");
+		chckbxWatch.setName("watchMode");
+		chckbxWatch.addItemListener(guiCtrl);
+		chckbxWatch.setSelected(guiCtrl.getConfig().curConfig.watchMode);
+		chckbxWatch.setToolTipText("After the scan, new, changed and deleted images in the directory are picked up within seconds. Uncheck to stop.");
+		chckbxWatch.setBounds(162, 64, 120, 20);
+		getContentPane().add(chckbxWatch);
+
 		JLabel lblTypeThePath = new JLabel("Type a path or click the \"Browse...\" button below.");
 		lblTypeThePath.setBounds(12, 0, 334, 30);
 		lblTypeThePath.setForeground(new Color(255, 255, 255));
@@ -94,7 +126,8 @@ public class GUIView extends JFrame {
 		dirPathTF.setText(System.getProperty("user.home") + "\\Pictures"); // preset the tf to something nice
 		dirPathTF.setColumns(10);
 
-		listLog = new JList<String>(logger.guiLogStream);
+		listLog = new JList<String>(guiCtrl.getLogModel());
+		listLog.setFixedCellHeight(16); // don't measure the height of every single line
 		listLog.setCursor(Cursor.getPredefinedCursor(Cursor.CROSSHAIR_CURSOR));
 		listLog.setFont(new Font("Monospaced", Font.PLAIN, 12));
 		JScrollPane scrollPane = new JScrollPane(listLog);
@@ -116,6 +149,18 @@ public class GUIView extends JFrame {
 		getContentPane().add(panel_2);
 		panel_2.setLayout(null);
 		
+		statsTA = new JTextArea("No scan running.");
+		statsTA.setEditable(false);
+		statsTA.setFont(new Font("Monospaced", Font.PLAIN, 11));
+		JScrollPane statsScrollPane = new JScrollPane(statsTA);
+		statsScrollPane.setBounds(611, 0, 355, 234);
+		statsScrollPane.setBorder(new TitledBorder(UIManager.getBorder("TitledBorder.border"), "Scan statistics", TitledBorder.LEADING, TitledBorder.TOP, null, new Color(211, 211, 211)));
+		getContentPane().add(statsScrollPane);
+
+		// pull the metrics instead of pushing every update from the workers
+		Timer statsTimer = new Timer(STATS_REFRESH_MS, e -> refreshStats());
+		statsTimer.start();
+
 		JTabbedPane tabbedPane = new JTabbedPane(JTabbedPane.TOP);
 		tabbedPane.setBounds(406, 0, 195, 234);
 		getContentPane().add(tabbedPane);
@@ -164,10 +209,52 @@ public class GUIView extends JFrame {
 		spinner.setModel(new SpinnerNumberModel(guiCtrl.getConfig().curConfig.critConf, 0, 100, 1));
 		spinner.setName("critConf");
 		spinner.addChangeListener(guiCtrl);
-		spinner.setToolTipText("You will get a warning if the confidence level of an image is below this value. 100 is maximum and 0 minimum.");
+		spinner.setToolTipText("You will get a warning if the confidence level of an image is below this value. 100 is maximum and 0 minimum. With adaptive filters, images below it are read again with more expensive filters.");
 		spinner.setBounds(112, 67, 73, 20);
 		panel_1.add(spinner);
 		
+		JLabel lblScanThreads = new JLabel("Scan threads:");
+		lblScanThreads.setFont(new Font("Tahoma", Font.BOLD, 11));
+		lblScanThreads.setBounds(4, 99, 100, 14);
+		panel_1.add(lblScanThreads);
+		
+		JSpinner spinnerThreads = new JSpinner();
+		spinnerThreads.setModel(new SpinnerNumberModel(guiCtrl.getConfig().curConfig.scanThreads, 1, 256, 1));
+		spinnerThreads.setName("scanThreads");
+		spinnerThreads.addChangeListener(guiCtrl);
+		spinnerThreads.setToolTipText("How many images are OCR'd in parallel. Every thread loads its own copy of the language models.");
+		spinnerThreads.setBounds(112, 96, 73, 20);
+		panel_1.add(spinnerThreads);
+		
+		JLabel lblOcrTimeout = new JLabel("OCR timeout (s):");
+		lblOcrTimeout.setFont(new Font("Tahoma", Font.BOLD, 11));
+		lblOcrTimeout.setBounds(4, 128, 100, 14);
+		panel_1.add(lblOcrTimeout);
+		
+		JSpinner spinnerTimeout = new JSpinner();
+		spinnerTimeout.setModel(new SpinnerNumberModel(guiCtrl.getConfig().curConfig.ocrTimeout, 0, 3600, 10));
+		spinnerTimeout.setName("ocrTimeout");
+		spinnerTimeout.addChangeListener(guiCtrl);
+		spinnerTimeout.setToolTipText("An image taking longer is given up and quarantined, it is only read again once the file changes. 0 means no limit.");
+		spinnerTimeout.setBounds(112, 125, 73, 20);
+		panel_1.add(spinnerTimeout);
+		
+		JCheckBox chckbxAdaptive = new JCheckBox("Adaptive filters");
+		chckbxAdaptive.addItemListener(guiCtrl);
+		chckbxAdaptive.setName("flAdaptive");
+		chckbxAdaptive.setSelected(guiCtrl.getConfig().curConfig.flAdaptive);
+		chckbxAdaptive.setToolTipText("Ignores the pre-processing check boxes. Starts with cheap filters and only tries more expensive ones while the confidence stays below the crit. confidence.");
+		chckbxAdaptive.setBounds(4, 151, 180, 23);
+		panel_1.add(chckbxAdaptive);
+		
+		JCheckBox chckbxLangRouting = new JCheckBox("Language routing");
+		chckbxLangRouting.addItemListener(guiCtrl);
+		chckbxLangRouting.setName("langRouting");
+		chckbxLangRouting.setSelected(guiCtrl.getConfig().curConfig.langRouting);
+		chckbxLangRouting.setToolTipText("Reads images only with the languages found in their directory instead of all of them, several times faster. Images that don't fit are read again.");
+		chckbxLangRouting.setBounds(4, 177, 180, 23);
+		panel_1.add(chckbxLangRouting);
+		
 		JPanel panel_3 = new JPanel();
 		tabbedPane.addTab("Pre-processing", null, panel_3, null);
 		panel_3.setLayout(null);
@@ -220,6 +307,14 @@ public class GUIView extends JFrame {
 		chckbxContrast.setBounds(6, 161, 128, 23);
 		panel_3.add(chckbxContrast);
 		
+		JCheckBox chckbxTextRegions = new JCheckBox("Text regions only");
+		chckbxTextRegions.addItemListener(guiCtrl);
+		chckbxTextRegions.setName("flTextRegions");
+		chckbxTextRegions.setSelected(guiCtrl.getConfig().curConfig.flTextRegions);
+		chckbxTextRegions.setToolTipText("Looks for lines of text first and only reads those. Much faster on photos, but may miss text with a busy background.");
+		chckbxTextRegions.setBounds(6, 187, 148, 23);
+		panel_3.add(chckbxTextRegions);
+		
 		JLabel lblPreprocessingFilters = new JLabel("Pre-processing filters");
 		lblPreprocessingFilters.setFont(new Font("Tahoma", Font.BOLD, 12));
 		lblPreprocessingFilters.setBounds(10, 10, 144, 14);
@@ -248,6 +343,100 @@ public class GUIView extends JFrame {
 		chckbxAutoscroll.setSelected(guiCtrl.getConfig().curConfig.logAutoScroll);
 		chckbxAutoscroll.setBounds(0, 4, 89, 16);
 		panel_4.add(chckbxAutoscroll);
+
+		initializeResults();
+	}
+
+	private void initializeResults() {
+		JPanel panel_5 = new JPanel();
+		panel_5.setBounds(0, 502, 973, 305);
+		panel_5.setBackground(Color.DARK_GRAY);
+		panel_5.setBorder(new TitledBorder(UIManager.getBorder("TitledBorder.border"), "Search results", TitledBorder.LEADING, TitledBorder.TOP, null, new Color(211, 211, 211)));
+		panel_5.setLayout(null);
+		getContentPane().add(panel_5);
+
+		searchTF = new JTextField();
+		searchTF.setActionCommand("Search"); // enter searches as well
+		searchTF.addActionListener(guiCtrl);
+		searchTF.setToolTipText("Words, \"exact phrases\", prefix* and AND / OR / NOT with (brackets). Words default to AND.");
+		searchTF.setBounds(9, 20, 500, 24);
+		panel_5.add(searchTF);
+
+		JButton btnSearch = new JButton("Search");
+		btnSearch.addActionListener(guiCtrl);
+		btnSearch.setBounds(517, 20, 95, 24);
+		btnSearch.setFont(new Font("Tahoma", Font.PLAIN, 14));
+		panel_5.add(btnSearch);
+
+		lblResultCount = new JLabel();
+		lblResultCount.setForeground(new Color(255, 255, 255));
+		lblResultCount.setBounds(622, 20, 340, 24);
+		panel_5.add(lblResultCount);
+
+		resultTable = new JTable(guiCtrl.getResultModel());
+		resultTable.setRowHeight(ThumbnailLoader.THUMB_SIZE + 4);
+		resultTable.setFillsViewportHeight(true);
+		resultTable.setToolTipText("Double-click to open the image.");
+		resultTable.getColumnModel().getColumn(ResultTableModel.COL_THUMB).setMaxWidth(ThumbnailLoader.THUMB_SIZE + 8);
+		resultTable.getColumnModel().getColumn(1).setPreferredWidth(160);
+		resultTable.getColumnModel().getColumn(2).setMaxWidth(50);
+		resultTable.getColumnModel().getColumn(3).setPreferredWidth(420);
+		resultTable.getColumnModel().getColumn(4).setPreferredWidth(260);
+		resultTable.addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseClicked(MouseEvent e) {
+				int row = resultTable.rowAtPoint(e.getPoint());
+				if(e.getClickCount() == 2 && row >= 0)
+					guiCtrl.openResult(resultTable.convertRowIndexToModel(row));
+			}
+		});
+		resultScrollPane = new JScrollPane(resultTable);
+		resultScrollPane.setBounds(9, 52, 955, 245);
+		resultScrollPane.getVerticalScrollBar().addAdjustmentListener(new AdjustmentListener() {
+			@Override
+			public void adjustmentValueChanged(AdjustmentEvent e) {
+				updateVisibleResults();
+			}
+		});
+		panel_5.add(resultScrollPane);
+
+		guiCtrl.getThumbnails().setOnLoaded(resultTable::repaint);
+	}
+
+	// tells the thumbnail loader which rows are on screen and fetches the next page when the end comes close
+	public void updateVisibleResults() {
+		ResultTableModel model = guiCtrl.getResultModel();
+		int rows = model.getRowCount();
+		Rectangle view = resultScrollPane.getViewport().getViewRect(); // also right after rows were added, before the table is laid out again
+		int first = view.y / resultTable.getRowHeight();
+		int last = Math.min((view.y + view.height) / resultTable.getRowHeight(), rows - 1);
+
+		Set<String> visible = new HashSet<String>();
+		for(int i = first; i <= last; i++)
+			visible.add(model.getHit(i).absPath);
+		guiCtrl.getThumbnails().setVisible(visible);
+
+		if(last >= rows - PREFETCH_ROWS)
+			guiCtrl.loadMoreResults();
+	}
+
+	public void setResultCount(int loaded, int total) {
+		if(total < 0)
+			lblResultCount.setText(loaded == 0 ? "Searching..." : loaded + " hits loaded, counting...");
+		else if(total == 0)
+			lblResultCount.setText("No hits.");
+		else
+			lblResultCount.setText(loaded + " of " + total + " hits loaded");
+	}
+
+	private void refreshStats() {
+		List<String> lines = guiCtrl.getScanSummary();
+		if(lines.isEmpty())
+			return;
+
+		String text = String.join("\n", lines);
+		if(!text.equals(statsTA.getText()))
+			statsTA.setText(text);
 	}
 
 	private void setUpLookAndFeel() {
@@ -0,0 +1,66 @@
+package gutzufusss.gui;
+
+import java.util.List;
+
+import javax.swing.AbstractListModel;
+
+// list model for the log view that only keeps the newest lines, old ones fall out of the ring buffer
+@SuppressWarnings("serial")
+public class LogListModel extends AbstractListModel<String> {
+	private String[] ring;
+	private int head = 0; // index of the oldest line
+	private int size = 0;
+
+	public LogListModel(int capacity) {
+		ring = new String[Math.max(capacity, 1)];
+	}
+
+	@Override
+	public int getSize() { return size; }
+
+	@Override
+	public String getElementAt(int index) { return ring[(head + index) % ring.length]; }
+
+	// has to be called on the EDT, fires one event for the removed and one for the added lines
+	public void addAll(List<String> lines) {
+		int start = Math.max(lines.size() - ring.length, 0); // a batch bigger than the buffer only keeps its tail
+		int added = lines.size() - start;
+		if(added == 0)
+			return;
+
+		int overflow = Math.max(size + added - ring.length, 0);
+		if(overflow > 0) {
+			head = (head + overflow) % ring.length;
+			size -= overflow;
+			fireIntervalRemoved(this, 0, overflow - 1);
+		}
+
+		for(int i = start; i < lines.size(); i++) {
+			ring[(head + size) % ring.length] = lines.get(i);
+			size++;
+		}
+		fireIntervalAdded(this, size - added, size - 1);
+	}
+
+	public void setCapacity(int capacity) {
+		capacity = Math.max(capacity, 1);
+		if(capacity == ring.length)
+			return;
+
+		int keep = Math.min(size, capacity);
+		String[] newRing = new String[capacity];
+		for(int i = 0; i < keep; i++)
+			newRing[i] = getElementAt(size - keep + i);
+
+		int oldSize = size;
+		ring = newRing;
+		head = 0;
+		size = keep;
+		if(oldSize > keep)
+			fireIntervalRemoved(this, 0, oldSize - keep - 1);
+		if(keep > 0)
+			fireContentsChanged(this, 0, keep - 1);
+	}
+
+	public int getCapacity() { return ring.length; }
+}
@@ -0,0 +1,81 @@
+package gutzufusss.gui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.ImageIcon;
+import javax.swing.table.AbstractTableModel;
+
+import gutzufusss.ImageDBController.SearchHit;
+
+// search hits that have been loaded so far, the next page is appended once the user scrolls near the end
+@SuppressWarnings("serial")
+public class ResultTableModel extends AbstractTableModel {
+	public static final int COL_THUMB = 0;
+	public static final String[] COLUMNS = {"", "Name", "Conf.", "Text", "Path"};
+
+	private final List<SearchHit> hits = new ArrayList<SearchHit>();
+	private boolean hasMore = false;
+	private ThumbnailLoader thumbnails;
+
+	public ResultTableModel(ThumbnailLoader thumbnails) {
+		this.thumbnails = thumbnails;
+	}
+
+	@Override
+	public int getRowCount() { return hits.size(); }
+
+	@Override
+	public int getColumnCount() { return COLUMNS.length; }
+
+	@Override
+	public String getColumnName(int col) { return COLUMNS[col]; }
+
+	@Override
+	public Class<?> getColumnClass(int col) {
+		switch(col) {
+		case COL_THUMB:	return ImageIcon.class;
+		case 2:			return Integer.class;
+		default:		return String.class;
+		}
+	}
+
+	// only called for rows that are painted, so only visible rows ask for their thumbnail
+	@Override
+	public Object getValueAt(int row, int col) {
+		SearchHit hit = hits.get(row);
+		switch(col) {
+		case COL_THUMB:	return thumbnails.get(hit.absPath);
+		case 1:			return hit.name;
+		case 2:			return hit.confidence;
+		case 3:			return hit.snippet;
+		default:		return hit.absPath;
+		}
+	}
+
+	// has to be called on the EDT
+	public void clear() {
+		int size = hits.size();
+		hits.clear();
+		hasMore = false;
+		if(size > 0)
+			fireTableRowsDeleted(0, size - 1);
+	}
+
+	// has to be called on the EDT
+	public void addPage(List<SearchHit> page, boolean more) {
+		hasMore = more;
+		if(page.isEmpty())
+			return;
+
+		int first = hits.size();
+		hits.addAll(page);
+		fireTableRowsInserted(first, hits.size() - 1);
+	}
+
+	public SearchHit getHit(int row) { return hits.get(row); }
+
+	public SearchHit getLastHit() { return hits.isEmpty() ? null : hits.get(hits.size() - 1); }
+
+	public boolean hasMore() { return hasMore; }
+}
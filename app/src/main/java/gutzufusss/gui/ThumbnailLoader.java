@@ -0,0 +1,125 @@
+package gutzufusss.gui;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
+
+import gutzufusss.util.ImageDecoder;
+import gutzufusss.util.Logger;
+
+// decodes thumbnails on background threads, only for rows that are still visible when their turn comes
+public class ThumbnailLoader {
+	public static final int THUMB_SIZE = 48;
+	public static final int THREADS = 2;
+	public static final int CACHE_ENTRIES = 512;	// ~9 MiB of argb thumbnails at most, the gc may drop them earlier
+
+	private static final ImageIcon FAILED = new ImageIcon(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB)); // not an image, don't try again
+
+	private Logger logger;
+	private ImageDecoder decoder;
+	private ThreadPoolExecutor executor;
+	private final Map<String, SoftReference<ImageIcon>> cache = new LinkedHashMap<String, SoftReference<ImageIcon>>(64, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, SoftReference<ImageIcon>> eldest) { return size() > CACHE_ENTRIES; }
+	};
+	private final Set<String> pending = new HashSet<String>();
+	private volatile Set<String> visible = Collections.emptySet();
+	private Runnable onLoaded;
+
+	public ThumbnailLoader(Logger logger) {
+		this.logger = logger;
+		decoder = new ImageDecoder(logger, null); // no opencv just for previews
+		AtomicInteger n = new AtomicInteger();
+
+		// newest request first, those are the rows on screen right now
+		executor = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingDeque<Runnable>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public boolean offer(Runnable r) { return offerFirst(r); }
+		}, r -> {
+			Thread t = new Thread(r, "thumbnail-" + n.incrementAndGet());
+			t.setDaemon(true);
+			t.setPriority(Thread.MIN_PRIORITY);
+			return t;
+		});
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	// called by the renderer on the EDT, null while the thumbnail is loading or if the file can't be read
+	public ImageIcon get(String path) {
+		synchronized(cache) {
+			SoftReference<ImageIcon> ref = cache.get(path);
+			ImageIcon icon = ref != null ? ref.get() : null;
+			if(icon != null)
+				return icon != FAILED ? icon : null;
+			if(!pending.add(path))
+				return null;
+		}
+
+		executor.execute(() -> load(path));
+		return null;
+	}
+
+	// the paths of the rows on screen, everything else is skipped when its turn comes
+	public void setVisible(Set<String> paths) { visible = paths; }
+
+	// runs on the EDT whenever thumbnails are ready
+	public void setOnLoaded(Runnable r) { onLoaded = r; }
+
+	private void load(String path) {
+		if(!visible.contains(path)) { // scrolled past already, asked for again when it is painted again
+			synchronized(cache) {
+				pending.remove(path);
+			}
+			return;
+		}
+
+		ImageIcon icon = FAILED;
+		try {
+			BufferedImage img = decoder.decode(new File(path), THUMB_SIZE, false);
+			if(img != null)
+				icon = new ImageIcon(scale(img));
+		} catch(IOException | RuntimeException e) {
+			logger.log(Logger.LVL_DEBUG, "No thumbnail for " + path + ": " + e.getMessage());
+		}
+
+		synchronized(cache) {
+			cache.put(path, new SoftReference<ImageIcon>(icon));
+			pending.remove(path);
+		}
+		if(onLoaded != null)
+			SwingUtilities.invokeLater(onLoaded);
+	}
+
+	private static BufferedImage scale(BufferedImage img) {
+		double f = Math.min((double)THUMB_SIZE / img.getWidth(), (double)THUMB_SIZE / img.getHeight());
+		int w = Math.max((int)Math.round(img.getWidth() * f), 1);
+		int h = Math.max((int)Math.round(img.getHeight() * f), 1);
+
+		BufferedImage thumb = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = thumb.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.drawImage(img, 0, 0, w, h, null);
+		g.dispose();
+
+		return thumb;
+	}
+}
@@ -0,0 +1,160 @@
+package gutzufusss.scan;
+
+import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import gutzufusss.util.Logger;
+
+// walks a directory tree and streams every image straight into the scan engine while walking
+public class DirectoryWalker extends SimpleFileVisitor<Path> {
+	private Logger logger;
+	private ScanEngine engine;
+	private String[] extensions;
+	private List<PathMatcher> excludes = new ArrayList<PathMatcher>();
+
+	private Path root;
+	private int maxDepth;
+	private boolean followLinks;
+	private int found = 0;
+	private boolean interrupted = false;
+	private Consumer<Path> dirListener = null;
+
+	public DirectoryWalker(Logger logger, ScanEngine engine, String[] allowedExtensions, String excludeGlobs) {
+		this.logger = logger;
+		this.engine = engine;
+
+		extensions = new String[allowedExtensions.length];
+		for(int i = 0; i < allowedExtensions.length; i++)
+			extensions[i] = "." + allowedExtensions[i].toLowerCase(Locale.ROOT);
+
+		// comma separated, e.g. "**/thumbs/**, *.tmp.png"
+		if(excludeGlobs != null)
+			for(String glob : excludeGlobs.split(","))
+				if(!glob.trim().isEmpty())
+					excludes.add(FileSystems.getDefault().getPathMatcher("glob:" + glob.trim()));
+	}
+
+	// returns the number of images that were handed to the engine
+	public int walk(Path root, int maxDepth, boolean followLinks) throws IOException, InterruptedException {
+		this.root = root;
+		this.maxDepth = maxDepth;
+		this.followLinks = followLinks;
+
+		logger.log(Logger.LVL_DEBUG, "Walking '" + root + "', max depth: " + maxDepth + ", following links: " + followLinks + ", excludes: " + excludes.size());
+		return walkSubtree(root);
+	}
+
+	// walks a directory below the root of the last walk() with the same settings, e.g. one that was created later on
+	public int walkSubtree(Path dir) throws IOException, InterruptedException {
+		int depth = dir.equals(root) ? 0 : root.relativize(dir).getNameCount();
+		if(maxDepth > 0 && depth >= maxDepth)
+			return 0;
+		if(!dir.equals(root) && isExcluded(dir))
+			return 0;
+
+		Set<FileVisitOption> options = followLinks ? EnumSet.of(FileVisitOption.FOLLOW_LINKS) : EnumSet.noneOf(FileVisitOption.class);
+		int before = found;
+		Files.walkFileTree(dir, options, maxDepth <= 0 ? Integer.MAX_VALUE : maxDepth - depth, this);
+		if(interrupted)
+			throw new InterruptedException("Interrupted while walking " + dir);
+
+		return found - before;
+	}
+
+	// hands a single file to the engine if a walk would have, returns false if it was filtered out
+	public boolean submitFile(Path file) throws InterruptedException {
+		if(!Files.isRegularFile(file) || !hasAllowedExtension(file) || isExcluded(file))
+			return false;
+
+		if(!engine.submit(new ScanJob(file.toFile()))) // attributes are read by the decode stage
+			return false;
+		found++;
+
+		return true;
+	}
+
+	// called for every directory that is walked, e.g. to watch it for changes
+	public void setDirectoryListener(Consumer<Path> l) { dirListener = l; }
+
+	public Path getRoot() { return root; }
+
+	@Override
+	public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+		if(!dir.equals(root) && isExcluded(dir)) {
+			logger.log(Logger.LVL_DEBUG, "Skipping excluded directory '" + dir + "'.");
+			return FileVisitResult.SKIP_SUBTREE;
+		}
+
+		if(dirListener != null)
+			dirListener.accept(dir);
+
+		return FileVisitResult.CONTINUE;
+	}
+
+	@Override
+	public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+		if(!attrs.isRegularFile() || !hasAllowedExtension(file) || isExcluded(file))
+			return FileVisitResult.CONTINUE;
+
+		// the walker already did the stat call, the decode stage doesn't have to repeat it
+		ScanJob job = new ScanJob(file.toFile());
+		job.fileSize = attrs.size();
+		job.lastModified = attrs.lastModifiedTime().toMillis();
+		job.attrsKnown = true;
+
+		try {
+			if(!engine.submit(job))
+				return FileVisitResult.TERMINATE;
+		} catch(InterruptedException e) {
+			interrupted = true;
+			return FileVisitResult.TERMINATE;
+		}
+		found++;
+
+		return FileVisitResult.CONTINUE;
+	}
+
+	@Override
+	public FileVisitResult visitFileFailed(Path file, IOException e) {
+		if(e instanceof FileSystemLoopException)
+			logger.log(Logger.LVL_WARN, "Symbolic link loop at '" + file + "', not following it.");
+		else
+			logger.log(Logger.LVL_WARN, "I/O error: Could not read '" + file + "': " + e.getMessage());
+
+		return FileVisitResult.CONTINUE;
+	}
+
+	private boolean hasAllowedExtension(Path file) {
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		for(String ext : extensions)
+			if(name.endsWith(ext))
+				return true;
+		return false;
+	}
+
+	// globs are matched against the path relative to the scanned directory as well as the plain name
+	private boolean isExcluded(Path p) {
+		if(excludes.isEmpty())
+			return false;
+
+		Path rel = root.relativize(p);
+		for(PathMatcher m : excludes)
+			if(m.matches(rel) || m.matches(p.getFileName()))
+				return true;
+		return false;
+	}
+}
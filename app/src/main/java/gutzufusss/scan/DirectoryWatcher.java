@@ -0,0 +1,142 @@
+package gutzufusss.scan;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import gutzufusss.util.Logger;
+
+// keeps a scanned directory tree in sync: new and changed images go into the engine, deleted ones to the delete listener
+public class DirectoryWatcher {
+	public static final long DEBOUNCE_MS	= 1000;		// a copy or save fires several events, the file is only handled once they stop
+	public static final long POLL_MS		= 200;
+
+	private Logger logger;
+	private DirectoryWalker walker;
+	private Consumer<Path> deleteListener;
+	private WatchService service;
+	private Map<WatchKey, Path> keys = new HashMap<WatchKey, Path>();
+	private Set<Path> watchedDirs = new HashSet<Path>();
+	private Map<Path, Long> pending = new HashMap<Path, Long>(); // path -> time of its last event
+	private boolean overflow = false;
+	private volatile boolean running = true;
+
+	// every directory the walker visits from now on is watched, so create this before the initial walk
+	public DirectoryWatcher(Logger logger, DirectoryWalker walker, Consumer<Path> deleteListener) throws IOException {
+		this.logger = logger;
+		this.walker = walker;
+		this.deleteListener = deleteListener;
+
+		service = FileSystems.getDefault().newWatchService();
+		walker.setDirectoryListener(this::register);
+	}
+
+	// blocks until stop() is called
+	public void run() throws InterruptedException {
+		logger.log(Logger.LVL_INFO, "Watching " + watchedDirs.size() + " directories below '" + walker.getRoot() + "' for changes.");
+
+		try {
+			while(running) {
+				WatchKey key = service.poll(POLL_MS, TimeUnit.MILLISECONDS);
+				if(key != null)
+					collectEvents(key);
+				handleDueEvents();
+			}
+		} catch(ClosedWatchServiceException e) {
+			// closed from the outside, nothing left to watch
+		}
+	}
+
+	public void stop() { running = false; }
+
+	public void close() {
+		stop();
+		try {
+			service.close();
+		} catch(IOException e) {
+			logger.log(Logger.LVL_WARN, "I/O error: " + e.getMessage());
+		}
+	}
+
+	private void register(Path dir) {
+		if(watchedDirs.contains(dir))
+			return;
+
+		try {
+			keys.put(dir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), dir);
+			watchedDirs.add(dir);
+		} catch(IOException e) {
+			logger.log(Logger.LVL_WARN, "I/O error: Could not watch '" + dir + "': " + e.getMessage());
+		}
+	}
+
+	private void collectEvents(WatchKey key) {
+		Path dir = keys.get(key);
+		long now = System.currentTimeMillis();
+		for(WatchEvent<?> e : key.pollEvents()) {
+			if(e.kind() == StandardWatchEventKinds.OVERFLOW) {
+				overflow = true;
+				continue;
+			}
+			pending.put(dir.resolve((Path)e.context()), now);
+		}
+
+		if(!key.reset()) { // the directory itself is gone
+			keys.remove(key);
+			watchedDirs.remove(dir);
+		}
+	}
+
+	private void handleDueEvents() throws InterruptedException {
+		if(overflow) {
+			// events were lost, unchanged files are skipped by the decode stage anyways (deleted ones stay in the db though)
+			logger.log(Logger.LVL_WARN, "Too many file system events at once, rescanning '" + walker.getRoot() + "'.");
+			overflow = false;
+			pending.clear();
+			walkDir(walker.getRoot());
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+		Iterator<Map.Entry<Path, Long>> it = pending.entrySet().iterator();
+		while(it.hasNext()) {
+			Map.Entry<Path, Long> e = it.next();
+			if(now - e.getValue() < DEBOUNCE_MS)
+				continue;
+			it.remove();
+
+			Path p = e.getKey();
+			if(Files.isDirectory(p)) {
+				if(!watchedDirs.contains(p)) // created or moved in, modify events of known directories are just their content
+					walkDir(p);
+			} else if(Files.exists(p)) {
+				if(walker.submitFile(p))
+					logger.log(Logger.LVL_DEBUG, "'" + p + "' changed, queued it.");
+			} else {
+				deleteListener.accept(p);
+			}
+		}
+	}
+
+	private void walkDir(Path dir) throws InterruptedException {
+		try {
+			int found = walker.walkSubtree(dir);
+			logger.log(Logger.LVL_DEBUG, "Walked '" + dir + "', queued " + found + " images.");
+		} catch(IOException e) {
+			logger.log(Logger.LVL_WARN, "I/O error: Could not walk '" + dir + "': " + e.getMessage());
+		}
+	}
+}
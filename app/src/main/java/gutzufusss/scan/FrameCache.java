@@ -0,0 +1,259 @@
+package gutzufusss.scan;
+
+import java.awt.Rectangle;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import gutzufusss.util.Logger;
+
+// pre-processed frames on disk, keyed by the image content and everything that produced them, the least recently used ones go first
+public class FrameCache {
+	public static final String DIR = "cache/frames";
+	public static final String EXT = ".frame";
+	private static final int MAGIC = 0x49464652;	// "IFFR"
+	private static final int VERSION = 2;
+
+	// an intermediate result of the pre-processing, 8 bit gray or bgr
+	public static class Frame {
+		public final int width;
+		public final int height;
+		public final int channels;
+		public final int passes;				// filter passes the pixels went through, 0 = just scaled (and cropped)
+		public final long perceptualHash;		// of the decoded image, so a cached image doesn't have to be decoded at all
+		public final List<Rectangle> regions;	// text regions of the cropped image, null = the whole image
+		public final Rectangle extent;			// see ScanJob.extent
+		public final byte[] pixels;
+
+		public Frame(int width, int height, int channels, int passes, long perceptualHash, List<Rectangle> regions, Rectangle extent, byte[] pixels) {
+			this.width = width;
+			this.height = height;
+			this.channels = channels;
+			this.passes = passes;
+			this.perceptualHash = perceptualHash;
+			this.regions = regions;
+			this.extent = extent;
+			this.pixels = pixels;
+		}
+	}
+
+	private Logger logger;
+	private final Path dir;
+	private final long maxBytes;
+	private final Map<String, Long> index = new LinkedHashMap<String, Long>(256, 0.75f, true); // file name -> size, least recently used first
+	private long totalBytes = 0;
+
+	// the files' modification times are the lru order, so it survives restarts
+	public FrameCache(Logger logger, Path dir, long maxBytes) throws IOException {
+		this.logger = logger;
+		this.dir = dir;
+		this.maxBytes = maxBytes;
+		Files.createDirectories(dir);
+
+		List<Path> files = new ArrayList<Path>();
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for(Path p : stream) {
+				if(p.getFileName().toString().endsWith(EXT))
+					files.add(p);
+				else
+					Files.deleteIfExists(p); // leftovers of an interrupted write
+			}
+		}
+		files.sort((a, b) -> Long.compare(a.toFile().lastModified(), b.toFile().lastModified()));
+		for(Path p : files) {
+			long size = Files.size(p);
+			index.put(p.getFileName().toString(), size);
+			totalBytes += size;
+		}
+		synchronized(index) {
+			evict();
+		}
+
+		logger.log(Logger.LVL_DEBUG, "Frame cache '" + dir + "': " + index.size() + " frames, " + (totalBytes >> 20) + " of " + (maxBytes >> 20) + " MiB.");
+	}
+
+	// signatures[n] identifies the frame after n filter passes (null = not worth caching), the furthest one found wins
+	public Frame load(String contentHash, String[] signatures) {
+		for(int n = signatures.length - 1; n >= 0; n--) {
+			if(signatures[n] == null)
+				continue;
+
+			String name = fileName(contentHash, signatures[n]);
+			synchronized(index) {
+				if(index.get(name) == null)
+					continue;
+			}
+
+			Path file = dir.resolve(name);
+			try {
+				Frame frame = read(file, signatures[n], n);
+				Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+				return frame;
+			} catch(IOException e) {
+				logger.log(Logger.LVL_DEBUG, "Dropping cached frame '" + file + "': " + e.getMessage());
+				remove(name);
+			}
+		}
+
+		return null;
+	}
+
+	public void store(String contentHash, String signature, Frame frame) {
+		String name = fileName(contentHash, signature);
+		synchronized(index) {
+			if(index.containsKey(name))
+				return;
+		}
+
+		Path file = dir.resolve(name);
+		Path tmp = dir.resolve(name + "." + Thread.currentThread().getId() + ".tmp");
+		try {
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeUTF(signature); // the file name is only a hash of it
+				out.writeInt(frame.passes);
+				out.writeInt(frame.width);
+				out.writeInt(frame.height);
+				out.writeInt(frame.channels);
+				out.writeLong(frame.perceptualHash);
+				out.writeInt(frame.regions != null ? frame.regions.size() : -1);
+				if(frame.regions != null)
+					for(Rectangle r : frame.regions) {
+						out.writeInt(r.x);
+						out.writeInt(r.y);
+						out.writeInt(r.width);
+						out.writeInt(r.height);
+					}
+				out.writeInt(frame.extent.x);
+				out.writeInt(frame.extent.y);
+				out.writeInt(frame.extent.width);
+				out.writeInt(frame.extent.height);
+				out.flush();
+
+				// scans are mostly text on a flat background, even the fastest level shrinks them a lot
+				Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+				try {
+					DeflaterOutputStream z = new DeflaterOutputStream(out, deflater, 64 * 1024);
+					z.write(frame.pixels);
+					z.finish();
+				} finally {
+					deflater.end();
+				}
+			}
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			long size = Files.size(file);
+			synchronized(index) {
+				Long old = index.put(name, size);
+				totalBytes += size - (old != null ? old : 0);
+				evict();
+			}
+		} catch(IOException e) {
+			logger.log(Logger.LVL_WARN, "Could not write cached frame '" + file + "': " + e.getMessage());
+			try {
+				Files.deleteIfExists(tmp);
+			} catch(IOException ignored) {
+				// cleaned up on the next start
+			}
+		}
+	}
+
+	public int getFrameCount() {
+		synchronized(index) {
+			return index.size();
+		}
+	}
+
+	public long getBytes() {
+		synchronized(index) {
+			return totalBytes;
+		}
+	}
+
+	private Frame read(Path file, String signature, int passes) throws IOException {
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+			if(in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException("not a frame of this version");
+			if(!in.readUTF().equals(signature) || in.readInt() != passes)
+				throw new IOException("hash collision");
+
+			int width = in.readInt();
+			int height = in.readInt();
+			int channels = in.readInt();
+			long phash = in.readLong();
+			int count = in.readInt();
+			List<Rectangle> regions = null;
+			if(count >= 0) {
+				regions = new ArrayList<Rectangle>(count);
+				for(int i = 0; i < count; i++)
+					regions.add(new Rectangle(in.readInt(), in.readInt(), in.readInt(), in.readInt()));
+			}
+			Rectangle extent = new Rectangle(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+
+			byte[] pixels = new byte[width * height * channels];
+			new DataInputStream(new InflaterInputStream(in)).readFully(pixels);
+
+			return new Frame(width, height, channels, passes, phash, regions, extent, pixels);
+		}
+	}
+
+	private void remove(String name) {
+		synchronized(index) {
+			Long size = index.remove(name);
+			if(size != null)
+				totalBytes -= size;
+		}
+		try {
+			Files.deleteIfExists(dir.resolve(name));
+		} catch(IOException e) {
+			logger.log(Logger.LVL_DEBUG, "Could not delete cached frame '" + name + "': " + e.getMessage());
+		}
+	}
+
+	// has to hold the index lock
+	private void evict() {
+		Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+		while(totalBytes > maxBytes && it.hasNext()) {
+			Map.Entry<String, Long> e = it.next();
+			try {
+				Files.deleteIfExists(dir.resolve(e.getKey()));
+			} catch(IOException ex) {
+				logger.log(Logger.LVL_DEBUG, "Could not delete cached frame '" + e.getKey() + "': " + ex.getMessage());
+			}
+			totalBytes -= e.getValue();
+			it.remove();
+		}
+	}
+
+	private static String fileName(String contentHash, String signature) {
+		try {
+			byte[] d = MessageDigest.getInstance("SHA-1").digest(signature.getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder(contentHash).append('-');
+			for(int i = 0; i < 8; i++)
+				sb.append(String.format("%02x", d[i]));
+
+			return sb.append(EXT).toString();
+		} catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // every jre has sha-1
+		}
+	}
+}
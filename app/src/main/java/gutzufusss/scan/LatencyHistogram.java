@@ -0,0 +1,56 @@
+package gutzufusss.scan;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// lock free histogram with four buckets per power of two (microseconds), precise enough for percentiles (~20%)
+public class LatencyHistogram {
+	private static final int BUCKETS_PER_OCTAVE = 4;
+	private static final int NUM_BUCKETS = BUCKETS_PER_OCTAVE * 40;
+
+	private AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+	private AtomicLong count = new AtomicLong();
+	private AtomicLong sumNanos = new AtomicLong();
+	private AtomicLong maxNanos = new AtomicLong();
+
+	public void record(long nanos) {
+		long micros = Math.max(nanos / 1000, 1);
+		int idx = (int)Math.min(Math.floor(BUCKETS_PER_OCTAVE * Math.log(micros) / Math.log(2)), NUM_BUCKETS - 1);
+		buckets.incrementAndGet(idx);
+		count.incrementAndGet();
+		sumNanos.addAndGet(nanos);
+
+		long max;
+		while(nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)); // racy max, retry until we win or lose
+	}
+
+	// upper bound of the bucket that contains the p-th percentile, in ms
+	public double getPercentileMs(double p) {
+		long total = count.get();
+		if(total == 0)
+			return 0;
+
+		long target = (long)Math.ceil(p * total);
+		long seen = 0;
+		for(int i = 0; i < NUM_BUCKETS; i++) {
+			seen += buckets.get(i);
+			if(seen >= target)
+				return Math.min(Math.pow(2, (i + 1) / (double)BUCKETS_PER_OCTAVE) / 1000, getMaxMs());
+		}
+
+		return getMaxMs();
+	}
+
+	public long getCount() { return count.get(); }
+
+	public double getMeanMs() { return count.get() == 0 ? 0 : sumNanos.get() / 1e6 / count.get(); }
+
+	public double getTotalSeconds() { return sumNanos.get() / 1e9; }
+
+	public double getMaxMs() { return maxNanos.get() / 1e6; }
+
+	public String getSummary() {
+		return String.format("n=%d mean=%.1fms p50=%.1fms p95=%.1fms p99=%.1fms max=%.1fms",
+				getCount(), getMeanMs(), getPercentileMs(0.5), getPercentileMs(0.95), getPercentileMs(0.99), getMaxMs());
+	}
+}
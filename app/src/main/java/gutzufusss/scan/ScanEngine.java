@@ -0,0 +1,126 @@
+package gutzufusss.scan;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import gutzufusss.util.Logger;
+
+// chains the scan stages (decode -> pre-process -> ocr -> persist) through bounded queues
+public class ScanEngine {
+	public static final int STATS_INTERVAL_MS = 5000;
+
+	private Logger logger;
+	private List<ScanStage> stages = new ArrayList<ScanStage>();
+	private Thread statsThread;
+	private ScanMetrics metrics;
+
+	public ScanEngine(Logger logger) {
+		this.logger = logger;
+		metrics = new ScanMetrics(logger);
+		metrics.setEngine(this);
+	}
+
+	public ScanStage addStage(String name, int numThreads, StageWorker.Factory factory) {
+		ScanStage stage = new ScanStage(name, numThreads, factory, logger, metrics);
+		if(!stages.isEmpty())
+			stages.get(stages.size() - 1).setNext(stage);
+		stages.add(stage);
+
+		return stage;
+	}
+
+	public void start() {
+		// start from the back so no stage ever waits on a consumer that does not exist yet
+		for(int i = stages.size() - 1; i >= 0; i--)
+			stages.get(i).start();
+		metrics.registerMBean();
+
+		statsThread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					while(true) {
+						Thread.sleep(STATS_INTERVAL_MS);
+						logStats(Logger.LVL_DEBUG);
+					}
+				} catch(InterruptedException e) {
+					// scan is done
+				}
+			}
+		}, "scan-stats");
+		statsThread.setDaemon(true);
+		statsThread.start();
+	}
+
+	// blocks while the first stage is saturated
+	public boolean submit(File img) throws InterruptedException {
+		return submit(new ScanJob(img));
+	}
+
+	public boolean submit(ScanJob job) throws InterruptedException {
+		return stages.get(0).put(job);
+	}
+
+	// lets every stage drain its queue in order and waits until all workers are cleaned up
+	public void finish() throws InterruptedException {
+		stages.get(0).finishInput();
+		for(ScanStage stage : stages)
+			stage.awaitTermination();
+		statsThread.interrupt();
+		metrics.stop();
+	}
+
+	// drops everything that is still queued and stops the workers after their current image
+	// the last stage is not cut off, it writes the results that are already finished and stops after the stages before it
+	public void shutdownNow() {
+		try {
+			for(int i = 0; i < stages.size() - 1; i++)
+				stages.get(i).cancel();
+			for(ScanStage stage : stages)
+				stage.awaitTermination();
+		} catch(InterruptedException e) {
+			// asked to stop once more, nothing is waited for anymore
+			for(ScanStage stage : stages)
+				stage.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		if(statsThread != null)
+			statsThread.interrupt();
+		metrics.stop();
+	}
+
+	public void logStats(int lvl) {
+		for(ScanStage stage : stages)
+			logger.log(lvl, stage.getStatsString());
+	}
+
+	public void logProgress() {
+		for(ScanStage stage : stages)
+			for(ScanWorker w : stage.getWorkers())
+				logger.log(Logger.LVL_DEBUG, w.getProgressString());
+		logStats(Logger.LVL_INFO);
+
+		for(String line : metrics.getSummaryLines())
+			logger.log(Logger.LVL_INFO, line);
+	}
+
+	// START_MISC_FUNCTIONS
+	public List<ScanStage> getStages() { return stages; }
+
+	public ScanMetrics getMetrics() { return metrics; }
+
+	public ScanStage getStage(String name) {
+		for(ScanStage stage : stages)
+			if(stage.getName().equals(name))
+				return stage;
+		return null;
+	}
+
+	public int getFailedCount() {
+		int sum = 0;
+		for(ScanStage stage : stages)
+			sum += stage.getFailedCount();
+		return sum;
+	}
+	// END_MISC_FUNCTIONS
+}
@@ -0,0 +1,38 @@
+package gutzufusss.scan;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.List;
+
+// one image travelling through the scan pipeline, every stage fills in its part
+public class ScanJob {
+	public final File file;
+
+	public long fileSize;			// fingerprint of the file, used to skip it on the next scan
+	public long lastModified;
+	public String contentHash;
+	public boolean attrsKnown;		// size and mtime were already read during discovery
+	public long perceptualHash;		// dHash of the decoded image
+
+	public String duplicateOf;		// path of a near-identical image whose result was copied, no ocr needed
+
+	public BufferedImage img;		// decoded (and later pre-processed) image
+	public FrameCache.Frame frame;	// instead of img if the frame cache had this image, possibly already partly filtered
+	public String[] frameKeys;		// frame cache signatures after 0..n filter passes, null = not cached
+	public List<Rectangle> regions;	// text lines that are recognized, null = the whole image
+	public int regionOffset;		// the filters' border, regions are moved by it
+	public Rectangle extent;		// crop offset and size of the whole scaled image, maps the ocr's boxes back to the image
+	public BufferedImage source;	// adaptive mode: the image before the filters, more expensive ones may start over from it
+	public String result;			// text that was found in the image
+	public byte[] words;			// every word with its box and confidence, packed by WordBoxes
+	public int conf;				// mean confidence of the ocr
+
+	public long processingNanos;	// time spent in all stages so far
+
+	public ScanJob(File file) {
+		this.file = file;
+	}
+
+	public String getPath() { return file.getAbsolutePath(); }
+}
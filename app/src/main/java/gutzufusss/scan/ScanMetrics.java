@@ -0,0 +1,222 @@
+package gutzufusss.scan;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import gutzufusss.util.Logger;
+
+// timings and counters of a single scan, shared by all stages
+public class ScanMetrics implements ScanMetricsMBean {
+	public static final String JMX_NAME = "gutzufusss:type=ScanMetrics";
+	public static final int NUM_SLOWEST = 10;			// how many of the slowest images are remembered
+	public static final long SLOW_IMAGE_MS = 10000;		// images taking longer than this are logged right away
+
+	// an image and how long it spent being processed in all stages
+	private static class ImageTiming implements Comparable<ImageTiming> {
+		final String path;
+		final long nanos;
+
+		ImageTiming(String path, long nanos) {
+			this.path = path;
+			this.nanos = nanos;
+		}
+
+		@Override
+		public int compareTo(ImageTiming o) { return Long.compare(nanos, o.nanos); }
+	}
+
+	private Logger logger;
+	private ScanEngine engine;
+	private Map<String, LatencyHistogram> timers = new ConcurrentSkipListMap<String, LatencyHistogram>(); // sorted, for readable output
+	private AtomicLong processed = new AtomicLong();
+	private AtomicLong skipped = new AtomicLong();
+	private AtomicLong deduplicated = new AtomicLong();
+	private AtomicLong escalated = new AtomicLong();
+	private AtomicLong extraPasses = new AtomicLong();
+	private AtomicLong rerouted = new AtomicLong();
+	private AtomicLong frameHits = new AtomicLong();
+	private AtomicLong frameMisses = new AtomicLong();
+	private AtomicLong failed = new AtomicLong();
+	private AtomicLong bytes = new AtomicLong();
+	private PriorityQueue<ImageTiming> slowest = new PriorityQueue<ImageTiming>(); // min heap, the head is the fastest of the slow ones
+	private long startNanos = System.nanoTime();
+	private volatile long stopNanos = 0;
+
+	public ScanMetrics(Logger logger) {
+		this.logger = logger;
+	}
+
+	public void record(String timer, long nanos) {
+		LatencyHistogram h = timers.get(timer);
+		if(h == null) {
+			timers.putIfAbsent(timer, new LatencyHistogram());
+			h = timers.get(timer);
+		}
+		h.record(nanos);
+	}
+
+	public void imageDone(ScanJob job) {
+		processed.incrementAndGet();
+
+		long ms = job.processingNanos / 1000000;
+		if(ms >= SLOW_IMAGE_MS)
+			logger.log(Logger.LVL_WARN, "'" + job.getPath() + "' took " + ms + "ms to process.");
+
+		synchronized(slowest) {
+			if(slowest.size() < NUM_SLOWEST || job.processingNanos > slowest.peek().nanos) {
+				slowest.add(new ImageTiming(job.getPath(), job.processingNanos));
+				if(slowest.size() > NUM_SLOWEST)
+					slowest.poll();
+			}
+		}
+	}
+
+	public void imageSkipped() { skipped.incrementAndGet(); }
+
+	// counts towards the processed images as well, imageDone() is still called for it
+	public void imageDeduplicated() { deduplicated.incrementAndGet(); }
+
+	// the adaptive mode needed more expensive filters for an image
+	public void imageEscalated(int passes) {
+		escalated.incrementAndGet();
+		extraPasses.addAndGet(passes);
+	}
+
+	// the languages guessed for an image were wrong, it was read again with the detected ones
+	public void imageRerouted() { rerouted.incrementAndGet(); }
+
+	public void frameCacheHit() { frameHits.incrementAndGet(); }
+
+	public void frameCacheMiss() { frameMisses.incrementAndGet(); }
+
+	public void imageFailed() { failed.incrementAndGet(); }
+
+	public void addBytes(long n) { bytes.addAndGet(n); }
+
+	public void stop() { stopNanos = System.nanoTime(); }
+
+	public List<String> getSummaryLines() {
+		List<String> lines = new ArrayList<String>();
+		lines.add(String.format("Images: %d done (%d duplicates), %d skipped, %d failed | %.2f img/s, %.2f MB/s, %.0fs",
+				getImagesProcessed(), getImagesDeduplicated(), getImagesSkipped(), getImagesFailed(), getImagesPerSecond(), getBytesPerSecond() / (1024 * 1024), getElapsedSeconds()));
+
+		StringBuilder queues = new StringBuilder("Queues:");
+		for(String q : getQueueDepths())
+			queues.append(' ').append(q);
+		lines.add(queues.toString());
+		if(getImagesEscalated() > 0)
+			lines.add(String.format("Adaptive filters: %d images needed %d extra OCR passes", getImagesEscalated(), getExtraOcrPasses()));
+		if(getImagesRerouted() > 0)
+			lines.add(String.format("Language routing: %d images read again with other languages", getImagesRerouted()));
+		if(getFrameCacheHits() + getFrameCacheMisses() > 0)
+			lines.add(String.format("Frame cache: %d hits, %d misses", getFrameCacheHits(), getFrameCacheMisses()));
+
+		for(String l : getLatencies())
+			lines.add(l);
+
+		String[] slow = getSlowestImages();
+		for(int i = 0; i < Math.min(slow.length, 3); i++)
+			lines.add("Slow: " + slow[i]);
+
+		return lines;
+	}
+
+	// makes the metrics visible via jmx, replaces the ones of the previous scan
+	public void registerMBean() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(JMX_NAME);
+			if(server.isRegistered(name))
+				server.unregisterMBean(name);
+			server.registerMBean(this, name);
+		} catch(Exception e) {
+			logger.log(Logger.LVL_WARN, "Could not register scan metrics via JMX: " + e.getMessage());
+		}
+	}
+
+	// START_MISC_FUNCTIONS
+	void setEngine(ScanEngine engine) { this.engine = engine; }
+
+	public double getElapsedSeconds() {
+		long end = stopNanos != 0 ? stopNanos : System.nanoTime();
+		return Math.max(end - startNanos, 1) / 1e9;
+	}
+
+	public LatencyHistogram getTimer(String name) { return timers.get(name); }
+
+	@Override
+	public long getImagesProcessed() { return processed.get(); }
+
+	@Override
+	public long getImagesSkipped() { return skipped.get(); }
+
+	@Override
+	public long getImagesDeduplicated() { return deduplicated.get(); }
+
+	@Override
+	public long getImagesEscalated() { return escalated.get(); }
+
+	@Override
+	public long getExtraOcrPasses() { return extraPasses.get(); }
+
+	@Override
+	public long getImagesRerouted() { return rerouted.get(); }
+
+	@Override
+	public long getFrameCacheHits() { return frameHits.get(); }
+
+	@Override
+	public long getFrameCacheMisses() { return frameMisses.get(); }
+
+	@Override
+	public long getImagesFailed() { return failed.get(); }
+
+	@Override
+	public double getImagesPerSecond() { return processed.get() / getElapsedSeconds(); }
+
+	@Override
+	public double getBytesPerSecond() { return bytes.get() / getElapsedSeconds(); }
+
+	@Override
+	public String[] getQueueDepths() {
+		if(engine == null)
+			return new String[0];
+
+		List<ScanStage> stages = engine.getStages();
+		String[] depths = new String[stages.size()];
+		for(int i = 0; i < depths.length; i++)
+			depths[i] = stages.get(i).getName() + " " + stages.get(i).getQueueDepth() + "/" + stages.get(i).getQueueCapacity();
+		return depths;
+	}
+
+	@Override
+	public String[] getLatencies() {
+		List<String> lines = new ArrayList<String>();
+		for(Map.Entry<String, LatencyHistogram> e : timers.entrySet())
+			lines.add(String.format("%-18s %s", e.getKey(), e.getValue().getSummary()));
+		return lines.toArray(new String[lines.size()]);
+	}
+
+	@Override
+	public String[] getSlowestImages() {
+		List<ImageTiming> sorted;
+		synchronized(slowest) {
+			sorted = new ArrayList<ImageTiming>(slowest);
+		}
+		sorted.sort((a, b) -> b.compareTo(a));
+
+		String[] result = new String[sorted.size()];
+		for(int i = 0; i < result.length; i++)
+			result[i] = String.format("%.1fs %s", sorted.get(i).nanos / 1e9, sorted.get(i).path);
+		return result;
+	}
+	// END_MISC_FUNCTIONS
+}
@@ -0,0 +1,32 @@
+package gutzufusss.scan;
+
+// what jconsole & co. get to see of the current scan
+public interface ScanMetricsMBean {
+	long getImagesProcessed();
+
+	long getImagesSkipped();
+
+	long getImagesDeduplicated();
+
+	long getImagesEscalated();
+
+	long getExtraOcrPasses();
+
+	long getImagesRerouted();
+
+	long getFrameCacheHits();
+
+	long getFrameCacheMisses();
+
+	long getImagesFailed();
+
+	double getImagesPerSecond();
+
+	double getBytesPerSecond();
+
+	String[] getQueueDepths();
+
+	String[] getLatencies();
+
+	String[] getSlowestImages();
+}
@@ -0,0 +1,165 @@
+package gutzufusss.scan;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import gutzufusss.util.Logger;
+
+// a single step of the scan pipeline: a bounded input queue drained by its own pool of threads
+public class ScanStage {
+	public static final int QUEUE_SLOTS_PER_WORKER = 4; // how many jobs may wait per thread before the previous stage blocks
+	static final ScanJob POISON = new ScanJob(null); // tells a worker that there is nothing left to do
+
+	private String name;
+	private Logger logger;
+	private BlockingQueue<ScanJob> queue;
+	private ScanWorker[] workers;
+	private Thread[] threads;
+	private ScanStage next;
+	private ScanMetrics metrics;
+
+	private AtomicInteger aliveWorkers = new AtomicInteger();
+	private AtomicLong busyNanos = new AtomicLong();
+	private long startNanos;
+	private volatile long stopNanos = 0;
+
+	ScanStage(String name, int numThreads, StageWorker.Factory factory, Logger logger, ScanMetrics metrics) {
+		this.name = name;
+		this.logger = logger;
+		this.metrics = metrics;
+		if(numThreads <= 0)
+			numThreads = 1;
+
+		queue = new ArrayBlockingQueue<ScanJob>(numThreads * QUEUE_SLOTS_PER_WORKER);
+		workers = new ScanWorker[numThreads];
+		threads = new Thread[numThreads];
+		for(int i = 0; i < numThreads; i++)
+			workers[i] = new ScanWorker(i, logger, this, factory);
+	}
+
+	void start() {
+		startNanos = System.nanoTime();
+		aliveWorkers.set(workers.length);
+		for(int i = 0; i < workers.length; i++) {
+			threads[i] = new Thread(workers[i], name + "-" + i);
+			threads[i].start();
+		}
+
+		logger.log(Logger.LVL_DEBUG, "Started stage '" + name + "' with " + workers.length + " threads, queue capacity: " + queue.remainingCapacity());
+	}
+
+	// blocks while the queue is full so the previous stage can never run away from this one
+	boolean put(ScanJob job) throws InterruptedException {
+		while(!queue.offer(job, 100, TimeUnit.MILLISECONDS)) {
+			if(aliveWorkers.get() == 0) {
+				logger.log(Logger.LVL_ERROR, "Stage '" + name + "' has no threads left, dropping '" + job.getPath() + "'.");
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	// no more input will arrive, the workers stop once the queue is drained
+	void finishInput() throws InterruptedException {
+		for(int i = 0; i < workers.length; i++) {
+			while(!queue.offer(POISON, 100, TimeUnit.MILLISECONDS)) {
+				if(aliveWorkers.get() == 0)
+					return;
+			}
+		}
+	}
+
+	void awaitTermination() throws InterruptedException {
+		for(Thread t : threads)
+			if(t != null)
+				t.join();
+	}
+
+	// drops the queued jobs, the workers finish the one they are on and stop
+	void cancel() throws InterruptedException {
+		queue.clear();
+		finishInput();
+	}
+
+	void shutdownNow() {
+		queue.clear();
+		for(Thread t : threads)
+			if(t != null)
+				t.interrupt();
+	}
+
+	// called by every worker on exit, the last one passes the end of input on to the next stage
+	void workerStopped() {
+		if(aliveWorkers.decrementAndGet() != 0)
+			return;
+
+		stopNanos = System.nanoTime();
+		if(next != null) {
+			try {
+				next.finishInput();
+			} catch(InterruptedException e) {
+				next.shutdownNow();
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	void jobProcessed(ScanJob job, long nanos) {
+		busyNanos.addAndGet(nanos);
+		job.processingNanos += nanos;
+		metrics.record(name, nanos);
+	}
+
+	void jobFailed(ScanJob job) { metrics.imageFailed(); }
+
+	public String getStatsString() {
+		return String.format("Stage '%s': %d done, %d failed, queue %d/%d, %.1f img/s, %.0f%% busy",
+				name, getProcessedCount(), getFailedCount(), getQueueDepth(), getQueueCapacity(), getThroughput(), getUtilization() * 100);
+	}
+
+	// START_MISC_FUNCTIONS
+	void setNext(ScanStage next) { this.next = next; }
+
+	ScanStage getNext() { return next; }
+
+	BlockingQueue<ScanJob> getQueue() { return queue; }
+
+	public String getName() { return name; }
+
+	public ScanWorker[] getWorkers() { return workers; }
+
+	public int getQueueDepth() { return queue.size(); }
+
+	public int getQueueCapacity() { return queue.size() + queue.remainingCapacity(); }
+
+	public int getAliveWorkers() { return aliveWorkers.get(); }
+
+	public double getElapsedSeconds() {
+		long end = stopNanos != 0 ? stopNanos : System.nanoTime();
+		return Math.max(end - startNanos, 1) / 1e9;
+	}
+
+	public double getThroughput() { return getProcessedCount() / getElapsedSeconds(); }
+
+	// share of the available thread time this stage actually spent working, close to 1 means bottleneck
+	public double getUtilization() { return busyNanos.get() / 1e9 / (getElapsedSeconds() * workers.length); }
+
+	public int getProcessedCount() {
+		int sum = 0;
+		for(ScanWorker w : workers)
+			sum += w.getProcessed();
+		return sum;
+	}
+
+	public int getFailedCount() {
+		int sum = 0;
+		for(ScanWorker w : workers)
+			sum += w.getFailed();
+		return sum;
+	}
+	// END_MISC_FUNCTIONS
+}
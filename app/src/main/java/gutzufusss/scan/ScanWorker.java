@@ -0,0 +1,94 @@
+package gutzufusss.scan;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gutzufusss.util.Logger;
+
+public class ScanWorker implements Runnable {
+	public static final long IDLE_POLL_MS = 500;
+
+	private int id;
+	private Logger logger;
+	private ScanStage stage;
+	private StageWorker.Factory factory;
+
+	private AtomicInteger processed = new AtomicInteger();
+	private AtomicInteger failed = new AtomicInteger();
+	private volatile String currentImg = null;
+
+	ScanWorker(int id, Logger logger, ScanStage stage, StageWorker.Factory factory) {
+		this.id = id;
+		this.logger = logger;
+		this.stage = stage;
+		this.factory = factory;
+	}
+
+	@Override
+	public void run() {
+		// every thread gets its own worker, e.g. tesseract instances are not thread safe
+		StageWorker worker;
+		try {
+			worker = factory.create();
+		} catch(Exception e) {
+			logger.log(Logger.LVL_ERROR, "Worker " + getName() + " could not be initialized, shutting it down: " + e.getMessage());
+			stage.workerStopped();
+			return;
+		}
+
+		try {
+			while(true) {
+				ScanJob job = stage.getQueue().poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+				if(job == null) {
+					idle(worker);
+					continue;
+				}
+				if(job == ScanStage.POISON)
+					break;
+
+				currentImg = job.getPath();
+				boolean passOn = false;
+				long start = System.nanoTime();
+				try {
+					passOn = worker.process(job);
+					processed.incrementAndGet();
+				} catch(Exception e) {
+					failed.incrementAndGet();
+					stage.jobFailed(job);
+					logger.log(Logger.LVL_ERROR, "Worker " + getName() + " failed on '" + currentImg + "': " + e);
+				}
+				stage.jobProcessed(job, System.nanoTime() - start);
+				currentImg = null;
+
+				if(passOn && stage.getNext() != null)
+					stage.getNext().put(job);
+			}
+		} catch(InterruptedException e) {
+			logger.log(Logger.LVL_DEBUG, "Worker " + getName() + " was interrupted.");
+		} finally {
+			worker.close(); // clean up
+			stage.workerStopped();
+		}
+	}
+
+	private void idle(StageWorker worker) {
+		try {
+			worker.idle();
+		} catch(Exception e) {
+			logger.log(Logger.LVL_ERROR, "Worker " + getName() + " failed while idling: " + e);
+		}
+	}
+
+	public String getProgressString() {
+		String cur = currentImg;
+		return "Worker " + getName() + ": " + processed.get() + " done, " + failed.get() + " failed" + (cur != null ? ", working on '" + cur + "'" : "") + ".";
+	}
+
+	public String getName() { return stage.getName() + "-" + id; }
+
+	public int getProcessed() { return processed.get(); }
+
+	public int getFailed() { return failed.get(); }
+
+	public String getCurrentImg() { return currentImg; }
+}
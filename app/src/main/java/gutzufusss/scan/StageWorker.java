@@ -0,0 +1,16 @@
+package gutzufusss.scan;
+
+// does the actual work of a pipeline stage, every stage thread gets its own instance
+public interface StageWorker {
+	// returns false if the job should not be handed to the next stage
+	boolean process(ScanJob job) throws Exception;
+
+	// called whenever the stage's queue stayed empty for a while
+	default void idle() throws Exception {}
+
+	default void close() {}
+
+	interface Factory {
+		StageWorker create() throws Exception;
+	}
+}
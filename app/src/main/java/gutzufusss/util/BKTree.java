@@ -0,0 +1,144 @@
+package gutzufusss.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+// burkhard-keller tree over 64 bit hashes, finds everything within a hamming distance without comparing against all entries
+// every value has at most one hash, adding it again replaces the old one
+public class BKTree<V> {
+	public static class Match<V> {
+		public final long	hash;
+		public final V		value;
+		public final int	distance;
+
+		Match(long hash, V value, int distance) {
+			this.hash = hash;
+			this.value = value;
+			this.distance = distance;
+		}
+	}
+
+	private static class Node<V> {
+		final long hash;
+		final V value;
+		Map<Integer, Node<V>> children = null; // keyed by the distance to this node, most nodes are leaves
+		boolean removed = false;				// nodes can't be taken out without rebuilding their subtree, they are only skipped
+
+		Node(long hash, V value) {
+			this.hash = hash;
+			this.value = value;
+		}
+	}
+
+	private Node<V> root = null;
+	private final Map<V, Node<V>> nodes = new HashMap<V, Node<V>>();	// the live node of every value
+	private int removed = 0;
+
+	public synchronized void add(long hash, V value) {
+		Node<V> old = nodes.get(value);
+		if(old != null) {
+			if(old.hash == hash)
+				return;
+			markRemoved(old);
+		}
+
+		Node<V> added = new Node<V>(hash, value);
+		nodes.put(value, added);
+		insert(added);
+		compactIfNeeded();
+	}
+
+	public synchronized void remove(V value) {
+		Node<V> node = nodes.remove(value);
+		if(node != null) {
+			markRemoved(node);
+			compactIfNeeded();
+		}
+	}
+
+	// e.g. every path below a deleted directory
+	public synchronized void removeIf(Predicate<V> filter) {
+		Iterator<Map.Entry<V, Node<V>>> it = nodes.entrySet().iterator();
+		while(it.hasNext()) {
+			Map.Entry<V, Node<V>> e = it.next();
+			if(filter.test(e.getKey())) {
+				markRemoved(e.getValue());
+				it.remove();
+			}
+		}
+		compactIfNeeded();
+	}
+
+	// all entries within maxDist of hash, closest first
+	public synchronized List<Match<V>> search(long hash, int maxDist) {
+		List<Match<V>> matches = new ArrayList<Match<V>>();
+		if(root == null)
+			return matches;
+
+		Deque<Node<V>> todo = new ArrayDeque<Node<V>>();
+		todo.push(root);
+		while(!todo.isEmpty()) {
+			Node<V> node = todo.pop();
+			int d = PerceptualHash.distance(hash, node.hash);
+			if(d <= maxDist && !node.removed)
+				matches.add(new Match<V>(node.hash, node.value, d));
+			if(node.children == null)
+				continue;
+
+			// triangle inequality: only subtrees in [d - maxDist, d + maxDist] can contain matches
+			for(Map.Entry<Integer, Node<V>> e : node.children.entrySet())
+				if(Math.abs(e.getKey() - d) <= maxDist)
+					todo.push(e.getValue());
+		}
+
+		matches.sort((a, b) -> Integer.compare(a.distance, b.distance));
+		return matches;
+	}
+
+	public synchronized int size() { return nodes.size(); }
+
+	private void insert(Node<V> added) {
+		if(root == null) {
+			root = added;
+			return;
+		}
+
+		Node<V> node = root;
+		while(true) {
+			int d = PerceptualHash.distance(added.hash, node.hash);
+			if(node.children == null)
+				node.children = new HashMap<Integer, Node<V>>(4);
+
+			Node<V> child = node.children.get(d);
+			if(child == null) {
+				node.children.put(d, added);
+				return;
+			}
+			node = child;
+		}
+	}
+
+	private void markRemoved(Node<V> node) {
+		node.removed = true;
+		removed++;
+	}
+
+	// once most nodes are dead ones the tree is built again from the live ones
+	private void compactIfNeeded() {
+		if(removed <= nodes.size())
+			return;
+
+		root = null;
+		removed = 0;
+		for(Node<V> node : nodes.values()) {
+			node.children = null;
+			insert(node);
+		}
+	}
+}
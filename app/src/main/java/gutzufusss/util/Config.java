@@ -0,0 +1,114 @@
+package gutzufusss.util;
+
+import gutzufusss.ConfigDBController;
+
+public class Config {
+	/* ################ config variables ################ */
+	public class ConfigVariables {
+		public String		configName;
+		public boolean		debug;
+		public int			logLevel;
+		public boolean			logAutoScroll;
+		public boolean		logAsync;
+		public boolean		logCaller;
+		public int			logViewCapacity;
+		public int			critConf;
+		public int			minWordConf;
+		public int			scanThreads;
+		public int			decodeThreads;
+		public int			preprocessThreads;
+		public int			ocrTimeout;
+		public String		languages;
+		public boolean		langRouting;
+		public int			scanMaxDepth;
+		public boolean		followSymlinks;
+		public String		excludeGlobs;
+		public int			dedupDistance;
+		public boolean		watchMode;
+		public int			maxImgDimension;
+		public int			textLineHeight;
+		public String		filterPipeline;
+		public String		adaptivePipelines;
+		public int			frameCacheMB;
+
+		public boolean		flGrayscale;
+		public boolean		flBinary;
+		public boolean		flSmooth;
+		public boolean		flBorder;
+		public boolean		flSWT;
+		public boolean		flContrast;
+		public boolean		flTextRegions;
+		public boolean		flAdaptive;
+	}
+	public ConfigVariables curConfig = new ConfigVariables(); // live vars
+	public ConfigVariables defConfig = new ConfigVariables(); // default vars
+	/* ################ config variables ################ */
+
+	private Logger logger;
+	private ConfigDBController configDB;
+
+	public Config(Logger logger) {
+		this.logger = logger;
+		configDB = new ConfigDBController(this);
+		
+		setDefaultConf();
+		curConfig = defConfig; // until the stored one is loaded
+	}
+	
+	public ConfigDBController getConfigDB() { return configDB; }
+	
+	public void setDefaultConf () {
+		defConfig.configName	= "default_config";
+		defConfig.debug			= /*false*/true;
+		defConfig.logLevel		= Logger./*LVL_INFO*/LVL_DEBUG;
+		defConfig.logAutoScroll = true;
+		defConfig.logAsync		= true;
+		defConfig.logCaller		= true; // costs a stack walk per message
+		defConfig.logViewCapacity = 5000;
+		defConfig.critConf		= 55;
+		defConfig.minWordConf	= 0; // words below it are not searchable, but are still stored with their boxes
+		defConfig.scanThreads	= Runtime.getRuntime().availableProcessors();
+		defConfig.decodeThreads	= 2;
+		defConfig.preprocessThreads = Math.max(Runtime.getRuntime().availableProcessors() / 2, 1);
+		defConfig.ocrTimeout	= 120; // s per image, 0 = no limit
+		defConfig.languages		= "eng+deu+ita+spa"; // every image is read with all of them unless langRouting picks fewer
+		defConfig.langRouting	= true;
+		defConfig.scanMaxDepth	= 0; // unlimited
+		defConfig.followSymlinks = false;
+		defConfig.excludeGlobs	= ""; // e.g. ".*, **/thumbnails/**"
+		defConfig.dedupDistance	= -1; // of 64 bits, -1 = ocr every image; the hash only sees the layout, so e.g. forms of one template look alike
+		defConfig.watchMode		= false;
+		defConfig.maxImgDimension = 2000; // px of the longer side, 0 = keep the original size
+		defConfig.textLineHeight = 32; // px, 0 = don't normalize
+		defConfig.filterPipeline = ""; // e.g. "grayscale, binary(threshold=140), smooth(diameter=16)", empty = the fl* flags below
+		defConfig.adaptivePipelines = ""; // cheapest first, separated by |, empty = FilterPipeline.DEFAULT_LADDER
+		defConfig.frameCacheMB	= 0; // pre-processed frames kept on disk for rescans with other filters, 0 = off
+
+		defConfig.flGrayscale	= true;
+		defConfig.flBinary		= false;
+		defConfig.flSmooth		= true;
+		defConfig.flBorder		= true;
+		defConfig.flSWT			= false;
+		defConfig.flContrast	= false;
+		defConfig.flTextRegions	= false;
+		defConfig.flAdaptive	= false; // cheap filters first, more expensive ones only below critConf
+	}
+
+	// needs the config table, so this happens after the database checks
+	public void load() {
+		ConfigVariables stored = new ConfigVariables();
+		if(configDB.loadConfig(defConfig.configName, stored)) {
+			curConfig = stored;
+			return;
+		}
+
+		logger.log(Logger.LVL_WARN, "Could not load configuration, using standard values.");
+
+		curConfig = defConfig;
+	}
+
+	// the live settings become the stored ones, so they survive a restart
+	public void save() {
+		configDB.saveConfig(curConfig);
+	}
+}
@@ -0,0 +1,219 @@
+package gutzufusss.util;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.highgui.Highgui;
+
+// decodes images with a bounded size: the header is read first and huge images are subsampled while decoding
+// formats without an ImageIO reader go through opencv, which can only decode the full resolution: those are refused above
+// MAX_FALLBACK_BYTES of file or MAX_FALLBACK_PIXELS, so one of them peaks at the file plus twice 3 * 64 MP (opencv's and the java copy)
+// (the pixel count is read from the tiff, webp and pnm headers, other formats are only limited by their file size)
+public class ImageDecoder {
+	public static final int SUBSAMPLE_HEADROOM = 2;	// decode up to this times the target size, the rest is resized with proper filtering later on
+	public static final long MAX_FALLBACK_BYTES = 128L * 1024 * 1024;
+	public static final long MAX_FALLBACK_PIXELS = 64L * 1000 * 1000;
+
+	// the image would need too much memory to be decoded, it will never work so it shouldn't be tried again
+	public static class TooLargeException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		public TooLargeException(String message) { super(message); }
+	}
+
+	private Logger logger;
+	private ImageManipulation imgManipulator;		// for the opencv fallback, may be null
+
+	public ImageDecoder(Logger logger, ImageManipulation imgManipulator) {
+		this.logger = logger;
+		this.imgManipulator = imgManipulator;
+	}
+
+	// source is a File or an InputStream, maxDim <= 0 decodes the full resolution, returns null if the format is unknown
+	public BufferedImage decode(Object source, int maxDim, boolean gray) throws IOException {
+		try(ImageInputStream in = ImageIO.createImageInputStream(source)) {
+			Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+			if(readers == null || !readers.hasNext())
+				return null;
+
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(in, true, true); // only the first frame, no metadata
+				int w = reader.getWidth(0);
+				int h = reader.getHeight(0);
+
+				ImageReadParam param = reader.getDefaultReadParam();
+				int sub = maxDim > 0 ? Math.max(Math.max(w, h) / (SUBSAMPLE_HEADROOM * maxDim), 1) : 1;
+				if(sub > 1) {
+					param.setSourceSubsampling(sub, sub, 0, 0);
+					logger.log(Logger.LVL_DEBUG, "Image is " + w + "x" + h + ", decoding every " + sub + ". pixel.");
+				}
+
+				// let the reader write straight into the layout the filters use, saves a copy
+				ImageTypeSpecifier type = findType(reader, gray ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_3BYTE_BGR);
+				if(type == null && gray)
+					type = findType(reader, BufferedImage.TYPE_3BYTE_BGR);
+				if(type != null)
+					param.setDestinationType(type);
+
+				BufferedImage img = reader.read(0, param);
+				return gray ? toGray(img) : img;
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	// for formats without an ImageIO reader (tiff, webp, pnm before java 9), always decodes the full resolution
+	public BufferedImage decodeWithOpenCV(Path file, boolean gray) throws IOException {
+		long size = Files.size(file);
+		if(size > MAX_FALLBACK_BYTES)
+			throw new TooLargeException("The file has " + (size >> 20) + " MiB, more than the " + (MAX_FALLBACK_BYTES >> 20) + " MiB that are decoded without an ImageIO reader");
+
+		return decodeWithOpenCV(Files.readAllBytes(file), gray);
+	}
+
+	public BufferedImage decodeWithOpenCV(byte[] data, boolean gray) throws TooLargeException {
+		if(imgManipulator == null)
+			return null;
+
+		int[] dim = readDimensions(data);
+		if(dim != null && (long)dim[0] * dim[1] > MAX_FALLBACK_PIXELS)
+			throw new TooLargeException("The image is " + dim[0] + "x" + dim[1] + ", more than the " + (MAX_FALLBACK_PIXELS / 1000000) + " MP that are decoded without an ImageIO reader");
+
+		MatOfByte buf = new MatOfByte(data);
+		Mat mat = Highgui.imdecode(buf, gray ? Highgui.CV_LOAD_IMAGE_GRAYSCALE : Highgui.CV_LOAD_IMAGE_COLOR);
+		buf.release();
+		if(mat == null || mat.empty())
+			return null;
+
+		BufferedImage img = imgManipulator.toImg(mat);
+		mat.release();
+
+		return img;
+	}
+
+	// width and height from the header of a tiff, webp or pnm file, null for other formats or broken headers
+	static int[] readDimensions(byte[] d) {
+		try {
+			if(d.length >= 8 && ((d[0] == 'I' && d[1] == 'I') || (d[0] == 'M' && d[1] == 'M')))
+				return tiffDimensions(d, d[0] == 'I');
+			if(d.length >= 30 && ascii(d, 0, 4).equals("RIFF") && ascii(d, 8, 4).equals("WEBP"))
+				return webpDimensions(d);
+			if(d.length >= 2 && d[0] == 'P' && d[1] >= '1' && d[1] <= '6')
+				return pnmDimensions(d);
+		} catch(ArrayIndexOutOfBoundsException | NumberFormatException e) {
+			// cut off header, opencv will fail on it anyways
+		}
+
+		return null;
+	}
+
+	// the first directory's ImageWidth (256) and ImageLength (257) tags
+	private static int[] tiffDimensions(byte[] d, boolean le) {
+		if(uint(d, 2, 2, le) != 42) // 43 is bigtiff, which opencv 2.4 can't read
+			return null;
+
+		int ifd = (int)uint(d, 4, 4, le);
+		int count = (int)uint(d, ifd, 2, le);
+		int w = -1, h = -1;
+		for(int i = 0, e = ifd + 2; i < count; i++, e += 12) {
+			int tag = (int)uint(d, e, 2, le);
+			if(tag != 256 && tag != 257)
+				continue;
+
+			long v = uint(d, e + 2, 2, le) == 3 ? uint(d, e + 8, 2, le) : uint(d, e + 8, 4, le); // SHORT or LONG
+			if(tag == 256)
+				w = (int)v;
+			else
+				h = (int)v;
+		}
+
+		return w > 0 && h > 0 ? new int[] {w, h} : null;
+	}
+
+	private static int[] webpDimensions(byte[] d) {
+		switch(ascii(d, 12, 4)) {
+		case "VP8 ": // lossy, 14 bit sizes after the key frame start code
+			return new int[] {(int)uint(d, 26, 2, true) & 0x3fff, (int)uint(d, 28, 2, true) & 0x3fff};
+		case "VP8L": // lossless, 14 bit sizes - 1 after the signature byte
+			long bits = uint(d, 21, 4, true);
+			return new int[] {(int)(bits & 0x3fff) + 1, (int)((bits >> 14) & 0x3fff) + 1};
+		case "VP8X": // extended, 24 bit canvas sizes - 1
+			return new int[] {(int)uint(d, 24, 3, true) + 1, (int)uint(d, 27, 3, true) + 1};
+		default:
+			return null;
+		}
+	}
+
+	// "P6 <width> <height> ...", whitespace and # comments in between
+	private static int[] pnmDimensions(byte[] d) {
+		int[] dim = new int[2];
+		int pos = 2;
+		for(int i = 0; i < 2; i++) {
+			while(pos < d.length && (Character.isWhitespace(d[pos]) || d[pos] == '#'))
+				if(d[pos] == '#')
+					while(pos < d.length && d[pos] != '\n')
+						pos++;
+				else
+					pos++;
+
+			int start = pos;
+			while(pos < d.length && d[pos] >= '0' && d[pos] <= '9')
+				pos++;
+			dim[i] = Integer.parseInt(ascii(d, start, pos - start));
+		}
+
+		return dim;
+	}
+
+	private static long uint(byte[] d, int off, int len, boolean littleEndian) {
+		long v = 0;
+		for(int i = 0; i < len; i++)
+			v |= (long)(d[off + (littleEndian ? i : len - 1 - i)] & 0xff) << (8 * i);
+
+		return v;
+	}
+
+	private static String ascii(byte[] d, int off, int len) { return new String(d, off, len, StandardCharsets.US_ASCII); }
+
+	private static ImageTypeSpecifier findType(ImageReader reader, int bufferedImageType) throws IOException {
+		Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+		while(types.hasNext()) {
+			ImageTypeSpecifier t = types.next();
+			if(t.getBufferedImageType() == bufferedImageType)
+				return t;
+		}
+
+		return null;
+	}
+
+	// the color image is dropped right away, only a third of the memory waits in the queues
+	private static BufferedImage toGray(BufferedImage img) {
+		if(img.getType() == BufferedImage.TYPE_BYTE_GRAY)
+			return img;
+
+		BufferedImage gray = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+		Graphics2D g = gray.createGraphics();
+		g.setColor(Color.WHITE); // transparent parts become paper, not black
+		g.fillRect(0, 0, gray.getWidth(), gray.getHeight());
+		g.drawImage(img, 0, 0, null);
+		g.dispose();
+
+		return gray;
+	}
+}
@@ -0,0 +1,332 @@
+package gutzufusss.util;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.opencv.core.*;
+import org.opencv.imgproc.Imgproc;
+import org.openimaj.image.FImage;
+import org.openimaj.image.processing.edges.CannyEdgeDetector;
+import org.openimaj.image.processing.edges.StrokeWidthTransform;
+
+import gutzufusss.Main;
+import net.sourceforge.lept4j.Pix;
+import net.sourceforge.lept4j.util.LeptUtils;
+
+public class ImageManipulation {
+	public static final int		MIN_TEXT_HEIGHT		= 8;		// smaller blobs are noise, tesseract can't read them anyways
+	public static final int		TEXT_GAP			= 9;		// horizontal gap between characters that is still closed into one line
+	public static final double	MIN_TEXT_SCALE		= 0.25;		// limits of the text height normalization
+	public static final double	MAX_TEXT_SCALE		= 2.0;
+
+	private Logger logger;
+	private Mat gradientKernel;
+	private Mat lineKernel;
+
+	// two native buffers per thread, every filter reads from one and writes into the other
+	private ThreadLocal<Mat[]> scratch = new ThreadLocal<Mat[]>() {
+		@Override
+		protected Mat[] initialValue() { return new Mat[] {new Mat(), new Mat()}; }
+	};
+
+	public ImageManipulation(Logger logger) {
+		this.logger = logger;
+		
+		// this is needed to use opencv (C:\Program Files\Java\jre1.8.0_221\bin)
+		System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+		nu.pattern.OpenCV.loadLibrary();
+
+		gradientKernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(3, 3));
+		lineKernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(TEXT_GAP, 1));
+	}
+
+	// START_MISC_FUNCTIONS
+	public Pix img2Pix(BufferedImage img) {
+		Pix pix = null;
+		try {
+			pix = LeptUtils.convertImageToPix(img);
+		} catch(IOException e) {
+			logger.log(Logger.LVL_ERROR, "I/O error: " + e.getMessage());
+		}
+
+		return pix;
+	}
+
+	// the only copy into native memory of a filter chain, the result lives in this thread's scratch buffer
+	public Mat toMat(BufferedImage img) {
+		BufferedImage src = img;
+		if(img.getType() != BufferedImage.TYPE_3BYTE_BGR && img.getType() != BufferedImage.TYPE_BYTE_GRAY) {
+			// e.g. pngs with alpha or int rgb, these have to be redrawn once
+			src = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+			Graphics2D g = src.createGraphics();
+			g.drawImage(img, 0, 0, null);
+			g.dispose();
+		}
+
+		int type = src.getType() == BufferedImage.TYPE_3BYTE_BGR ? CvType.CV_8UC3 : CvType.CV_8UC1;
+		Mat mat = scratch.get()[0];
+		mat.create(src.getHeight(), src.getWidth(), type); // only reallocates if the size changed
+		mat.put(0, 0, ((DataBufferByte)src.getRaster().getDataBuffer()).getData());
+
+		return mat;
+	}
+
+	// raw 8 bit pixels, e.g. of the frame cache, into this thread's scratch buffer
+	public Mat toMat(byte[] pixels, int width, int height, int channels) {
+		Mat mat = scratch.get()[0];
+		mat.create(height, width, channels > 1 ? CvType.CV_8UC3 : CvType.CV_8UC1);
+		mat.put(0, 0, pixels);
+
+		return mat;
+	}
+
+	public byte[] toBytes(Mat mat) {
+		byte[] pixels = new byte[(int)mat.total() * mat.channels()];
+		mat.get(0, 0, pixels);
+
+		return pixels;
+	}
+
+	// the only copy out of native memory, pixels go straight into the new image's buffer
+	public BufferedImage toImg(Mat mat) {
+		int type = mat.channels() > 1 ? BufferedImage.TYPE_3BYTE_BGR : BufferedImage.TYPE_BYTE_GRAY;
+		BufferedImage img = new BufferedImage(mat.cols(), mat.rows(), type);
+		mat.get(0, 0, ((DataBufferByte)img.getRaster().getDataBuffer()).getData());
+
+		return img;
+	}
+
+	// frees the native buffers of the calling thread, e.g. when a pre-processing worker shuts down
+	public void releaseScratch() {
+		for(Mat m : scratch.get())
+			m.release();
+		scratch.remove();
+	}
+
+	private Mat target(Mat in) {
+		Mat[] bufs = scratch.get();
+		return in == bufs[0] ? bufs[1] : bufs[0];
+	}
+
+	private FImage matToFImage(Mat gray) {
+		byte[] data = new byte[gray.rows() * gray.cols()];
+		gray.get(0, 0, data);
+		float[][] pixels = new float[gray.rows()][gray.cols()];
+		for(int y = 0, i = 0; y < gray.rows(); y++)
+			for(int x = 0; x < gray.cols(); x++, i++)
+				pixels[y][x] = (data[i] & 0xff) / 255f;
+
+		return new FImage(pixels);
+	}
+
+	private Mat fImageToMat(FImage fImg, Mat out) {
+		int rows = fImg.pixels.length, cols = rows > 0 ? fImg.pixels[0].length : 0;
+		byte[] data = new byte[rows * cols];
+		for(int y = 0, i = 0; y < rows; y++)
+			for(int x = 0; x < cols; x++, i++)
+				data[i] = (byte)Math.round(Math.min(Math.max(fImg.pixels[y][x], 0f), 1f) * 255);
+		out.create(rows, cols, CvType.CV_8UC1);
+		out.put(0, 0, data);
+
+		return out;
+	}
+	// END_MISC_FUNCTIONS
+
+
+	// below are the functions that actually manipulate the images content itself
+	// the Mat versions can be chained without any conversions, they return one of the thread's scratch buffers
+
+	public Mat smoothImg(Mat in) { return smoothImg(in, 24, 32.0, 8.0); }
+
+	public Mat smoothImg(Mat in, int diameter, double sigmaColor, double sigmaSpace) {
+		Mat out = target(in);
+		Imgproc.bilateralFilter(in, out, diameter, sigmaColor, sigmaSpace, 0);
+
+		return out;
+	}
+
+	public Mat changeContrast(Mat in, float offset) {
+		Mat out = target(in);
+		in.convertTo(out, -1, 1 + offset, 0);
+
+		return out;
+	}
+
+	public Mat performSWT(Mat in) {
+		FImage fImg = matToFImage(toGrayscale(in));
+		StrokeWidthTransform swt = new StrokeWidthTransform(true, new CannyEdgeDetector());
+		swt.processImage(fImg);
+		fImg = StrokeWidthTransform.normaliseImage(fImg);
+
+		return fImageToMat(fImg, target(in));
+	}
+
+	public Mat toGrayscale(Mat in) {
+		if(in.channels() == 1)
+			return in;
+
+		Mat out = target(in);
+		Imgproc.cvtColor(in, out, Imgproc.COLOR_BGR2GRAY);
+
+		return out;
+	}
+
+	public Mat toBinary(Mat in) { return toBinary(in, 127); }
+
+	public Mat toBinary(Mat in, int threshold) {
+		Mat gray = toGrayscale(in);
+		Mat out = target(gray);
+		Imgproc.threshold(gray, out, threshold, 255, Imgproc.THRESH_BINARY);
+
+		return out;
+	}
+
+	// maps every value through the table (per channel), any number of point operations in a single pass
+	public Mat applyLut(Mat in, byte[] lut) {
+		Mat table = new Mat(1, 256, CvType.CV_8UC1);
+		table.put(0, 0, lut);
+		Mat out = target(in);
+		Core.LUT(in, table, out);
+		table.release();
+
+		return out;
+	}
+
+	public Mat addBorder(Mat in, int sz) {
+		Mat out = target(in);
+		Imgproc.copyMakeBorder(in, out, sz, sz, sz, sz, Imgproc.BORDER_CONSTANT);
+
+		return out;
+	}
+
+	// shrinks images that are bigger than needed, text stays readable and every following filter gets cheaper
+	public Mat limitSize(Mat in, int maxDim) {
+		int longSide = Math.max(in.rows(), in.cols());
+		if(maxDim <= 0 || longSide <= maxDim)
+			return in;
+
+		return scale(in, (double)maxDim / longSide);
+	}
+
+	public Mat scale(Mat in, double factor) {
+		Mat out = target(in);
+		Imgproc.resize(in, out, new Size(), factor, factor, factor < 1 ? Imgproc.INTER_AREA : Imgproc.INTER_CUBIC);
+
+		return out;
+	}
+
+	// candidate text lines: strong local contrast that merges into wide blobs once neighbouring characters are connected
+	public List<Rectangle> findTextRegions(Mat in) {
+		List<Rectangle> regions = new ArrayList<Rectangle>();
+		List<MatOfPoint> contours = new ArrayList<MatOfPoint>();
+		Mat gray = in.channels() > 1 ? new Mat() : in;
+		Mat grad = new Mat(), bw = new Mat(), hierarchy = new Mat();
+		try {
+			if(gray != in)
+				Imgproc.cvtColor(in, gray, Imgproc.COLOR_BGR2GRAY);
+			Imgproc.morphologyEx(gray, grad, Imgproc.MORPH_GRADIENT, gradientKernel);
+			Imgproc.threshold(grad, bw, 0, 255, Imgproc.THRESH_BINARY | Imgproc.THRESH_OTSU);
+			Imgproc.morphologyEx(bw, bw, Imgproc.MORPH_CLOSE, lineKernel);
+			Imgproc.findContours(bw, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+
+			for(MatOfPoint contour : contours) {
+				Rect r = Imgproc.boundingRect(contour);
+				contour.release();
+				if(r.height < MIN_TEXT_HEIGHT || r.width < r.height || r.height > in.rows() / 4) // dots, vertical lines and big shapes
+					continue;
+				regions.add(new Rectangle(r.x, r.y, r.width, r.height));
+			}
+		} finally {
+			if(gray != in)
+				gray.release();
+			grad.release();
+			bw.release();
+			hierarchy.release();
+		}
+
+		return regions;
+	}
+
+	// scales the image so the text lines end up about lineHeight pixels high, the regions are scaled along
+	public Mat normalizeTextHeight(Mat in, List<Rectangle> regions, int lineHeight, int maxDim) {
+		if(regions.isEmpty() || lineHeight <= 0)
+			return in;
+
+		int[] heights = new int[regions.size()];
+		for(int i = 0; i < heights.length; i++)
+			heights[i] = regions.get(i).height;
+		Arrays.sort(heights);
+		double factor = Math.min(Math.max((double)lineHeight / heights[heights.length / 2], MIN_TEXT_SCALE), MAX_TEXT_SCALE);
+		if(maxDim > 0)
+			factor = Math.min(factor, (double)maxDim / Math.max(in.rows(), in.cols()));
+		if(Math.abs(factor - 1) < 0.1) // not worth resampling
+			return in;
+
+		for(Rectangle r : regions)
+			r.setBounds((int)(r.x * factor), (int)(r.y * factor), (int)Math.ceil(r.width * factor), (int)Math.ceil(r.height * factor));
+
+		return scale(in, factor);
+	}
+
+	public Mat cropToRegions(Mat in, List<Rectangle> regions) { return cropToRegions(in, regions, null); }
+
+	// pads and merges the regions and crops the image to all of them, the regions end up relative to the crop
+	// cropped is set to the part of in that was kept, if given
+	public Mat cropToRegions(Mat in, List<Rectangle> regions, Rectangle cropped) {
+		Rectangle bounds = new Rectangle(0, 0, in.cols(), in.rows());
+		List<Rectangle> merged = new ArrayList<Rectangle>();
+		for(Rectangle r : regions) {
+			int pad = Math.max(r.height / 4, 2); // tesseract wants some background around the glyphs
+			merged.add(r.union(new Rectangle(r.x - pad, r.y - pad, r.width + 2 * pad, r.height + 2 * pad)).intersection(bounds));
+		}
+
+		// overlapping lines would be recognized twice
+		for(boolean changed = true; changed; ) {
+			changed = false;
+			for(int i = 0; i < merged.size() && !changed; i++)
+				for(int j = i + 1; j < merged.size() && !changed; j++)
+					if(merged.get(i).intersects(merged.get(j))) {
+						merged.set(i, merged.get(i).union(merged.remove(j)));
+						changed = true;
+					}
+		}
+		merged.sort((a, b) -> a.y != b.y ? Integer.compare(a.y, b.y) : Integer.compare(a.x, b.x)); // reading order
+
+		Rectangle crop = merged.get(0);
+		for(Rectangle r : merged)
+			crop = crop.union(r);
+		regions.clear();
+		for(Rectangle r : merged) {
+			r.translate(-crop.x, -crop.y);
+			regions.add(r);
+		}
+
+		if(cropped != null)
+			cropped.setBounds(crop);
+		Mat out = target(in);
+		Mat roi = in.submat(new Rect(crop.x, crop.y, crop.width, crop.height));
+		roi.copyTo(out);
+		roi.release();
+
+		return out;
+	}
+
+	// single filters on BufferedImages, every call converts in and out once
+
+	public BufferedImage smoothImg(BufferedImage img) { return toImg(smoothImg(toMat(img))); }
+	
+	public BufferedImage changeContrast(BufferedImage img, float offset) { return toImg(changeContrast(toMat(img), offset)); }
+	
+	public BufferedImage performSWT(BufferedImage img) { return toImg(performSWT(toMat(img))); }
+
+	public BufferedImage toGrayscale(BufferedImage img) { return toImg(toGrayscale(toMat(img))); }
+
+	public BufferedImage toBinary(BufferedImage img) { return toImg(toBinary(toMat(img))); }
+
+	public BufferedImage addBorder(BufferedImage img, int sz) { return toImg(addBorder(toMat(img), sz)); }
+}
@@ -0,0 +1,82 @@
+package gutzufusss.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// guesses the languages of already recognized text from the most common words of every language's wordlist
+public class LanguageDetector {
+	public static final int WORDS_PER_LANGUAGE = 5000;	// the wordlists are sorted by frequency, their head is enough and stays small
+	public static final int MIN_WORDS = 4;				// fewer words can't tell languages apart
+	public static final double MIN_SHARE = 0.25;		// of the words the best language has to know, less looks like noise
+	public static final double MIXED_SHARE = 0.5;		// other languages with this much of the best one's hits are read too
+
+	private final Map<String, Set<String>> words = new LinkedHashMap<String, Set<String>>();
+
+	// languages without a wordlist are never detected, images in them end up being read with all languages
+	public LanguageDetector(Logger logger, String dataPath, String[] languages) {
+		for(String lang : languages) {
+			Path list = Paths.get(dataPath, lang, lang + ".wordlist");
+			Set<String> set = new HashSet<String>(WORDS_PER_LANGUAGE * 2);
+			try(BufferedReader in = Files.newBufferedReader(list, StandardCharsets.UTF_8)) {
+				String line;
+				while(set.size() < WORDS_PER_LANGUAGE && (line = in.readLine()) != null)
+					if(line.length() > 1)
+						set.add(line.toLowerCase(Locale.ROOT));
+			} catch(IOException e) {
+				logger.log(Logger.LVL_WARN, "No wordlist for '" + lang + "' (" + list + "), it can't be detected: " + e.getMessage());
+				continue;
+			}
+			words.put(lang, set);
+		}
+	}
+
+	// e.g. "deu" or "eng+spa", the most likely one first; null if the text is too short or fits none of them
+	public String detect(String text) {
+		if(text == null || words.isEmpty())
+			return null;
+
+		int total = 0;
+		int[] hits = new int[words.size()];
+		for(String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}]+")) {
+			if(word.length() < 2)
+				continue;
+			total++;
+			int i = 0;
+			for(Set<String> set : words.values()) {
+				if(set.contains(word))
+					hits[i]++;
+				i++;
+			}
+		}
+		if(total < MIN_WORDS)
+			return null;
+
+		int best = 0;
+		for(int h : hits)
+			best = Math.max(best, h);
+		if(best < MIN_SHARE * total)
+			return null;
+
+		List<String> langs = new ArrayList<String>(words.keySet());
+		List<String> found = new ArrayList<String>();
+		for(int h = best; h >= MIXED_SHARE * best && h > 0; h--) // by hits, ties in the configured order
+			for(int i = 0; i < hits.length; i++)
+				if(hits[i] == h)
+					found.add(langs.get(i));
+
+		return String.join("+", found);
+	}
+
+	public Set<String> getLanguages() { return words.keySet(); }
+}
@@ -0,0 +1,287 @@
+package gutzufusss.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Logger {
+	public static final int LVL_OFF = 0;
+	public static final int LVL_FATAL = 1;
+	public static final int LVL_ERROR = 2;
+	public static final int LVL_WARN = 3;
+	public static final int LVL_INFO = 4;
+	public static final int LVL_DEBUG = 5;
+
+	public static final int LOG_QUEUE_SIZE = 8192;	// ring buffer between the logging threads and the writer
+	public static final int WRITE_BATCH_SIZE = 512;	// max lines the writer handles before flushing
+
+	private static final DateTimeFormatter FILE_TS_FORMAT = DateTimeFormatter.ofPattern("yyyy_MM_dd_HH-mm-ss").withLocale(Locale.getDefault()).withZone(ZoneId.systemDefault());
+	private static final DateTimeFormatter MSG_TS_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withLocale(Locale.getDefault()).withZone(ZoneId.systemDefault());
+
+	// everything the writer needs to build the line later, the caller only pays for this object
+	private static class LogEvent {
+		final int lvl;
+		final long time;
+		final String calledFrom;
+		final String msg;
+
+		LogEvent(int lvl, long time, String calledFrom, String msg) {
+			this.lvl = lvl;
+			this.time = time;
+			this.calledFrom = calledFrom;
+			this.msg = msg;
+		}
+	}
+	private static final LogEvent SHUTDOWN = new LogEvent(LVL_OFF, 0, null, null);
+	
+	public interface LogListener {
+		void linesLogged(List<String> lines); // called from the log writer thread
+	}
+	public static final int BACKLOG_SIZE = 256; // lines kept for a listener that attaches late
+
+	private final String LOG_PATH = "logs/log_" + getTimestamp(true) + ".log";
+	private File logFile;
+	private BufferedWriter logWriter;
+	private Config config;
+	private LogListener listener;
+	private ArrayDeque<String> backlog = new ArrayDeque<String>(); // lines logged before anyone listened
+
+	private BlockingQueue<LogEvent> logQueue = new ArrayBlockingQueue<LogEvent>(LOG_QUEUE_SIZE);
+	private volatile Thread writerThread;
+	private AtomicLong droppedMsgs = new AtomicLong();
+	private PrintStream console;
+
+
+	public Logger() {
+		this(System.out);
+	}
+
+	public Logger(PrintStream console) {
+		this.console = console;
+		logFile = new File(LOG_PATH);
+		openLogFile();
+		startWriter();
+	}
+
+	public void log(int lvl, String msg) {
+		if(config != null && lvl > config.curConfig.logLevel)
+			return;
+
+		String calledFrom = null;
+		if(config == null || config.curConfig.logCaller)
+			calledFrom = getCaller(config != null && config.curConfig.debug);
+
+		LogEvent event = new LogEvent(lvl, System.currentTimeMillis(), calledFrom, msg);
+		if(writerThread == null || config == null || !config.curConfig.logAsync) {
+			synchronized(this) {
+				List<LogEvent> single = new ArrayList<LogEvent>(1);
+				single.add(event);
+				writeEvents(single);
+			}
+			return;
+		}
+
+		// debug spam is dropped when the writer can't keep up, everything else waits for a free slot
+		if(!logQueue.offer(event)) {
+			if(lvl >= LVL_DEBUG) {
+				droppedMsgs.incrementAndGet();
+				return;
+			}
+			try {
+				logQueue.put(event);
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	// a single stack walk instead of one per piece of information
+	private String getCaller(boolean withLine) {
+		StackTraceElement[] stack = new Throwable().getStackTrace();
+		if(stack.length < 3)
+			return "?";
+
+		StackTraceElement caller = stack[2]; // travel back 2 calls on the call stack (getCaller <- log <- caller)
+		String calledFrom = caller.getClassName();
+		calledFrom = calledFrom.substring(calledFrom.lastIndexOf('.') + 1); // don't display the package path to the class... noone cares
+		calledFrom += "::" + caller.getMethodName();
+		if(withLine)
+			calledFrom += " (" + caller.getLineNumber() + ")";
+
+		return calledFrom;
+	}
+
+	private String formatEvent(LogEvent e) {
+		StringBuilder sb = new StringBuilder(64 + e.msg.length());
+		sb.append('[').append(getErrLvlString(e.lvl)).append(']');
+		sb.append('[').append(MSG_TS_FORMAT.format(Instant.ofEpochMilli(e.time))).append("]:");
+		if(e.calledFrom != null)
+			sb.append('[').append(e.calledFrom).append(']');
+		sb.append(">> ").append(e.msg);
+
+		return sb.toString();
+	}
+
+	private void writeEvents(List<LogEvent> events) {
+		StringBuilder console = new StringBuilder();
+		List<String> lines = new ArrayList<String>(events.size());
+		for(LogEvent e : events) {
+			String logMsg = formatEvent(e); // prepare the message
+			lines.add(logMsg);
+			console.append(logMsg).append(System.lineSeparator());
+		}
+
+		try {
+			if(logWriter != null) {
+				for(String line : lines) {
+					logWriter.write(line);
+					logWriter.write('\n');
+				}
+				logWriter.flush();
+			}
+		} catch(IOException e) {
+			System.err.println("We seem to have some kind of log-ception here: " + e.getMessage());
+		}
+
+		this.console.print(console);
+		if(listener != null) {
+			listener.linesLogged(lines);
+		} else {
+			backlog.addAll(lines);
+			while(backlog.size() > BACKLOG_SIZE)
+				backlog.pollFirst();
+		}
+	}
+
+	private void startWriter() {
+		writerThread = new Thread(new Runnable() {
+			public void run() {
+				List<LogEvent> batch = new ArrayList<LogEvent>(WRITE_BATCH_SIZE);
+				boolean running = true;
+				while(running) {
+					try {
+						batch.add(logQueue.take()); // sleep until there is something to do
+					} catch(InterruptedException e) {
+						break;
+					}
+					logQueue.drainTo(batch, WRITE_BATCH_SIZE - 1);
+
+					if(batch.remove(SHUTDOWN))
+						running = false;
+
+					long dropped = droppedMsgs.getAndSet(0);
+					if(dropped != 0)
+						batch.add(new LogEvent(LVL_WARN, System.currentTimeMillis(), "Logger", "Dropped " + dropped + " debug messages, the log writer could not keep up."));
+
+					synchronized(Logger.this) {
+						writeEvents(batch);
+					}
+					batch.clear();
+				}
+			}
+		}, "log-writer");
+		writerThread.setDaemon(true);
+		writerThread.start();
+
+		// make sure the last messages end up in the file
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			public void run() {
+				close();
+			}
+		}, "log-shutdown"));
+	}
+
+	public void close() {
+		if(writerThread == null)
+			return;
+
+		try {
+			if(logQueue.offer(SHUTDOWN, 1, TimeUnit.SECONDS))
+				writerThread.join(2000);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		writerThread = null; // anything logged from now on is written directly
+
+		synchronized(this) {
+			try {
+				if(logWriter != null)
+					logWriter.close();
+			} catch(IOException e) {
+				System.err.println("Could not close the log file: " + e.getMessage());
+			}
+			logWriter = null;
+		}
+	}
+	
+	public static String getTimestamp(boolean logger) {
+		return (logger ? FILE_TS_FORMAT : MSG_TS_FORMAT).format(Instant.now());
+	}
+
+	public static String getTimestamp() { return getTimestamp(false); }
+
+	public String getErrLvlString(int lvl) {
+		switch(lvl) {
+		case LVL_INFO:
+			return "INFO ";
+		case LVL_WARN:
+			return "WARN ";
+		case LVL_ERROR:
+			return "ERROR";
+		case LVL_FATAL:
+			return "FATAL";
+		case LVL_DEBUG:
+			return "DEBUG";
+		case LVL_OFF:
+			return "OFF";
+		default:
+			log(LVL_ERROR, "Encountered unknown error level.");
+			return "UNKN";
+		}
+	}
+	
+	private void openLogFile() {
+		if(!logFile.getParentFile().exists())
+			logFile.getParentFile().mkdir();
+
+		// now it is safe to create the current's session logfile
+		try {
+			boolean created = !logFile.exists() && logFile.createNewFile();
+
+			// stays open for the whole session instead of being reopened for every line
+			logWriter = Files.newBufferedWriter(logFile.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+			if(created)
+				log(LVL_INFO, "Log file was created.");
+		} catch(IOException e) {
+			if(e instanceof IOException) {
+				log(LVL_FATAL, "Something went horribly wrong (I/O).");
+				e.printStackTrace(); // kinda nonsense to log something here...
+			}
+		}
+	}
+
+	public void setConfig(Config config) { this.config = config; }
+	
+	public synchronized void setLogListener(LogListener listener) {
+		this.listener = listener;
+		if(listener != null && !backlog.isEmpty()) {
+			listener.linesLogged(new ArrayList<String>(backlog));
+			backlog.clear();
+		}
+	}
+}
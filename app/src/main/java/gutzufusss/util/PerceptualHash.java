@@ -0,0 +1,54 @@
+package gutzufusss.util;
+
+import java.awt.image.BufferedImage;
+
+// difference hash (dHash): survives re-encoding, resizing and small color changes, but not cropping
+public class PerceptualHash {
+	public static final int HASH_W = 9;				// 9x8 cells give 8 comparisons per row, 64 bits
+	public static final int HASH_H = 8;
+	public static final int MAX_SAMPLES = 16;		// per cell and axis, big images don't need every pixel
+
+	private PerceptualHash() {
+	}
+
+	public static long dHash(BufferedImage img) {
+		int w = img.getWidth();
+		int h = img.getHeight();
+		double[] cells = new double[HASH_W * HASH_H];
+
+		// average luminance of every cell (area average, a plain resize would alias on screenshots)
+		for(int cy = 0; cy < HASH_H; cy++) {
+			int y0 = cy * h / HASH_H;
+			int y1 = Math.max((cy + 1) * h / HASH_H, y0 + 1);
+			int yStep = Math.max((y1 - y0) / MAX_SAMPLES, 1);
+			for(int cx = 0; cx < HASH_W; cx++) {
+				int x0 = cx * w / HASH_W;
+				int x1 = Math.max((cx + 1) * w / HASH_W, x0 + 1);
+				int xStep = Math.max((x1 - x0) / MAX_SAMPLES, 1);
+
+				double sum = 0;
+				int n = 0;
+				for(int y = y0; y < y1 && y < h; y += yStep)
+					for(int x = x0; x < x1 && x < w; x += xStep) {
+						int rgb = img.getRGB(x, y);
+						sum += 0.299 * ((rgb >> 16) & 0xff) + 0.587 * ((rgb >> 8) & 0xff) + 0.114 * (rgb & 0xff);
+						n++;
+					}
+				cells[cy * HASH_W + cx] = n > 0 ? sum / n : 0;
+			}
+		}
+
+		// one bit per horizontal neighbour pair: is the left cell brighter?
+		long hash = 0;
+		for(int cy = 0; cy < HASH_H; cy++)
+			for(int cx = 0; cx < HASH_W - 1; cx++) {
+				hash <<= 1;
+				if(cells[cy * HASH_W + cx] > cells[cy * HASH_W + cx + 1])
+					hash |= 1;
+			}
+
+		return hash;
+	}
+
+	public static int distance(long a, long b) { return Long.bitCount(a ^ b); }
+}
@@ -0,0 +1,139 @@
+package gutzufusss.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// the words of an ocr result with boxes and confidences, packed as varints into roughly 6 bytes per word plus its text
+public class WordBoxes {
+	public static final int SCALE = 4095;	// boxes are relative to the whole image, 0..SCALE on both axes, so they fit any rendering of it
+	private static final int VERSION = 1;
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+	private static final Pattern EDGES = Pattern.compile("^[^\\p{L}\\p{N}]+|[^\\p{L}\\p{N}]+$");
+
+	public static class Word {
+		public final String text;
+		public final int conf;				// 0..100
+		public final int x, y, w, h;		// 0..SCALE
+
+		public Word(String text, int conf, int x, int y, int w, int h) {
+			this.text = text;
+			this.conf = conf;
+			this.x = x;
+			this.y = y;
+			this.w = w;
+			this.h = h;
+		}
+	}
+
+	private WordBoxes() {
+	}
+
+	// a coordinate of an image size pixels wide or high to 0..SCALE
+	public static int toScale(int v, int size) {
+		if(size <= 0)
+			return 0;
+
+		return (int)Math.min(Math.max(Math.round((double)v * SCALE / size), 0), SCALE);
+	}
+
+	// words in reading order, so x and y are stored as small differences to the word before
+	public static byte[] pack(List<Word> words) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(words.size() * 12 + 4);
+		writeVarint(out, VERSION);
+		writeVarint(out, words.size());
+		int lastX = 0, lastY = 0;
+		for(Word w : words) {
+			writeVarint(out, zigzag(w.x - lastX));
+			writeVarint(out, zigzag(w.y - lastY));
+			writeVarint(out, w.w);
+			writeVarint(out, w.h);
+			out.write(Math.min(Math.max(w.conf, 0), 100));
+			byte[] text = w.text.getBytes(StandardCharsets.UTF_8);
+			writeVarint(out, text.length);
+			out.write(text, 0, text.length);
+			lastX = w.x;
+			lastY = w.y;
+		}
+
+		return out.toByteArray();
+	}
+
+	public static List<Word> unpack(byte[] data) {
+		List<Word> words = new ArrayList<Word>();
+		if(data == null || data.length == 0)
+			return words;
+
+		int[] pos = {0};
+		if(readVarint(data, pos) != VERSION)
+			throw new IllegalArgumentException("Unknown word box version");
+		int count = readVarint(data, pos);
+		int x = 0, y = 0;
+		for(int i = 0; i < count; i++) {
+			x += unzigzag(readVarint(data, pos));
+			y += unzigzag(readVarint(data, pos));
+			int w = readVarint(data, pos);
+			int h = readVarint(data, pos);
+			int conf = data[pos[0]++] & 0xff;
+			int len = readVarint(data, pos);
+			words.add(new Word(new String(data, pos[0], len, StandardCharsets.UTF_8), conf, x, y, w, h));
+			pos[0] += len;
+		}
+
+		return words;
+	}
+
+	// the words matching any of the terms the way the full-text index does: case and accents don't matter, a term ending in * is a prefix
+	public static List<Word> find(List<Word> words, List<String> terms) {
+		List<String> exact = new ArrayList<String>(), prefixes = new ArrayList<String>();
+		for(String t : terms) {
+			boolean prefix = t.endsWith("*");
+			String n = normalize(prefix ? t.substring(0, t.length() - 1) : t);
+			if(!n.isEmpty())
+				(prefix ? prefixes : exact).add(n);
+		}
+
+		List<Word> found = new ArrayList<Word>();
+		for(Word w : words) {
+			String n = normalize(w.text);
+			boolean match = exact.contains(n);
+			for(int i = 0; i < prefixes.size() && !match; i++)
+				match = n.startsWith(prefixes.get(i));
+			if(match)
+				found.add(w);
+		}
+
+		return found;
+	}
+
+	private static String normalize(String s) {
+		String n = MARKS.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("");
+		return EDGES.matcher(n.toLowerCase(Locale.ROOT)).replaceAll("");
+	}
+
+	private static int zigzag(int v) { return (v << 1) ^ (v >> 31); }
+
+	private static int unzigzag(int v) { return (v >>> 1) ^ -(v & 1); }
+
+	private static void writeVarint(ByteArrayOutputStream out, int v) {
+		while((v & ~0x7f) != 0) {
+			out.write((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+		out.write(v);
+	}
+
+	private static int readVarint(byte[] data, int[] pos) {
+		int v = 0;
+		for(int shift = 0; ; shift += 7) {
+			int b = data[pos[0]++] & 0xff;
+			v |= (b & 0x7f) << shift;
+			if((b & 0x80) == 0)
+				return v;
+		}
+	}
+}
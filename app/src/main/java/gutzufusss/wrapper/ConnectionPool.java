@@ -0,0 +1,132 @@
+package gutzufusss.wrapper;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import gutzufusss.util.Logger;
+
+// one writer and a few read-only connections, in wal mode readers see the last commit and never wait for the writer
+public class ConnectionPool {
+	public static final int		READERS				= 4;
+	public static final int		BUSY_TIMEOUT_MS		= 5000;					// sqlite retries this long before SQLITE_BUSY, also the wait for a free reader
+	public static final int		CACHE_KIB			= 16 * 1024;			// page cache per connection
+	public static final long	MMAP_BYTES			= 256L * 1024 * 1024;	// reads straight from the mapped file instead of copying pages
+
+	private final String url;
+	private Logger logger;
+	private PooledConnection writer = null;
+	private final BlockingQueue<PooledConnection> idleReaders = new ArrayBlockingQueue<PooledConnection>(READERS);
+	private int openReaders = 0;
+	private boolean closed = false;
+
+	public ConnectionPool(Logger logger, String dbPath) {
+		this.logger = logger;
+		url = "jdbc:sqlite:" + dbPath;
+	}
+
+	// the only connection that writes, callers serialize transactions on it themselves
+	public synchronized PooledConnection getWriter() throws SQLException {
+		if(closed)
+			throw new SQLException("Connection pool is closed");
+		if(writer == null)
+			writer = open(false);
+
+		return writer;
+	}
+
+	// has to be given back with returnReader(), best in a finally block
+	public PooledConnection borrowReader() throws SQLException {
+		PooledConnection reader = idleReaders.poll();
+		if(reader != null)
+			return reader;
+
+		synchronized(this) {
+			if(closed)
+				throw new SQLException("Connection pool is closed");
+			if(openReaders < READERS) {
+				getWriter(); // the writer switches the database to wal before the first reader opens it
+				reader = open(true);
+				openReaders++;
+				return reader;
+			}
+		}
+
+		try {
+			reader = idleReaders.poll(BUSY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a database connection");
+		}
+		if(reader == null)
+			throw new SQLException("No database connection free after " + BUSY_TIMEOUT_MS + "ms");
+
+		return reader;
+	}
+
+	public void returnReader(PooledConnection reader) {
+		if(reader == null)
+			return;
+
+		synchronized(this) {
+			if(!closed && idleReaders.offer(reader))
+				return;
+			openReaders--;
+		}
+		closeQuietly(reader);
+	}
+
+	public synchronized void close() {
+		closed = true;
+		PooledConnection reader;
+		while((reader = idleReaders.poll()) != null) {
+			closeQuietly(reader);
+			openReaders--;
+		}
+		if(writer != null) {
+			closeQuietly(writer); // the last connection checkpoints and removes the wal file
+			writer = null;
+		}
+
+		logger.log(Logger.LVL_DEBUG, "Database connections closed.");
+	}
+
+	private PooledConnection open(boolean readOnly) throws SQLException {
+		logger.log(Logger.LVL_DEBUG, "Creating " + (readOnly ? "read-only" : "writer") + " database connection to: " + url);
+		try {
+			Class.forName("org.sqlite.JDBC");
+		} catch(ClassNotFoundException e) {
+			throw new SQLException("SQLite driver not found: " + e.getMessage());
+		}
+
+		Connection connection = DriverManager.getConnection(url);
+		try(Statement stmt = connection.createStatement()) {
+			if(!readOnly)
+				stmt.execute("PRAGMA journal_mode=WAL;");	// stored in the file, readers get it from there
+			stmt.execute("PRAGMA synchronous=NORMAL;");		// with wal only checkpoints fsync, a power cut can lose the last commits but never corrupts
+			stmt.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT_MS + ";");
+			stmt.execute("PRAGMA cache_size=-" + CACHE_KIB + ";"); // negative = KiB instead of pages
+			stmt.execute("PRAGMA mmap_size=" + MMAP_BYTES + ";");
+			stmt.execute("PRAGMA temp_store=MEMORY;");		// sorting for ORDER BY rank etc. doesn't touch the disk
+			if(readOnly)
+				stmt.execute("PRAGMA query_only=ON;");
+		} catch(SQLException e) {
+			connection.close();
+			throw e;
+		}
+
+		return new PooledConnection(connection, readOnly);
+	}
+
+	private void closeQuietly(PooledConnection c) {
+		try {
+			c.close();
+		} catch(SQLException e) {
+			logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,880 @@
+package gutzufusss.wrapper;
+
+import java.awt.Rectangle;
+import java.awt.image.*;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import gutzufusss.ImageDBController;
+import gutzufusss.Main;
+import gutzufusss.filter.FilterPipeline;
+import gutzufusss.scan.DirectoryWalker;
+import gutzufusss.scan.DirectoryWatcher;
+import gutzufusss.scan.FrameCache;
+import gutzufusss.scan.ScanEngine;
+import gutzufusss.scan.ScanJob;
+import gutzufusss.scan.ScanMetrics;
+import gutzufusss.scan.StageWorker;
+import gutzufusss.util.BKTree;
+import gutzufusss.util.Config;
+import gutzufusss.util.ImageDecoder;
+import gutzufusss.util.ImageManipulation;
+import gutzufusss.util.LanguageDetector;
+import gutzufusss.util.Logger;
+import gutzufusss.util.PerceptualHash;
+import gutzufusss.util.WordBoxes;
+import com.sun.jna.Pointer;
+import org.opencv.core.Mat;
+import net.sourceforge.lept4j.*;
+import net.sourceforge.lept4j.util.LeptUtils;
+import net.sourceforge.tess4j.*;
+import net.sourceforge.tess4j.ITessAPI.TessBaseAPI;
+
+public class OCRWrapper implements Runnable {
+	private final String WHITELIST_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ" + "abcdefghijklmnopqrstuvwxyz" + "" + "1234567890" + " !?.,-+#*/\\\"$()[]{}<>=%";
+	private final long IN_MEMORY_DECODE_MAX = 16 * 1024 * 1024; // bigger files are hashed and decoded as streams instead of being read at once
+	private final double MAX_REGION_COVERAGE = 0.6; // if the text regions cover more of the image, recognizing them one by one does not pay off
+	private final int MAX_HANDLES = 3; // tesseract instances per ocr worker, every one holds its own copy of the models
+
+	private Logger logger;
+	private Config config;
+	private Main controller;
+	private ImageDBController imgDB;
+	private ImageDecoder decoder;
+	private String scanPath;
+	private String dataPath = "tessdata"; // could be parameterized in the future for different directories
+	private String languages = null; // all configured ones, read at the start of every scan
+	private LanguageDetector detector = null; // null = every image is read with all languages
+	private Map<String, String> dirLanguages = new ConcurrentHashMap<String, String>(); // directory -> languages detected in its last image
+	private volatile ScanMetrics metrics = null;
+	private FilterPipeline defaultPipeline = null;
+	private Map<String, FilterPipeline> dirPipelines = new HashMap<String, FilterPipeline>(); // directory -> its own filters
+	private List<FilterPipeline> ladder = null; // adaptive mode, cheapest filters first, null = off
+	private BKTree<String> knownImages = null; // perceptual hash -> path of every ocr'd image, null if deduplication is off
+	private Consumer<ScanJob> resultListener = null;
+	private volatile boolean watchMode = false;
+	private boolean reprocess = false;
+	private FrameCache frameCache = null; // null = off
+	private volatile DirectoryWatcher watcher = null;
+	private volatile boolean cancelled = false;
+	private volatile Thread scanThread = null;
+	
+	private String[] allowedExtensions = {"jpg", "png", "tiff", "bmp", "pnm", "gif", "ps", "pdf", "webp"};
+	
+	public OCRWrapper(Logger logger, Config config, Main controller, ImageDBController imgDB, String scanPath) {
+		this.logger = logger;
+		this.config = config;
+		this.controller = controller;
+		this.imgDB = imgDB;
+		this.scanPath = scanPath;
+		decoder = new ImageDecoder(logger, controller.getIMGManipulator());
+	}
+	
+	private void setUpAPIParameters(TessBaseAPI handle) {
+		TessAPI1.TessBaseAPISetVariable(handle, "--psm", "6"); // page segmentation mode: assume a single uniform block of code ; TODO: play with this value, could be good
+		TessAPI1.TessBaseAPISetVariable(handle, "--oem", "1"); // engine mode: LSTM neural net mode
+		TessAPI1.TessBaseAPISetVariable(handle, "tessedit_char_whitelist", WHITELIST_CHARS); // whitelist...
+		TessAPI1.TessBaseAPISetVariable(handle, "enable_new_segsearch", "1"); // enable new segmentation search path
+	}
+
+	public void scanDirectory(String path) {
+		scanThread = Thread.currentThread(); // cancel() interrupts it
+		if(cancelled)
+			return;
+		int ocrThreads = config.curConfig.scanThreads > 0 ? config.curConfig.scanThreads : Runtime.getRuntime().availableProcessors();
+		loadLanguages();
+
+		logger.log(Logger.LVL_INFO, "Starting scanning process... Languages: " + languages + (detector != null ? " (routed per image)" : "") +
+				", data path: " + dataPath + ", ocr workers: " + ocrThreads);
+
+		// decoding and the database are mostly waiting on I/O, so they get their own threads to keep the ocr stage busy
+		loadPipelines();
+		int crashed = imgDB.recoverCrashed();
+		if(crashed > 0)
+			logger.log(Logger.LVL_WARN, "The last scan stopped unexpectedly while reading " + crashed + " images. Images involved in " +
+					ImageDBController.MAX_CRASHES + " such crashes are quarantined.");
+		ScanEngine engine = new ScanEngine(logger);
+		metrics = engine.getMetrics();
+		if(config.curConfig.dedupDistance >= 0) {
+			knownImages = new BKTree<String>();
+			for(Map.Entry<String, Long> e : imgDB.getPerceptualHashes().entrySet())
+				knownImages.add(e.getValue(), e.getKey());
+			logger.log(Logger.LVL_DEBUG, "Loaded " + knownImages.size() + " perceptual hashes for duplicate detection.");
+		}
+		frameCache = null;
+		if(config.curConfig.frameCacheMB > 0)
+			try {
+				frameCache = new FrameCache(logger, Paths.get(FrameCache.DIR), config.curConfig.frameCacheMB * 1024L * 1024);
+			} catch(IOException e) {
+				logger.log(Logger.LVL_ERROR, "I/O error: Could not open the frame cache in '" + FrameCache.DIR + "', scanning without it: " + e.getMessage());
+			}
+		engine.addStage("decode", config.curConfig.decodeThreads, () -> job -> decodeImg(job));
+		engine.addStage("preprocess", config.curConfig.preprocessThreads, this::createPreprocessWorker);
+		engine.addStage("ocr", ocrThreads, this::createOCRWorker); // every worker initializes its own tesseract instance
+		engine.addStage("persist", 1, this::createPersistWorker); // sqlite only has a single writer anyways
+		engine.start();
+
+		// stream all files in the directory tree into the pipeline, ocr starts with the first one found
+		try {
+			DirectoryWalker walker = new DirectoryWalker(logger, engine, allowedExtensions, config.curConfig.excludeGlobs);
+			if(watchMode) // directories are registered during the walk, nothing created meanwhile gets lost
+				watcher = new DirectoryWatcher(logger, walker, this::removeImages);
+			int found = walker.walk(Paths.get(path), config.curConfig.scanMaxDepth, config.curConfig.followSymlinks);
+			if(found == 0 && watcher == null)
+				logger.log(Logger.LVL_ERROR, "I/O error: The directory seems to contain no image files!");
+			else
+				logger.log(Logger.LVL_DEBUG, "Discovery finished, found " + found + " images.");
+
+			if(watcher != null && watchMode)
+				watcher.run(); // until stopWatching() is called, the pipeline stays up in the meantime
+
+			engine.finish(); // waits for all stages to drain, every handle is released afterwards
+		} catch(IOException e) {
+			logger.log(Logger.LVL_ERROR, "I/O error: Could not walk '" + path + "': " + e.getMessage());
+			engine.shutdownNow();
+		} catch(InterruptedException e) {
+			logger.log(Logger.LVL_WARN, cancelled ? "Scan was cancelled, stopping workers." : "Scanning was interrupted, stopping workers.");
+			engine.shutdownNow();
+			Thread.currentThread().interrupt();
+		} finally {
+			if(watcher != null)
+				watcher.close();
+			scanThread = null;
+		}
+
+		engine.logProgress(); // end of scan summary
+		if(metrics.getImagesSkipped() != 0)
+			logger.log(Logger.LVL_INFO, metrics.getImagesSkipped() + " images did not change since the last scan and were skipped.");
+		logger.log(Logger.LVL_INFO, (cancelled ? "Cancelled" : "Done") + " scanning the directory '" + path + "'.");
+	}
+
+	private TessBaseAPI createHandle(String langs) {
+		TessBaseAPI handle = TessAPI1.TessBaseAPICreate();
+		if(TessAPI1.TessBaseAPIInit3(handle, dataPath, langs) != 0) {
+			TessAPI1.TessBaseAPIDelete(handle);
+			return null;
+		}
+		setUpAPIParameters(handle);
+
+		return handle;
+	}
+
+	private StageWorker createOCRWorker() {
+		OCRHandles handles = new OCRHandles();
+		if(handles.get(languages) == null)
+			throw new IllegalStateException("Tesseract init failed (languages: " + languages + ", data path: " + dataPath + ")");
+		OCRMonitor monitor = new OCRMonitor();
+
+		return new StageWorker() {
+			@Override
+			public boolean process(ScanJob job) throws TimeoutException { return recognizeGuarded(job, handles, monitor); }
+
+			@Override
+			public void close() {
+				handles.close();
+				controller.getIMGManipulator().releaseScratch(); // the adaptive mode filters in this thread too
+			}
+		};
+	}
+
+	private StageWorker createPreprocessWorker() {
+		return new StageWorker() {
+			@Override
+			public boolean process(ScanJob job) { return preprocessImg(job); }
+
+			@Override
+			public void close() { controller.getIMGManipulator().releaseScratch(); } // native buffers of this thread
+		};
+	}
+
+	private StageWorker createPersistWorker() {
+		return new StageWorker() {
+			@Override
+			public boolean process(ScanJob job) { return persistResult(job); }
+
+			@Override
+			public void idle() { imgDB.flushResultsIfDue(); }
+
+			@Override
+			public void close() { imgDB.flushResults(); } // don't lose the last batch
+		};
+	}
+
+	// START_PIPELINE_STAGES
+	private boolean decodeImg(ScanJob job) throws IOException {
+		Path path = job.file.toPath();
+		if(!job.attrsKnown) {
+			BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+			job.fileSize = attrs.size();
+			job.lastModified = attrs.lastModifiedTime().toMillis();
+		}
+
+		// size and mtime are the same as last time, don't even touch the content
+		ImageDBController.FileInfo known = imgDB.getFileInfo(job.getPath());
+		if(!reprocess && known != null && known.size == job.fileSize && known.lastModified == job.lastModified) {
+			logger.log(Logger.LVL_DEBUG, "'" + job.getPath() + "' did not change since the last scan, skipping it.");
+			metrics.imageSkipped();
+			return false;
+		}
+
+		String quarantined = imgDB.getQuarantineReason(job.getPath(), job.fileSize, job.lastModified);
+		if(quarantined != null) {
+			logger.log(Logger.LVL_INFO, "'" + job.getPath() + "' is quarantined (" + quarantined + "), skipping it until the file changes.");
+			metrics.imageSkipped();
+			return false;
+		}
+
+		// small files are read once, for the hash as well as for decoding
+		long start = System.nanoTime();
+		byte[] data = null;
+		if(job.fileSize <= IN_MEMORY_DECODE_MAX) {
+			data = Files.readAllBytes(path);
+			job.contentHash = hashContent(data);
+		} else {
+			job.contentHash = hashContent(path);
+		}
+		metrics.record("decode.read", System.nanoTime() - start);
+		if(!reprocess && known != null && job.contentHash.equals(known.contentHash)) {
+			logger.log(Logger.LVL_DEBUG, "'" + job.getPath() + "' was touched but the content is the same, skipping it.");
+			imgDB.updateFileInfo(job.getPath(), job.fileSize, job.lastModified);
+			metrics.imageSkipped();
+			return false;
+		}
+
+		// the color is thrown away by the filters anyways
+		boolean gray = pipelineFor(job).discardsColor();
+		if(isAdaptive(job))
+			for(FilterPipeline p : ladder)
+				gray &= p.discardsColor();
+
+		// pre-processed with the same settings before, the image doesn't even have to be decoded
+		if(frameCache != null) {
+			start = System.nanoTime();
+			job.frameKeys = frameKeys(job, gray);
+			job.frame = frameCache.load(job.contentHash, job.frameKeys);
+			metrics.record("decode.cache", System.nanoTime() - start);
+			if(job.frame != null) {
+				metrics.frameCacheHit();
+				metrics.addBytes(job.fileSize);
+				job.perceptualHash = job.frame.perceptualHash;
+				if(knownImages != null && findDuplicate(job))
+					job.frame = null;
+				return true;
+			}
+			metrics.frameCacheMiss();
+		}
+
+		start = System.nanoTime();
+		job.img = decoder.decode(data != null ? new ByteArrayInputStream(data) : job.file, config.curConfig.maxImgDimension, gray);
+		if(job.img == null) { // no ImageIO reader for this format
+			try {
+				job.img = data != null ? decoder.decodeWithOpenCV(data, gray) : decoder.decodeWithOpenCV(path, gray);
+			} catch(ImageDecoder.TooLargeException e) {
+				// it won't get any smaller, so it isn't tried again until the file changes
+				imgDB.markRunning(job.getPath(), job.fileSize, job.lastModified);
+				imgDB.quarantine(job.getPath(), ImageDBController.Q_TOO_LARGE);
+				throw e;
+			}
+		}
+		if(job.img == null) // counts as a failed image
+			throw new IOException("Could not decode the image, unsupported format?");
+		metrics.record("decode.image", System.nanoTime() - start);
+		metrics.addBytes(job.fileSize);
+
+		start = System.nanoTime();
+		job.perceptualHash = PerceptualHash.dHash(job.img);
+		if(knownImages != null && findDuplicate(job))
+			job.img = null; // the result is already known, the later stages just pass it on
+		metrics.record("decode.dedup", System.nanoTime() - start);
+
+		return true;
+	}
+
+	private boolean preprocessImg(ScanJob job) {
+		if(job.duplicateOf != null)
+			return true;
+
+		ImageManipulation imgManipulator = controller.getIMGManipulator();
+		Mat processingMat;
+		int done = 0; // filter passes the frame already went through
+		if(job.frame != null) { // from the frame cache, scaled and cropped already
+			FrameCache.Frame f = job.frame;
+			processingMat = imgManipulator.toMat(f.pixels, f.width, f.height, f.channels);
+			job.regions = f.regions;
+			job.extent = f.extent;
+			done = f.passes;
+			job.frame = null;
+		} else {
+			processingMat = imgManipulator.toMat(job.img); // the whole chain runs on native memory
+			job.img = null;
+
+			// everything after this runs on fewer pixels, the bilateral filter in particular
+			processingMat = applyFilter("filter.resize", processingMat, m -> imgManipulator.limitSize(m, config.curConfig.maxImgDimension));
+			if(config.curConfig.textLineHeight > 0 || config.curConfig.flTextRegions)
+				processingMat = findTextRegions(job, processingMat);
+			if(job.extent == null) // not cropped
+				job.extent = new Rectangle(0, 0, processingMat.cols(), processingMat.rows());
+			storeFrame(job, 0, processingMat);
+		}
+
+		// image preprocessing, every filter is timed by the pipeline
+		FilterPipeline pipeline = pipelineFor(job);
+		if(isAdaptive(job)) // the more expensive filters start over from here if the cheap ones are not enough
+			job.source = imgManipulator.toImg(processingMat);
+		for(int pass = done; pass < pipeline.getPassCount(); pass++) {
+			processingMat = pipeline.apply(imgManipulator, processingMat, pass, pass + 1, metrics);
+			storeFrame(job, pass + 1, processingMat);
+		}
+		job.regionOffset = pipeline.getBorderSize();
+		job.frameKeys = null;
+
+		job.img = imgManipulator.toImg(processingMat);
+		return true;
+	}
+
+	// the image is marked before tesseract sees it, so timeouts, errors and crashes all end up in the quarantine
+	// a successful read takes the mark away together with its result, in the persist stage's batch
+	private boolean recognizeGuarded(ScanJob job, OCRHandles handles, OCRMonitor monitor) throws TimeoutException {
+		if(job.duplicateOf != null)
+			return true;
+
+		imgDB.markRunning(job.getPath(), job.fileSize, job.lastModified);
+		try {
+			monitor.start(config.curConfig.ocrTimeout); // one budget for the whole image, all regions and filter variants included
+			recognizeImg(job, handles, monitor);
+			if(job.source != null)
+				escalate(job, handles, monitor);
+			job.regions = null; // not needed anymore, don't keep them in the persist queue
+		} catch(CancellationException e) {
+			imgDB.removeFromQuarantine(job.getPath()); // not the image's fault, it is read again next time
+			return false;
+		} catch(TimeoutException e) {
+			imgDB.quarantine(job.getPath(), ImageDBController.Q_TIMEOUT);
+			throw e;
+		} catch(RuntimeException e) {
+			imgDB.quarantine(job.getPath(), ImageDBController.Q_ERROR);
+			throw e;
+		}
+
+		return true;
+	}
+
+	private void recognizeImg(ScanJob job, OCRHandles handles, OCRMonitor monitor) throws TimeoutException {
+		// finalize the image
+		long start = System.nanoTime();
+		Pix pix = controller.getIMGManipulator().img2Pix(job.img);
+		pix.xres = job.img.getHeight(); // converting to pix somehow breaks the resolution
+		pix.yres = job.img.getWidth();
+		job.img = null; // not needed anymore, don't keep it in the persist queue
+		metrics.record("ocr.img2pix", System.nanoTime() - start);
+
+		try {
+			if(detector == null) {
+				recognizePix(job, handles.get(languages), pix, monitor);
+				return;
+			}
+
+			// the languages of the directory's last image first, the text tells whether they were the right ones
+			String dir = job.file.getParent();
+			String guess = dirLanguages.getOrDefault(dir, languages);
+			recognizePix(job, handles.get(guess), pix, monitor);
+			String detected = detector.detect(job.result);
+
+			String retry = null;
+			if(detected != null && !Arrays.asList(guess.split("\\+")).containsAll(Arrays.asList(detected.split("\\+"))))
+				retry = detected;
+			else if(detected == null && job.conf < config.curConfig.critConf && !guess.equals(languages)) // can't tell, all of them then
+				retry = languages;
+
+			if(retry != null) {
+				String result = job.result;
+				byte[] words = job.words;
+				int conf = job.conf;
+				recognizePix(job, handles.get(retry), pix, monitor);
+				metrics.imageRerouted();
+				logger.log(Logger.LVL_DEBUG, "'" + job.getPath() + "' read again with " + retry + " instead of " + guess + ", confidence " + conf + " -> " + job.conf + ".");
+				if(job.conf < conf) {
+					job.result = result;
+					job.words = words;
+					job.conf = conf;
+				}
+			}
+			if(detected != null)
+				dirLanguages.put(dir, detected);
+		} finally {
+			LeptUtils.dispose(pix); // clean up, tesseract keeps its own copy
+		}
+	}
+
+	private void recognizePix(ScanJob job, TessBaseAPI handle, Pix pix, OCRMonitor monitor) throws TimeoutException {
+		long start = System.nanoTime();
+		TessAPI1.TessBaseAPISetImage2(handle, pix); // hand over the processed image to the api
+
+		List<WordBoxes.Word> words = new ArrayList<WordBoxes.Word>();
+		if(job.regions == null) {
+			recognize(handle, monitor); // this is where tesseract actually does its work
+			job.conf = TessAPI1.TessBaseAPIMeanTextConf(handle);
+			readWords(handle, job, words);
+		} else {
+			// one line at a time, the confidence is weighted by how much text every line had
+			long confSum = 0, chars = 0;
+			for(Rectangle r : job.regions) {
+				TessAPI1.TessBaseAPISetRectangle(handle, r.x + job.regionOffset, r.y + job.regionOffset, r.width, r.height);
+				recognize(handle, monitor);
+				int conf = TessAPI1.TessBaseAPIMeanTextConf(handle);
+				int first = words.size(), length = 0;
+				readWords(handle, job, words);
+				for(WordBoxes.Word w : words.subList(first, words.size()))
+					length += w.text.length();
+				confSum += (long)conf * length;
+				chars += length;
+			}
+			job.conf = chars > 0 ? (int)(confSum / chars) : 0;
+		}
+		metrics.record("ocr.recognize", System.nanoTime() - start);
+		job.words = WordBoxes.pack(words); // all of them, the index below may leave some out
+
+		// the searchable text, words the ocr is unsure about would only be noise in the index
+		StringBuilder text = new StringBuilder();
+		for(WordBoxes.Word w : words)
+			if(w.conf >= config.curConfig.minWordConf)
+				text.append(w.text).append(' ');
+		String result = text.toString().trim();
+		if(result.length() > ImageDBController.MAX_IMG_TEXT_LEN) { // sqlite doesn't care about the varchar length, this only stops runaway results
+			result = result.substring(0, ImageDBController.MAX_IMG_TEXT_LEN);
+			logger.log(Logger.LVL_WARN, "Result was longer than " + ImageDBController.MAX_IMG_TEXT_LEN + ", theirfore it has been trimmed to that length.");
+		}
+		job.result = result;
+	}
+
+	// adaptive mode: the cheap filters left the confidence too low, the next variants run on the unfiltered image until one is good enough
+	private void escalate(ScanJob job, OCRHandles handles, OCRMonitor monitor) throws TimeoutException {
+		ImageManipulation imgManipulator = controller.getIMGManipulator();
+		String bestResult = job.result;
+		byte[] bestWords = job.words;
+		int bestConf = job.conf, passes = 0;
+
+		for(int i = 1; i < ladder.size() && bestConf < config.curConfig.critConf; i++) {
+			FilterPipeline pipeline = ladder.get(i);
+			Mat processingMat = pipeline.apply(imgManipulator, imgManipulator.toMat(job.source), metrics);
+			job.regionOffset = pipeline.getBorderSize();
+			job.img = imgManipulator.toImg(processingMat);
+			recognizeImg(job, handles, monitor);
+			passes++;
+
+			if(job.conf > bestConf) {
+				bestResult = job.result;
+				bestWords = job.words;
+				bestConf = job.conf;
+			}
+		}
+		job.source = null;
+
+		if(passes > 0) {
+			logger.log(Logger.LVL_DEBUG, "'" + job.getPath() + "' needed " + passes + " more filter variants, best confidence " + bestConf + ".");
+			metrics.imageEscalated(passes);
+		}
+		job.result = bestResult;
+		job.words = bestWords;
+		job.conf = bestConf;
+	}
+
+	private boolean persistResult(ScanJob job) {
+		long start = System.nanoTime();
+		imgDB.addResult(job.file.getName(), job.getPath(), job.fileSize, job.lastModified, job.contentHash, job.perceptualHash, job.result, job.words, job.conf);
+		metrics.record("db.write", System.nanoTime() - start);
+
+		if(job.duplicateOf != null) {
+			logger.log(Logger.LVL_DEBUG, "'" + job.getPath() + "' looks like '" + job.duplicateOf + "', reused its result.");
+			metrics.imageDeduplicated();
+		}
+		if(knownImages != null)
+			knownImages.add(job.perceptualHash, job.getPath()); // copies found later in this scan can reuse it, a changed file's old hash goes
+
+		if(job.conf < config.curConfig.critConf)
+			logger.log(Logger.LVL_WARN, "Processed '" + job.getPath() + 
+					"'. However, the confidence score was lower than " + config.curConfig.critConf + " (" + job.conf + ").");
+
+		logger.log(Logger.LVL_INFO, "'" + job.getPath() + "' done, confidence was " + job.conf + ".");
+		logger.log(Logger.LVL_INFO, "Result: " + job.result);
+
+		metrics.imageDone(job);
+		if(resultListener != null)
+			resultListener.accept(job);
+
+		return true;
+	}
+	// END_PIPELINE_STAGES
+
+	// copies the result of a near-identical image (same screenshot as png, jpg, thumbnail...) instead of running the ocr again
+	private boolean findDuplicate(ScanJob job) {
+		for(BKTree.Match<String> match : knownImages.search(job.perceptualHash, config.curConfig.dedupDistance)) {
+			if(match.value.equals(job.getPath())) // the file itself changed, its old result is outdated
+				continue;
+
+			ImageDBController.OCRResult known = imgDB.getResult(match.value);
+			if(known == null || known.text == null || known.confidence < config.curConfig.critConf) // e.g. a tiny thumbnail, a bigger copy may do better
+				continue;
+
+			job.result = known.text;
+			job.words = known.words; // relative to the image, so they fit a rescaled copy too
+			job.conf = known.confidence;
+			job.duplicateOf = match.value;
+			return true;
+		}
+
+		return false;
+	}
+
+	// the global pipeline and the ones of single directories, a broken spec falls back to the check boxes
+	private void loadPipelines() {
+		defaultPipeline = parsePipeline(config.curConfig.filterPipeline, "the configuration");
+		if(defaultPipeline == null)
+			defaultPipeline = FilterPipeline.fromFlags(config.curConfig);
+
+		dirPipelines.clear();
+		for(Map.Entry<String, String> e : config.getConfigDB().getDirPipelines().entrySet()) {
+			FilterPipeline p = parsePipeline(e.getValue(), "'" + e.getKey() + "'");
+			if(p != null)
+				dirPipelines.put(e.getKey(), p);
+		}
+
+		ladder = null;
+		if(config.curConfig.flAdaptive) {
+			String specs = config.curConfig.adaptivePipelines;
+			try {
+				ladder = FilterPipeline.parseLadder(specs == null || specs.trim().isEmpty() ? FilterPipeline.DEFAULT_LADDER : specs);
+			} catch(IllegalArgumentException e) {
+				logger.log(Logger.LVL_ERROR, "Invalid adaptive filter pipelines: " + e.getMessage() + ", using the built-in ones.");
+				ladder = FilterPipeline.parseLadder(FilterPipeline.DEFAULT_LADDER);
+			}
+			defaultPipeline = ladder.get(0);
+			logger.log(Logger.LVL_INFO, "Adaptive pre-processing, " + ladder.size() + " filter variants below a confidence of " + config.curConfig.critConf + ".");
+		}
+
+		logger.log(Logger.LVL_INFO, "Pre-processing: " + defaultPipeline.describePasses() +
+				(dirPipelines.isEmpty() ? "" : " (" + dirPipelines.size() + " directories have their own filters)"));
+	}
+
+	// frameKeys[n] identifies the frame after n filter passes, everything before the filters that changes the pixels is part of it
+	private String[] frameKeys(ScanJob job, boolean gray) {
+		FilterPipeline pipeline = pipelineFor(job);
+		String[] keys = new String[pipeline.getPassCount() + 1];
+		keys[0] = "gray=" + gray + ", max_img_dim=" + config.curConfig.maxImgDimension + ", text_line_height=" + config.curConfig.textLineHeight +
+				", text_regions=" + config.curConfig.flTextRegions + " | ";
+		if(!isAdaptive(job)) // the adaptive mode starts from the unfiltered frame anyways
+			for(int pass = 0; pass < pipeline.getPassCount(); pass++)
+				if(pipeline.isCheckpoint(pass))
+					keys[pass + 1] = keys[0] + pipeline.signature(pass + 1);
+
+		return keys;
+	}
+
+	private void storeFrame(ScanJob job, int passes, Mat mat) {
+		if(frameCache == null || job.frameKeys == null || job.frameKeys[passes] == null)
+			return;
+
+		long start = System.nanoTime();
+		ImageManipulation imgManipulator = controller.getIMGManipulator();
+		frameCache.store(job.contentHash, job.frameKeys[passes],
+				new FrameCache.Frame(mat.cols(), mat.rows(), mat.channels(), passes, job.perceptualHash, job.regions, job.extent, imgManipulator.toBytes(mat)));
+		metrics.record("preprocess.cache", System.nanoTime() - start);
+	}
+
+	// the detector is only built again if the languages changed, the directories' languages are kept between scans
+	private void loadLanguages() {
+		String langs = config.curConfig.languages;
+		if(langs == null || langs.trim().isEmpty())
+			langs = config.defConfig.languages;
+		if(!langs.trim().equals(languages)) {
+			dirLanguages.clear();
+			detector = null;
+		}
+		languages = langs.trim();
+
+		String[] single = languages.split("\\+");
+		if(!config.curConfig.langRouting || single.length < 2)
+			detector = null;
+		else if(detector == null)
+			detector = new LanguageDetector(logger, dataPath, single);
+	}
+
+	private FilterPipeline parsePipeline(String spec, String source) {
+		if(spec == null || spec.trim().isEmpty())
+			return null;
+
+		try {
+			return FilterPipeline.parse(spec);
+		} catch(IllegalArgumentException e) {
+			logger.log(Logger.LVL_ERROR, "Invalid filter pipeline for " + source + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	private FilterPipeline pipelineFor(ScanJob job) { return FilterPipeline.forPath(job.getPath(), dirPipelines, defaultPipeline); }
+
+	// directories with filters of their own keep them, only the default pipeline adapts
+	private boolean isAdaptive(ScanJob job) { return ladder != null && pipelineFor(job) == ladder.get(0); }
+
+	// called by the watcher for deleted files and directories
+	private void removeImages(Path path) {
+		String abs = path.toAbsolutePath().toString();
+		if(knownImages != null)
+			knownImages.removeIf(p -> p.equals(abs) || p.startsWith(abs + File.separator)); // a gone file can't lend its result anymore
+		int removed = imgDB.removeResults(abs);
+		if(removed > 0)
+			logger.log(Logger.LVL_INFO, "'" + path + "' was deleted, removed " + removed + " images from the database.");
+	}
+
+	// without a recognized page the text/confidence calls would start a recognition of their own, one without a time limit
+	private void recognize(TessBaseAPI handle, OCRMonitor monitor) throws TimeoutException {
+		int rc = TessAPI1.TessBaseAPIRecognize(handle, monitor.desc);
+		if(monitor.aborted) {
+			TessAPI1.TessBaseAPIClear(handle); // drops the half read page, the handle goes on with the next image
+			if(cancelled)
+				throw new CancellationException("Scan was cancelled");
+			throw new TimeoutException("OCR took longer than " + config.curConfig.ocrTimeout + "s, the image is quarantined");
+		}
+		if(rc != 0)
+			throw new IllegalStateException("Tesseract could not recognize the image");
+	}
+
+	// the tesseract instances of one ocr worker, one per language combination, the least recently used one goes if there are too many
+	private class OCRHandles {
+		private final Map<String, TessBaseAPI> handles = new LinkedHashMap<String, TessBaseAPI>(8, 0.75f, true);
+		private final Set<String> failed = new HashSet<String>();
+
+		// combinations tesseract can't load are read with all languages, null only if those fail too
+		TessBaseAPI get(String langs) {
+			TessBaseAPI handle = handles.get(langs);
+			if(handle != null)
+				return handle;
+
+			if(!failed.contains(langs)) {
+				handle = createHandle(langs);
+				if(handle != null) {
+					handles.put(langs, handle);
+					evict();
+					return handle;
+				}
+				failed.add(langs);
+				logger.log(Logger.LVL_WARN, "Tesseract init failed for '" + langs + "', using " + languages + " instead.");
+			}
+
+			return langs.equals(languages) ? null : get(languages);
+		}
+
+		// the one with all languages stays, it is the fallback
+		private void evict() {
+			Iterator<Map.Entry<String, TessBaseAPI>> it = handles.entrySet().iterator();
+			while(handles.size() > MAX_HANDLES && it.hasNext()) {
+				Map.Entry<String, TessBaseAPI> e = it.next();
+				if(e.getKey().equals(languages))
+					continue;
+				end(e.getValue());
+				it.remove();
+			}
+		}
+
+		void close() {
+			for(TessBaseAPI handle : handles.values())
+				end(handle);
+			handles.clear();
+		}
+
+		private void end(TessBaseAPI handle) {
+			TessAPI1.TessBaseAPIEnd(handle); // clean up
+			TessAPI1.TessBaseAPIDelete(handle);
+		}
+	}
+
+	// tesseract asks this every few words whether it should give up
+	private class OCRMonitor implements ITessAPI.CANCEL_FUNC {
+		final ITessAPI.ETEXT_DESC desc = new ITessAPI.ETEXT_DESC(); // one per worker, also keeps the callback from being collected
+		private long deadline;
+		private boolean limited;
+		boolean aborted;
+
+		OCRMonitor() { desc.cancel = this; }
+
+		void start(int timeoutSec) {
+			limited = timeoutSec > 0;
+			deadline = System.nanoTime() + timeoutSec * 1000000000L;
+			aborted = false;
+		}
+
+		@Override
+		public boolean invoke(Pointer cancelThis, int words) {
+			if(cancelled || (limited && System.nanoTime() - deadline > 0))
+				aborted = true;
+			return aborted;
+		}
+	}
+
+	// the words of the last recognition in reading order, their boxes relative to the whole image (job.extent)
+	private void readWords(TessBaseAPI handle, ScanJob job, List<WordBoxes.Word> words) {
+		ITessAPI.TessResultIterator it = TessAPI1.TessBaseAPIGetIterator(handle);
+		if(it == null) // nothing recognized
+			return;
+
+		int level = ITessAPI.TessPageIteratorLevel.RIL_WORD;
+		Rectangle e = job.extent;
+		int dx = e.x - job.regionOffset, dy = e.y - job.regionOffset; // frame -> scaled image: remove the border, undo the crop
+		IntBuffer left = IntBuffer.allocate(1), top = IntBuffer.allocate(1), right = IntBuffer.allocate(1), bottom = IntBuffer.allocate(1);
+		try {
+			ITessAPI.TessPageIterator page = TessAPI1.TessResultIteratorGetPageIterator(it);
+			do {
+				Pointer textPtr = TessAPI1.TessResultIteratorGetUTF8Text(it, level);
+				if(textPtr == null)
+					continue;
+				String text = textPtr.getString(0, "UTF-8").trim();
+				TessAPI1.TessDeleteText(textPtr);
+				if(text.isEmpty())
+					continue;
+
+				int conf = Math.round(TessAPI1.TessResultIteratorConfidence(it, level));
+				TessAPI1.TessPageIteratorBoundingBox(page, level, left, top, right, bottom);
+				int x = WordBoxes.toScale(left.get(0) + dx, e.width), y = WordBoxes.toScale(top.get(0) + dy, e.height);
+				words.add(new WordBoxes.Word(text, conf, x, y,
+						WordBoxes.toScale(right.get(0) + dx, e.width) - x, WordBoxes.toScale(bottom.get(0) + dy, e.height) - y));
+			} while(TessAPI1.TessResultIteratorNext(it, level) == ITessAPI.TRUE);
+		} finally {
+			TessAPI1.TessResultIteratorDelete(it);
+		}
+	}
+
+	private Mat findTextRegions(ScanJob job, Mat in) {
+		ImageManipulation imgManipulator = controller.getIMGManipulator();
+		long start = System.nanoTime();
+		List<Rectangle> regions = imgManipulator.findTextRegions(in);
+		metrics.record("filter.regions", System.nanoTime() - start);
+
+		Mat out = in;
+		if(config.curConfig.textLineHeight > 0)
+			out = applyFilter("filter.textheight", out, m -> imgManipulator.normalizeTextHeight(m, regions, config.curConfig.textLineHeight, config.curConfig.maxImgDimension));
+		if(!config.curConfig.flTextRegions || regions.isEmpty()) // nothing found is more likely a miss than an image without text
+			return out;
+
+		long area = 0;
+		for(Rectangle r : regions)
+			area += (long)r.width * r.height;
+		if(area > MAX_REGION_COVERAGE * out.rows() * out.cols())
+			return out;
+
+		Rectangle cropped = new Rectangle();
+		int fullWidth = out.cols(), fullHeight = out.rows();
+		out = applyFilter("filter.crop", out, m -> imgManipulator.cropToRegions(m, regions, cropped));
+		job.regions = regions;
+		job.extent = new Rectangle(cropped.x, cropped.y, fullWidth, fullHeight);
+		logger.log(Logger.LVL_DEBUG, "'" + job.getPath() + "': " + regions.size() + " text regions, cropped to " + out.cols() + "x" + out.rows() + ".");
+
+		return out;
+	}
+
+	private Mat applyFilter(String timer, Mat in, UnaryOperator<Mat> filter) {
+		long start = System.nanoTime();
+		Mat out = filter.apply(in);
+		metrics.record(timer, System.nanoTime() - start);
+
+		return out;
+	}
+
+	private static String hashContent(byte[] data) {
+		MessageDigest md5 = newDigest();
+		md5.update(data);
+
+		return toHex(md5.digest());
+	}
+
+	private static String hashContent(Path path) throws IOException {
+		MessageDigest md5 = newDigest();
+		byte[] buf = new byte[64 * 1024];
+		try(InputStream in = Files.newInputStream(path)) {
+			for(int n; (n = in.read(buf)) > 0; )
+				md5.update(buf, 0, n);
+		}
+
+		return toHex(md5.digest());
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("MD5");
+		} catch(NoSuchAlgorithmException e) { // every jre has to ship md5
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] digest) {
+		StringBuilder sb = new StringBuilder(digest.length * 2);
+		for(byte b : digest)
+			sb.append(String.format("%02x", b));
+
+		return sb.toString();
+	}
+	
+	// keep the pipeline running after the scan and feed it with changes to the directory, until stopWatching()
+	public void setWatchMode(boolean watch) { watchMode = watch; }
+
+	public void stopWatching() {
+		watchMode = false;
+		DirectoryWatcher w = watcher;
+		if(w != null)
+			w.stop();
+	}
+
+	// stops the scan as soon as possible: queued images are dropped and a running ocr gives up, finished results are still written
+	public void cancel() {
+		cancelled = true;
+		stopWatching();
+		Thread t = scanThread;
+		if(t != null)
+			t.interrupt();
+	}
+
+	public boolean isCancelled() { return cancelled; }
+
+	// read every image again even if it didn't change, e.g. after the filters were changed
+	public void setReprocess(boolean reprocess) { this.reprocess = reprocess; }
+
+	// called from the persist stage for every image that was ocr'd
+	public void setResultListener(Consumer<ScanJob> l) { resultListener = l; }
+
+	// metrics of the running (or last) scan, null before the scan started
+	public ScanMetrics getMetrics() { return metrics; }
+
+	public long getProcessedCount() { return metrics != null ? metrics.getImagesProcessed() : 0; }
+
+	public long getSkippedCount() { return metrics != null ? metrics.getImagesSkipped() : 0; }
+
+	public long getFailedCount() { return metrics != null ? metrics.getImagesFailed() : 0; }
+
+	@Override
+	public void run() {
+		logger.log(Logger.LVL_INFO, "Image scanning thread started.");
+		scanDirectory(scanPath);
+	}
+}
@@ -0,0 +1,42 @@
+package gutzufusss.wrapper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+// a connection together with its prepared statements, they stay open and are reused by sql text
+public class PooledConnection {
+	private final Connection connection;
+	private final boolean readOnly;
+	private final Map<String, PreparedStatement> statements = new HashMap<String, PreparedStatement>(); // the app only has a handful of statements, no eviction needed
+
+	PooledConnection(Connection connection, boolean readOnly) {
+		this.connection = connection;
+		this.readOnly = readOnly;
+	}
+
+	// the returned statement belongs to the cache, don't close it (its result sets still have to be closed)
+	public synchronized PreparedStatement prepare(String sql) throws SQLException {
+		PreparedStatement stmt = statements.get(sql);
+		if(stmt == null || stmt.isClosed()) {
+			stmt = connection.prepareStatement(sql);
+			stmt.setQueryTimeout(SQLWrapper.QUERY_TIMEOUT);
+			statements.put(sql, stmt);
+		}
+
+		return stmt;
+	}
+
+	public Connection getConnection() { return connection; }
+
+	public boolean isReadOnly() { return readOnly; }
+
+	synchronized void close() throws SQLException {
+		for(PreparedStatement stmt : statements.values())
+			stmt.close();
+		statements.clear();
+		connection.close();
+	}
+}
@@ -0,0 +1,152 @@
+package gutzufusss.wrapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import gutzufusss.util.Logger;
+
+public abstract class SQLWrapper {
+	protected 	static final String 	DB_PATH 			= "db/img_finder_data.db";
+	public 		static final String 	DB_PATH_PROPERTY 	= "imgfinder.db";	// -Dimgfinder.db=<file> uses another database, e.g. for the benchmarks
+	protected 	static final int 		QUERY_TIMEOUT 		= 30;
+
+	protected 	static final Object 	WRITE_LOCK 			= new Object();	// held for every write on the shared writer, keeps a transaction from picking up foreign statements
+
+	private static ConnectionPool pool = null;	// shared by all controllers, it's one database file
+	protected PooledConnection connection = null;	// the writer
+	private ConnectionPool connectionPool = null;	// the pool the writer belongs to, it is stale once that one is shut down
+	protected static Logger logger;
+
+	// every query gets its own statement, it is closed together with the result set (so one query can't close another one's results)
+	public final ResultSet execQuerry(String query) {
+		createConnectionIfNeeded();
+		ResultSet resultOfQuery = null;
+		try {
+			logger.log(Logger.LVL_DEBUG, "Executing querry: " + query);
+			Statement statement = createStatement(connection.getConnection());
+			statement.closeOnCompletion();
+			resultOfQuery = statement.executeQuery(query);
+		} catch(SQLException e) {
+			logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage());
+		}
+
+		return resultOfQuery;
+	}
+
+	public final void execSQL(String sql) {
+		createConnectionIfNeeded();
+		synchronized(WRITE_LOCK) {
+			try(Statement statement = createStatement(connection.getConnection())) {
+				logger.log(Logger.LVL_DEBUG, "Executing sql: " + sql);
+				statement.executeUpdate(sql);
+				writeCommitted();
+			} catch(SQLException e) {
+				logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage());
+			}
+		}
+	}
+	
+	public static void checkDB() {
+		File db = new File(getDBPath()).getAbsoluteFile();
+
+		try {
+			if(!db.exists()) {
+				if(!db.getParentFile().exists()) // also check if we have to create the db directory
+					db.getParentFile().mkdirs();
+				if(db.createNewFile()) {
+					logger.log(Logger.LVL_INFO, "Database has been created. Attempting to create tables...");
+				} else {
+					logger.log(Logger.LVL_FATAL, "Could not open nor create database!!! Shutting down.");
+				}
+			}
+			else 
+				logger.log(Logger.LVL_INFO, "Database system is up and running.");
+
+		} catch(IOException e) {
+			logger.log(Logger.LVL_FATAL, "I/O error occured while creating database: " + e.getMessage());
+		}
+	}
+
+	public abstract void tableCheck() throws SQLException;
+
+	// called after every committed write, e.g. to invalidate caches
+	protected void writeCommitted() {
+	}
+
+	// START_MISC_FUNCTIONS
+	// closes the connections of all controllers, they reconnect on their next statement
+	public static void shutdown() {
+		synchronized(SQLWrapper.class) {
+			if(pool != null)
+				pool.close();
+			pool = null;
+		}
+
+		logger.log(Logger.LVL_DEBUG, "Database shutdown.");
+	}
+	
+	public static void setLogger(Logger l) { logger = l; }
+
+	protected static synchronized ConnectionPool getPool() {
+		if(pool == null)
+			pool = new ConnectionPool(logger, getDBPath());
+		return pool;
+	}
+
+	// read whenever the pool is opened, so a changed path takes effect after shutdown()
+	public static String getDBPath() { return System.getProperty(DB_PATH_PROPERTY, DB_PATH); }
+
+	protected final Statement createStatement(Connection connection) throws SQLException {
+		Statement statement = connection.createStatement();
+		statement.setQueryTimeout(QUERY_TIMEOUT);
+
+		return statement;
+	}
+
+	protected final void createConnectionIfNeeded() {
+		ConnectionPool current = getPool();
+		if(isConnectionOpened() && connectionPool == current)
+			return;
+
+		try {
+			logger.log(Logger.LVL_DEBUG, "Trying to establish connection.");
+			connection = null;
+			connection = current.getWriter();
+			connectionPool = current;
+		} catch(SQLException e) {
+			logger.log(Logger.LVL_ERROR, "SQL-Error: " + e.getErrorCode() + " - " + e.getMessage());
+		}
+	}
+
+	// statements of the writer are cached, don't close them
+	protected final PreparedStatement prepareStatement(String sql) throws SQLException {
+		createConnectionIfNeeded();
+		if(connection == null)
+			throw new SQLException("No database connection");
+
+		return connection.prepare(sql);
+	}
+
+	// reads go through the pool so they don't queue up behind the writer, give the connection back with returnReader()
+	protected final PooledConnection borrowReader() throws SQLException {
+		return getPool().borrowReader();
+	}
+
+	protected final void returnReader(PooledConnection reader) {
+		getPool().returnReader(reader);
+	}
+
+	protected final boolean tableExists(String table) throws SQLException {
+		try(ResultSet result = execQuerry("SELECT name FROM sqlite_master WHERE type='table' AND name='" + table + "';")) {
+			return result != null && result.next();
+		}
+	}
+
+	protected final boolean isConnectionOpened() { return connection != null; }
+	// END_MISC_FUNCTIONS
+}
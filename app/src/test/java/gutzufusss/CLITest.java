@@ -0,0 +1,47 @@
+package gutzufusss;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CLITest {
+	private static PrintStream err;
+
+	@BeforeClass
+	public static void hideUsage() {
+		err = System.err;
+		System.setErr(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		}));
+	}
+
+	@AfterClass
+	public static void restoreErr() {
+		System.setErr(err);
+	}
+
+	@Test
+	public void stringsAreEscapedForJson() {
+		assertEquals("null", CLI.json(null));
+		assertEquals("\"\"", CLI.json(""));
+		assertEquals("\"C:\\\\img\\\\\\\"a\\\".png\"", CLI.json("C:\\img\\\"a\".png"));
+		assertEquals("\"a\\nb\\r\\tc\"", CLI.json("a\nb\r\tc"));
+		assertEquals("\"\\u0000\\u001f\"", CLI.json("\u0000\u001f"));
+		assertEquals("\"Stra\u00dfe \u20ac\"", CLI.json("Stra\u00dfe \u20ac")); // unicode stays as it is
+	}
+
+	@Test
+	public void badArgumentsPrintTheUsage() {
+		assertEquals(CLI.EXIT_USAGE, new CLI().run(new String[0]));
+		assertEquals(CLI.EXIT_USAGE, new CLI().run(new String[] {"scan"}));
+		assertEquals(CLI.EXIT_USAGE, new CLI().run(new String[] {"scan", "dir", "--threads", "many"}));
+		assertEquals(CLI.EXIT_USAGE, new CLI().run(new String[] {"search", "cat", "--limit"}));
+	}
+}
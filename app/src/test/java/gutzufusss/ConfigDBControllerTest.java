@@ -0,0 +1,134 @@
+package gutzufusss;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import gutzufusss.util.Config;
+import gutzufusss.util.Logger;
+import gutzufusss.wrapper.SQLWrapper;
+
+// runs against the database in db/ of the working directory, every test uses names of its own
+public class ConfigDBControllerTest {
+	private static Config config;
+	private static ConfigDBController configDB;
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@BeforeClass
+	public static void openDB() throws SQLException {
+		Logger logger = new Logger(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		}));
+		SQLWrapper.setLogger(logger);
+		SQLWrapper.checkDB();
+		config = new Config(logger);
+		configDB = config.getConfigDB();
+		configDB.tableCheck();
+	}
+
+	@AfterClass
+	public static void closeDB() {
+		SQLWrapper.shutdown();
+	}
+
+	@Test
+	public void savedSettingsAreLoadedAgain() {
+		Config.ConfigVariables v = config.new ConfigVariables();
+		v.configName = "test_" + UUID.randomUUID();
+		v.logLevel = Logger.LVL_WARN;
+		v.scanThreads = 3;
+		v.dedupDistance = 5;
+		v.languages = "eng";
+		v.excludeGlobs = "**/it's here/**"; // quotes used to end the sql string
+		v.filterPipeline = "grayscale, binary(threshold=140)";
+		v.adaptivePipelines = "";
+		v.watchMode = true;
+		v.flSmooth = false;
+		configDB.saveConfig(v);
+
+		Config.ConfigVariables loaded = config.new ConfigVariables();
+		assertTrue(configDB.loadConfig(v.configName, loaded));
+		assertEquals(Logger.LVL_WARN, loaded.logLevel);
+		assertEquals(3, loaded.scanThreads);
+		assertEquals(5, loaded.dedupDistance);
+		assertEquals("eng", loaded.languages);
+		assertEquals("**/it's here/**", loaded.excludeGlobs);
+		assertEquals("grayscale, binary(threshold=140)", loaded.filterPipeline);
+		assertTrue(loaded.watchMode);
+		assertFalse(loaded.flSmooth);
+
+		v.filterPipeline = "smooth";
+		configDB.saveConfig(v); // updates the row
+		assertTrue(configDB.loadConfig(v.configName, loaded));
+		assertEquals("smooth", loaded.filterPipeline);
+	}
+
+	@Test
+	public void controllersReconnectAfterAShutdown() throws SQLException {
+		ImageDBController imgDB = new ImageDBController();
+		imgDB.tableCheck(); // both controllers hold the writer now
+		String dir = "/test/" + UUID.randomUUID();
+		configDB.setDirPipeline(dir, "grayscale");
+
+		SQLWrapper.shutdown();
+		configDB.setDirPipeline(dir, "smooth");
+		assertEquals("smooth", configDB.getDirPipelines().get(dir));
+		assertTrue(imgDB.search("t" + UUID.randomUUID().toString().replace("-", ""), 5).isEmpty());
+		imgDB.tableCheck();
+	}
+
+	@Test
+	public void theDatabaseFileCanBeChanged() throws IOException, SQLException {
+		File other = new File(tmp.getRoot(), "sub/other.db");
+		String dir = "/test/" + UUID.randomUUID();
+		System.setProperty(SQLWrapper.DB_PATH_PROPERTY, other.getPath());
+		try {
+			SQLWrapper.shutdown();
+			SQLWrapper.checkDB();
+			assertTrue(other.exists());
+			configDB.tableCheck();
+			configDB.setDirPipeline(dir, "grayscale");
+			assertEquals("grayscale", configDB.getDirPipelines().get(dir));
+		} finally {
+			System.clearProperty(SQLWrapper.DB_PATH_PROPERTY);
+			SQLWrapper.shutdown();
+		}
+
+		assertEquals("db/img_finder_data.db", SQLWrapper.getDBPath());
+		assertNull(configDB.getDirPipelines().get(dir)); // back in the regular database
+	}
+
+	@Test
+	public void unknownConfigsAreNotLoaded() {
+		assertFalse(configDB.loadConfig("test_" + UUID.randomUUID(), config.new ConfigVariables()));
+	}
+
+	@Test
+	public void directoryPipelinesCanBeSetAndRemoved() {
+		String dir = "/test/" + UUID.randomUUID();
+		configDB.setDirPipeline(dir, "grayscale");
+		configDB.setDirPipeline(dir, "grayscale, smooth");
+		assertEquals("grayscale, smooth", configDB.getDirPipelines().get(dir));
+
+		configDB.setDirPipeline(dir, null);
+		assertNull(configDB.getDirPipelines().get(dir));
+	}
+}
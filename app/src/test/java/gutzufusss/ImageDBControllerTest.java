@@ -0,0 +1,258 @@
+package gutzufusss;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import gutzufusss.ImageDBController.FileInfo;
+import gutzufusss.ImageDBController.QuarantineEntry;
+import gutzufusss.ImageDBController.SearchHit;
+import gutzufusss.util.Logger;
+import gutzufusss.util.WordBoxes;
+import gutzufusss.wrapper.SQLWrapper;
+
+// runs against the database in db/ of the working directory, every test uses paths of its own
+public class ImageDBControllerTest {
+	private static ImageDBController db;
+	private String dir;
+
+	@BeforeClass
+	public static void openDB() throws SQLException {
+		SQLWrapper.setLogger(new Logger(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		})));
+		SQLWrapper.checkDB();
+		db = new ImageDBController();
+		db.tableCheck();
+	}
+
+	@AfterClass
+	public static void closeDB() {
+		db.flushResults();
+		SQLWrapper.shutdown();
+	}
+
+	@Before
+	public void newDir() {
+		dir = "/test/" + UUID.randomUUID() + "/";
+		db.flushResults(); // also restarts the flush timer
+	}
+
+	@Test
+	public void resultsAreOnlyCommittedWithTheBatch() {
+		db.addResult("a.png", dir + "a.png", 100, 1000, "hash-a", 0, "some text", null, 80);
+
+		assertNull(db.getFileInfo(dir + "a.png"));
+		assertEquals("some text", db.getResult(dir + "a.png").text); // the scan still sees its own result
+
+		db.flushResults();
+		FileInfo info = db.getFileInfo(dir + "a.png");
+		assertNotNull(info);
+		assertEquals(100, info.size);
+		assertEquals(1000, info.lastModified);
+		assertEquals("hash-a", info.contentHash);
+		assertEquals(80, db.getResult(dir + "a.png").confidence);
+	}
+
+	@Test
+	public void rescansReplaceTheRow() throws SQLException {
+		db.addResult("a.png", dir + "a.png", 100, 1000, "hash-a", 0, "old text", null, 50);
+		db.flushResults();
+		db.addResult("a.png", dir + "a.png", 120, 2000, "hash-b", 0, "new text", null, 90);
+		db.flushResults();
+
+		assertEquals(1, countRows(dir + "a.png"));
+		assertEquals("new text", db.getResult(dir + "a.png").text);
+		assertEquals("hash-b", db.getFileInfo(dir + "a.png").contentHash);
+	}
+
+	@Test
+	public void fileInfoUpdatesAreBatchedToo() {
+		db.addResult("a.png", dir + "a.png", 100, 1000, "hash-a", 0, "text", null, 80);
+		db.flushResults();
+
+		db.updateFileInfo(dir + "a.png", 100, 5000);
+		assertEquals(1000, db.getFileInfo(dir + "a.png").lastModified);
+		db.flushResults();
+		assertEquals(5000, db.getFileInfo(dir + "a.png").lastModified);
+		assertEquals("hash-a", db.getFileInfo(dir + "a.png").contentHash);
+	}
+
+	@Test
+	public void fullBatchesAreWrittenRightAway() {
+		for(int i = 0; i < ImageDBController.WRITE_BATCH_SIZE; i++)
+			db.addResult(i + ".png", dir + i + ".png", i, i, "hash-" + i, 0, "text " + i, null, 70);
+
+		assertNotNull(db.getFileInfo(dir + "0.png"));
+		assertNotNull(db.getFileInfo(dir + (ImageDBController.WRITE_BATCH_SIZE - 1) + ".png"));
+	}
+
+	@Test
+	public void userInputBecomesQuotedFtsTerms() {
+		assertEquals("\"invoice\" \"2019\"", ImageDBController.toFtsQuery("invoice 2019"));
+		assertEquals("\"e-mail\" \"a:b\"", ImageDBController.toFtsQuery("e-mail a:b"));
+		assertEquals("\"tax return\" OR \"refund\"*", ImageDBController.toFtsQuery("\"tax return\" OR refund*"));
+		assertEquals("( \"a\" OR \"b\" ) NOT \"c\"", ImageDBController.toFtsQuery("(a OR b) NOT c"));
+		assertEquals("\"it's\"", ImageDBController.toFtsQuery("it's"));
+		assertEquals("", ImageDBController.toFtsQuery("  \"\" "));
+	}
+
+	@Test
+	public void searchFindsWordsPhrasesAndPrefixes() {
+		String tag = tag();
+		db.addResult("a.png", dir + "a.png", 1, 1, "a", 0, tag + " quarterly invoice for the garden", null, 90);
+		db.addResult("b.png", dir + "b.png", 1, 1, "b", 0, tag + " the garden invoice, quarterly", null, 90);
+		db.addResult("c.png", dir + "c.png", 1, 1, "c", 0, tag + " caf\u00e9 menu", null, 90);
+		db.flushResults();
+
+		assertEquals(2, db.search(tag + " invoice", 10).size());
+		assertEquals(2, db.countMatches(tag + " invoice"));
+		assertEquals(dir + "a.png", db.search(tag + " \"quarterly invoice\"", 10).get(0).absPath);
+		assertEquals(1, db.search(tag + " \"quarterly invoice\"", 10).size());
+		assertEquals(2, db.search(tag + " invo*", 10).size());
+		assertEquals(1, db.search(tag + " cafe", 10).size()); // accents don't matter
+		assertEquals(1, db.search(tag + " NOT garden", 10).size());
+		assertEquals(0, db.search(tag + " invoice:garden-", 10).size()); // no syntax error
+
+		SearchHit hit = db.search(tag + " menu", 10).get(0);
+		assertEquals("c.png", hit.name);
+		assertTrue(hit.snippet, hit.snippet.contains("[menu]"));
+	}
+
+	@Test
+	public void pagesContinueAfterTheLastHit() {
+		String tag = tag();
+		for(int i = 0; i < 5; i++)
+			db.addResult(i + ".png", dir + i + ".png", 1, 1, "h" + i, 0, tag + " page", null, 90);
+		db.flushResults();
+
+		List<SearchHit> first = db.search(tag, 3);
+		List<SearchHit> second = db.search(tag, first.get(2), 3);
+		assertEquals(3, first.size());
+		assertEquals(2, second.size());
+		for(SearchHit a : first)
+			for(SearchHit b : second)
+				assertFalse(a.id == b.id);
+	}
+
+	@Test
+	public void searchesAreCachedUntilTheNextCommit() {
+		String tag = tag();
+		db.addResult("a.png", dir + "a.png", 1, 1, "a", 0, tag, null, 90);
+		db.flushResults();
+
+		assertEquals(1, db.search(tag, 10).size());
+		long hits = db.getSearchCache().getHits();
+		assertEquals(1, db.search(tag, 10).size());
+		assertEquals(hits + 1, db.getSearchCache().getHits());
+
+		db.addResult("b.png", dir + "b.png", 1, 1, "b", 0, tag, null, 90);
+		assertEquals(1, db.search(tag, 10).size()); // nothing committed yet
+		db.flushResults();
+		assertEquals(2, db.search(tag, 10).size());
+		db.removeResults(dir + "a.png");
+		assertEquals(1, db.search(tag, 10).size());
+	}
+
+	@Test
+	public void queryTermsAreTheSearchedWords() {
+		assertEquals(Arrays.asList("tax", "return", "refund*", "a-b"), ImageDBController.queryTerms("\"tax return\" OR (refund* NOT a-b)"));
+		assertEquals(Arrays.asList("big", "red*"), ImageDBController.queryTerms("\"big red\"*"));
+		assertEquals(Arrays.asList(), ImageDBController.queryTerms(" AND \"\" () "));
+	}
+
+	@Test
+	public void hitsKnowWhereTheirWordsAre() {
+		String tag = tag();
+		List<WordBoxes.Word> words = Arrays.asList(
+				new WordBoxes.Word(tag, 90, 100, 100, 300, 40),
+				new WordBoxes.Word("Invoice", 85, 500, 100, 200, 40),
+				new WordBoxes.Word("total", 60, 100, 900, 150, 40));
+		db.addResult("a.png", dir + "a.png", 1, 1, "a", 0, tag + " Invoice total", WordBoxes.pack(words), 80);
+		db.addResult("b.png", dir + "b.png", 1, 1, "b", 0, tag + " from an older version", null, 80);
+		db.flushResults();
+
+		SearchHit hit = db.search(tag + " invoice", 10).get(0);
+		List<WordBoxes.Word> found = db.getHitLocations(hit, tag + " invoice");
+		assertEquals(2, found.size());
+		assertEquals(500, found.get(1).x);
+		assertEquals(85, found.get(1).conf);
+
+		SearchHit old = db.search(tag + " older", 10).get(0);
+		assertTrue(db.getHitLocations(old, tag + " older").isEmpty());
+	}
+
+	@Test
+	public void imagesThatFailAreSkippedUntilTheyChange() {
+		db.markRunning(dir + "a.png", 100, 1000);
+		assertNull(db.getQuarantineReason(dir + "a.png", 100, 1000)); // still being read
+		db.quarantine(dir + "a.png", ImageDBController.Q_TIMEOUT);
+
+		assertEquals(ImageDBController.Q_TIMEOUT, db.getQuarantineReason(dir + "a.png", 100, 1000));
+		assertNull(db.getQuarantineReason(dir + "a.png", 100, 2000));
+		QuarantineEntry e = quarantined(dir + "a.png");
+		assertEquals(1, e.attempts);
+
+		db.removeFromQuarantine(dir + "a.png");
+		assertNull(quarantined(dir + "a.png"));
+	}
+
+	@Test
+	public void theRunningMarkIsClearedWithTheResult() {
+		db.markRunning(dir + "a.png", 100, 1000);
+		db.addResult("a.png", dir + "a.png", 100, 1000, "hash-a", 0, "text", null, 80);
+		db.flushResults();
+		db.recoverCrashed();
+
+		assertNull(quarantined(dir + "a.png"));
+	}
+
+	@Test
+	public void imagesOnlyCountAsCrashingAfterRepeatedCrashes() {
+		for(int crash = 1; crash <= ImageDBController.MAX_CRASHES; crash++) {
+			db.markRunning(dir + "a.png", 100, 1000);
+			assertTrue(db.recoverCrashed() >= 1); // the next start finds the mark
+			assertEquals(crash, quarantined(dir + "a.png").attempts);
+		}
+		assertEquals(ImageDBController.Q_CRASHED, db.getQuarantineReason(dir + "a.png", 100, 1000));
+
+		assertTrue(db.clearQuarantine() >= 1);
+		assertNull(db.getQuarantineReason(dir + "a.png", 100, 1000));
+	}
+
+	// a word no other test wrote
+	private static String tag() {
+		return "t" + UUID.randomUUID().toString().replace("-", "");
+	}
+
+	private static QuarantineEntry quarantined(String absPath) {
+		for(QuarantineEntry e : db.getQuarantine())
+			if(e.absPath.equals(absPath))
+				return e;
+		return null;
+	}
+
+	private static int countRows(String absPath) throws SQLException {
+		try(ResultSet result = db.execQuerry("SELECT count(*) FROM " + ImageDBController.TABLE_IMG + " WHERE abs_path = '" + absPath + "';")) {
+			result.next();
+			return result.getInt(1);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package gutzufusss;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import gutzufusss.ImageDBController.SearchHit;
+
+public class SearchCacheTest {
+	@Test
+	public void entriesOfOlderGenerationsAreStale() {
+		SearchCache cache = new SearchCache(null, SearchCache.MAX_BYTES);
+		cache.put("\"invoice\"", 10, 1, hits(3));
+
+		assertEquals(3, cache.get("\"invoice\"", 10, 1).size());
+		assertNull(cache.get("\"invoice\"", 10, 2));
+		assertNull(cache.get("\"invoice\"", 10, 1)); // dropped by the miss above
+		assertEquals(1, cache.getInvalidations());
+		assertEquals(0, cache.getEntries());
+		assertEquals(0, cache.getSizeBytes());
+	}
+
+	@Test
+	public void smallerLimitsAreServedFromBiggerResults() {
+		SearchCache cache = new SearchCache(null, SearchCache.MAX_BYTES);
+		cache.put("full", 10, 1, hits(10));
+		cache.put("short", 10, 1, hits(4)); // there are no more than 4
+
+		assertEquals(5, cache.get("full", 5, 1).size());
+		assertNull(cache.get("full", 20, 1));
+		assertEquals(4, cache.get("short", 50, 1).size());
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void callersGetTheirOwnList() {
+		SearchCache cache = new SearchCache(null, SearchCache.MAX_BYTES);
+		List<SearchHit> result = hits(3);
+		cache.put("q", 10, 1, result);
+		result.clear();
+		cache.get("q", 10, 1).clear();
+
+		assertEquals(3, cache.get("q", 10, 1).size());
+	}
+
+	@Test
+	public void leastRecentlyUsedEntriesAreEvicted() {
+		SearchCache cache = new SearchCache(null, 4000);
+		cache.put("a", 5, 1, hits(5));
+		cache.put("b", 5, 1, hits(5));
+		cache.get("a", 5, 1);
+		cache.put("c", 5, 1, hits(5));
+		cache.put("d", 5, 1, hits(5));
+		cache.put("e", 5, 1, hits(5)); // one more than fits
+
+		assertNotNull(cache.get("a", 5, 1));
+		assertNull(cache.get("b", 5, 1));
+		assertEquals(1, cache.getEvictions());
+		assertEquals(4, cache.getEntries());
+	}
+
+	@Test
+	public void hugeResultsAreNotCached() {
+		SearchCache cache = new SearchCache(null, 4000);
+		cache.put("big", 100, 1, hits(100));
+
+		assertEquals(0, cache.getEntries());
+		assertNull(cache.get("big", 100, 1));
+	}
+
+	@Test
+	public void aResultReadBeforeAWriteDoesNotReplaceANewerOne() {
+		SearchCache cache = new SearchCache(null, SearchCache.MAX_BYTES);
+		cache.put("q", 10, 2, hits(2));
+		cache.put("q", 10, 2, hits(5)); // same generation, the first one was as good
+
+		assertEquals(2, cache.get("q", 10, 2).size());
+	}
+
+	private static List<SearchHit> hits(int n) {
+		List<SearchHit> hits = new ArrayList<SearchHit>();
+		for(int i = 0; i < n; i++) {
+			SearchHit h = new SearchHit();
+			h.id = i;
+			h.name = i + ".png";
+			h.absPath = "/scans/" + i + ".png";
+			h.snippet = "some [text] around the hit";
+			hits.add(h);
+		}
+		return hits;
+	}
+}
@@ -0,0 +1,142 @@
+package gutzufusss.filter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.opencv.core.Mat;
+
+import gutzufusss.util.ImageManipulation;
+import gutzufusss.util.Logger;
+
+public class FilterPipelineTest {
+	@Test
+	public void specsAreNormalized() {
+		FilterPipeline p = FilterPipeline.parse(" Grayscale , binary( threshold = 140 ),smooth(diameter=16, sigmaColor=20), border()");
+
+		assertEquals("grayscale, binary(threshold=140), smooth(diameter=16, sigmaColor=20), border", p.toString());
+		assertEquals(p.toString(), FilterPipeline.parse(p.toString()).toString());
+		assertEquals("none", FilterPipeline.parse("").describePasses());
+	}
+
+	@Test
+	public void brokenSpecsAreRejected() {
+		for(String spec : new String[] {"sharpen", "smooth(radius=3)", "binary(threshold=high)", "smooth(diameter=3", "border(8)", "gray scale"}) {
+			try {
+				FilterPipeline.parse(spec);
+				fail("'" + spec + "' was accepted");
+			} catch(IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void pointOperationsAreFused() {
+		FilterPipeline p = FilterPipeline.parse("grayscale, contrast, binary, smooth, border, contrast(offset=0.5)");
+
+		assertEquals("grayscale+contrast+binary -> smooth -> border -> contrast", p.describePasses());
+		assertEquals(4, p.getPassCount());
+		assertEquals("grayscale + contrast + binary", p.signature(1));
+		assertEquals("grayscale + contrast + binary, smooth, border, contrast(offset=0.5)", p.signature(4));
+		assertTrue(p.discardsColor());
+		assertEquals(6, p.getBorderSize());
+	}
+
+	@Test
+	public void grayAfterColorStartsANewPass() {
+		// contrast on the color image, then gray, is not the same as gray first
+		assertEquals("contrast -> grayscale+binary", FilterPipeline.parse("contrast, grayscale, binary").describePasses());
+		assertEquals("contrast+contrast", FilterPipeline.parse("contrast, contrast(offset=0.2)").describePasses());
+		assertEquals("binary", FilterPipeline.parse("binary").describePasses());
+		assertFalse(FilterPipeline.parse("contrast, smooth").discardsColor());
+	}
+
+	@Test
+	public void signaturesOnlyCoverTheGivenPasses() {
+		FilterPipeline a = FilterPipeline.parse("grayscale, smooth(diameter=16), border");
+		FilterPipeline b = FilterPipeline.parse("grayscale, smooth(diameter=16), border(size=10)");
+		FilterPipeline c = FilterPipeline.parse("grayscale, smooth(diameter=8), border");
+
+		assertEquals(a.signature(2), b.signature(2));
+		assertFalse(a.signature(3).equals(b.signature(3)));
+		assertFalse(a.signature(2).equals(c.signature(2)));
+		assertEquals("", a.signature(0));
+
+		assertFalse(a.isCheckpoint(0));		// cheap to redo
+		assertTrue(a.isCheckpoint(1));		// smooth
+		assertFalse(a.isCheckpoint(2));		// border
+	}
+
+	@Test
+	public void deepestDirectoryWins() {
+		FilterPipeline def = FilterPipeline.parse("grayscale");
+		FilterPipeline scans = FilterPipeline.parse("binary");
+		FilterPipeline photos = FilterPipeline.parse("smooth");
+		Map<String, FilterPipeline> byDir = new HashMap<String, FilterPipeline>();
+		byDir.put(sep("/data/scans"), scans);
+		byDir.put(sep("/data/scans/photos/"), photos);
+
+		assertSame(scans, FilterPipeline.forPath(sep("/data/scans/a.png"), byDir, def));
+		assertSame(photos, FilterPipeline.forPath(sep("/data/scans/photos/b.png"), byDir, def));
+		assertSame(def, FilterPipeline.forPath(sep("/data/scans2/c.png"), byDir, def));
+	}
+
+	@Test
+	public void theDefaultLadderParses() {
+		List<FilterPipeline> ladder = FilterPipeline.parseLadder(FilterPipeline.DEFAULT_LADDER);
+
+		assertEquals(4, ladder.size());
+		assertEquals("grayscale, border", ladder.get(0).toString());
+	}
+
+	@Test
+	public void fusedPassesGiveTheSameImageAsSingleSteps() {
+		ImageManipulation im;
+		try {
+			im = new ImageManipulation(new Logger(new PrintStream(new OutputStream() {
+				@Override
+				public void write(int b) {
+				}
+			})));
+		} catch(Throwable t) {
+			Assume.assumeNoException(t); // needs the opencv natives
+			return;
+		}
+
+		BufferedImage img = new BufferedImage(40, 30, BufferedImage.TYPE_3BYTE_BGR);
+		new Random(3).nextBytes(((DataBufferByte)img.getRaster().getDataBuffer()).getData());
+		String[][] specs = {
+			{"grayscale", "contrast(offset=0.3)", "binary(threshold=100)"},
+			{"contrast", "contrast(offset=-0.2)"},
+			{"grayscale", "binary"}};
+		for(String[] steps : specs) {
+			FilterPipeline fused = FilterPipeline.parse(String.join(", ", steps));
+			assertEquals(1, fused.getPassCount());
+
+			Mat out = im.toMat(img);
+			for(String step : steps)
+				out = FilterPipeline.parse(step).apply(im, out, null);
+			byte[] expected = im.toBytes(out);
+			assertArrayEquals(fused.toString(), expected, im.toBytes(fused.apply(im, im.toMat(img), null)));
+		}
+	}
+
+	private static String sep(String path) {
+		return path.replace('/', java.io.File.separatorChar);
+	}
+}
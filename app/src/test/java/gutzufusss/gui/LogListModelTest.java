@@ -0,0 +1,91 @@
+package gutzufusss.gui;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LogListModelTest {
+	private LogListModel model;
+	private List<String> view; // what a JList would show, built only from the events
+
+	@Before
+	public void listen() {
+		model = new LogListModel(3);
+		view = new ArrayList<String>();
+		model.addListDataListener(new ListDataListener() {
+			@Override
+			public void intervalAdded(ListDataEvent e) {
+				for(int i = e.getIndex0(); i <= e.getIndex1(); i++)
+					view.add(i, model.getElementAt(i));
+			}
+
+			@Override
+			public void intervalRemoved(ListDataEvent e) {
+				view.subList(e.getIndex0(), e.getIndex1() + 1).clear();
+			}
+
+			@Override
+			public void contentsChanged(ListDataEvent e) {
+				for(int i = e.getIndex0(); i <= e.getIndex1(); i++)
+					view.set(i, model.getElementAt(i));
+			}
+		});
+	}
+
+	@Test
+	public void keepsTheNewestLines() {
+		model.addAll(Arrays.asList("1", "2"));
+		assertLines("1", "2");
+		model.addAll(Arrays.asList("3", "4"));
+		assertLines("2", "3", "4");
+		model.addAll(Arrays.asList("5"));
+		assertLines("3", "4", "5");
+		model.addAll(new ArrayList<String>());
+		assertLines("3", "4", "5");
+	}
+
+	@Test
+	public void batchesBiggerThanTheBufferKeepTheirTail() {
+		model.addAll(Arrays.asList("1"));
+		model.addAll(Arrays.asList("2", "3", "4", "5", "6"));
+		assertLines("4", "5", "6");
+	}
+
+	@Test
+	public void shrinkingDropsTheOldestLines() {
+		model.addAll(Arrays.asList("1", "2", "3"));
+		model.setCapacity(2);
+		assertEquals(2, model.getCapacity());
+		assertLines("2", "3");
+		model.addAll(Arrays.asList("4"));
+		assertLines("3", "4");
+	}
+
+	@Test
+	public void growingKeepsEverything() {
+		model.addAll(Arrays.asList("1", "2", "3", "4"));
+		model.setCapacity(5);
+		assertLines("2", "3", "4");
+		model.addAll(Arrays.asList("5", "6", "7"));
+		assertLines("3", "4", "5", "6", "7");
+		model.setCapacity(0); // at least one line
+		assertLines("7");
+	}
+
+	private void assertLines(String... lines) {
+		List<String> shown = new ArrayList<String>();
+		for(int i = 0; i < model.getSize(); i++)
+			shown.add(model.getElementAt(i));
+
+		assertEquals(Arrays.asList(lines), shown);
+		assertEquals(shown, view);
+	}
+}
@@ -0,0 +1,98 @@
+package gutzufusss.gui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.event.TableModelEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import gutzufusss.ImageDBController.SearchHit;
+
+public class ResultTableModelTest {
+	private ResultTableModel model;
+	private List<String> events;
+	private int nextId;
+
+	@Before
+	public void setUp() {
+		model = new ResultTableModel(null); // thumbnails are only asked for by the renderer
+		events = new ArrayList<String>();
+		model.addTableModelListener(e -> events.add((e.getType() == TableModelEvent.INSERT ? "insert " : e.getType() == TableModelEvent.DELETE ? "delete " : "update ") + e.getFirstRow() + "-" + e.getLastRow()));
+	}
+
+	@Test
+	public void pagesAreAppended() {
+		assertNull(model.getLastHit());
+		assertFalse(model.hasMore());
+
+		List<SearchHit> first = page(3);
+		model.addPage(first, true);
+		assertTrue(model.hasMore());
+		assertSame(first.get(2), model.getLastHit());
+
+		List<SearchHit> second = page(2);
+		model.addPage(second, false);
+		assertFalse(model.hasMore());
+		assertEquals(5, model.getRowCount());
+		assertSame(second.get(0), model.getHit(3));
+		assertSame(second.get(1), model.getLastHit());
+		assertEquals("[insert 0-2, insert 3-4]", events.toString());
+	}
+
+	@Test
+	public void anEmptyPageOnlyEndsTheResults() {
+		model.addPage(page(2), true);
+		model.addPage(Collections.<SearchHit>emptyList(), false);
+		assertFalse(model.hasMore());
+		assertEquals(2, model.getRowCount());
+		assertEquals("[insert 0-1]", events.toString());
+	}
+
+	@Test
+	public void clearRemovesEverything() {
+		model.clear();
+		model.addPage(page(4), true);
+		model.clear();
+		assertEquals(0, model.getRowCount());
+		assertFalse(model.hasMore());
+		assertNull(model.getLastHit());
+		assertEquals("[insert 0-3, delete 0-3]", events.toString()); // nothing to tell for the empty model
+	}
+
+	@Test
+	public void columnsShowTheHit() {
+		List<SearchHit> hits = page(1);
+		model.addPage(hits, false);
+		SearchHit hit = hits.get(0);
+
+		assertEquals(ResultTableModel.COLUMNS.length, model.getColumnCount());
+		assertEquals(hit.name, model.getValueAt(0, 1));
+		assertEquals(hit.confidence, model.getValueAt(0, 2));
+		assertEquals(hit.snippet, model.getValueAt(0, 3));
+		assertEquals(hit.absPath, model.getValueAt(0, 4));
+		assertEquals(Integer.class, model.getColumnClass(2));
+	}
+
+	private List<SearchHit> page(int size) {
+		List<SearchHit> page = new ArrayList<SearchHit>();
+		for(int i = 0; i < size; i++) {
+			SearchHit hit = new SearchHit();
+			hit.id = ++nextId;
+			hit.name = "img" + hit.id + ".png";
+			hit.absPath = "/test/" + hit.name;
+			hit.confidence = (int)(hit.id % 100);
+			hit.snippet = "some [text] " + hit.id;
+			page.add(hit);
+		}
+		return page;
+	}
+}
@@ -0,0 +1,127 @@
+package gutzufusss.scan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import gutzufusss.util.Logger;
+
+public class DirectoryWalkerTest {
+	private static final Logger LOGGER = new Logger(new PrintStream(new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+	}));
+	private static final String[] EXTENSIONS = {"png", "JPG", "tif"};
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private Path root;
+	private ScanEngine engine;
+	private boolean finished = false;
+	private Set<String> submitted = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	@Before
+	public void createTree() throws IOException {
+		root = tmp.getRoot().toPath();
+		for(String f : new String[] {"a.png", "b.PNG", "notes.txt", "c.jpg", "sub/d.tif", "sub/e.png.bak", "sub/deeper/f.png",
+				"thumbs/g.png", "sub/thumbs/h.png", "sub/i.tmp.png"}) {
+			Path p = root.resolve(f.replace('/', File.separatorChar));
+			Files.createDirectories(p.getParent());
+			Files.write(p, new byte[] {1});
+		}
+
+		engine = new ScanEngine(LOGGER);
+		engine.addStage("collect", 1, () -> job -> submitted.add(root.relativize(job.file.toPath()).toString().replace(File.separatorChar, '/')));
+		engine.start();
+	}
+
+	@After
+	public void stopEngine() throws InterruptedException {
+		if(!finished)
+			engine.finish();
+	}
+
+	@Test(timeout = 10000)
+	public void findsImagesByExtensionInEveryDirectory() throws Exception {
+		DirectoryWalker walker = new DirectoryWalker(LOGGER, engine, EXTENSIONS, "");
+		assertEquals(8, walker.walk(root, 0, false));
+
+		assertEquals(set("a.png", "b.PNG", "c.jpg", "sub/d.tif", "sub/deeper/f.png", "thumbs/g.png", "sub/thumbs/h.png", "sub/i.tmp.png"), collected());
+	}
+
+	@Test(timeout = 10000)
+	public void excludedPathsAndNamesAreSkipped() throws Exception {
+		DirectoryWalker walker = new DirectoryWalker(LOGGER, engine, EXTENSIONS, "**/thumbs/**, thumbs, *.tmp.png ,");
+		walker.walk(root, 0, false);
+
+		assertEquals(set("a.png", "b.PNG", "c.jpg", "sub/d.tif", "sub/deeper/f.png"), collected());
+	}
+
+	@Test(timeout = 10000)
+	public void depthIsLimited() throws Exception {
+		DirectoryWalker walker = new DirectoryWalker(LOGGER, engine, EXTENSIONS, "");
+		assertEquals(3, walker.walk(root, 1, false));
+		assertEquals(0, walker.walkSubtree(root.resolve("sub"))); // already too deep
+
+		assertEquals(set("a.png", "b.PNG", "c.jpg"), collected());
+	}
+
+	@Test(timeout = 10000)
+	public void laterDirectoriesAndFilesCanBeAdded() throws Exception {
+		List<Path> dirs = new ArrayList<Path>();
+		DirectoryWalker walker = new DirectoryWalker(LOGGER, engine, EXTENSIONS, "*.tmp.png");
+		walker.setDirectoryListener(dirs::add);
+		walker.walk(root, 0, false);
+		assertTrue(dirs.contains(root.resolve("sub").resolve("deeper")));
+
+		Path added = root.resolve("new");
+		Files.createDirectories(added);
+		Files.write(added.resolve("x.png"), new byte[] {1});
+		assertEquals(1, walker.walkSubtree(added));
+
+		Files.write(root.resolve("y.tif"), new byte[] {1});
+		assertTrue(walker.submitFile(root.resolve("y.tif")));
+		assertFalse(walker.submitFile(root.resolve("notes.txt")));
+		assertFalse(walker.submitFile(root.resolve("sub").resolve("i.tmp.png")));
+		assertFalse(walker.submitFile(root.resolve("gone.png")));
+
+		Set<String> found = collected();
+		assertTrue(found.contains("new/x.png"));
+		assertTrue(found.contains("y.tif"));
+	}
+
+	// ends the scan, everything the engine got
+	private Set<String> collected() throws InterruptedException {
+		engine.finish();
+		finished = true;
+
+		return new TreeSet<String>(submitted);
+	}
+
+	private static Set<String> set(String... names) {
+		Set<String> s = new TreeSet<String>();
+		Collections.addAll(s, names);
+		return s;
+	}
+}
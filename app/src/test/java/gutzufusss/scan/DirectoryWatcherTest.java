@@ -0,0 +1,128 @@
+package gutzufusss.scan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import gutzufusss.util.Logger;
+
+// runs a real watcher on a temp directory, every test waits for the debounce time at least once
+public class DirectoryWatcherTest {
+	private static final Logger LOGGER = new Logger(new PrintStream(new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+	}));
+	private static final long SETTLE_MS = DirectoryWatcher.DEBOUNCE_MS + 4 * DirectoryWatcher.POLL_MS;
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private Path root;
+	private ScanEngine engine;
+	private DirectoryWalker walker;
+	private DirectoryWatcher watcher;
+	private Thread watcherThread;
+	private Map<String, Integer> submitted = new ConcurrentHashMap<String, Integer>();
+	private Set<String> deleted = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	@Before
+	public void startWatching() throws Exception {
+		root = tmp.getRoot().toPath();
+		write("a.png");
+		write("gone/b.png");
+		write("gone/deeper/c.png");
+
+		engine = new ScanEngine(LOGGER);
+		engine.addStage("collect", 1, () -> job -> submitted.merge(relative(job.file.toPath()), 1, Integer::sum) > 0);
+		engine.start();
+
+		walker = new DirectoryWalker(LOGGER, engine, new String[] {"png"}, "");
+		watcher = new DirectoryWatcher(LOGGER, walker, p -> deleted.add(relative(p)));
+		assertEquals(3, walker.walk(root, 0, false));
+		waitFor(() -> submitted.size() == 3);
+		submitted.clear();
+
+		watcherThread = new Thread(() -> {
+			try {
+				watcher.run();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, "watcher");
+		watcherThread.start();
+	}
+
+	@After
+	public void stopWatching() throws InterruptedException {
+		watcher.close();
+		watcherThread.join(5000);
+		engine.finish();
+	}
+
+	@Test(timeout = 20000)
+	public void aFileChangedWithinTheDebounceTimeIsSubmittedOnce() throws Exception {
+		write("new.png");
+		Thread.sleep(DirectoryWatcher.DEBOUNCE_MS / 4);
+		Files.write(root.resolve("new.png"), new byte[] {2}, StandardOpenOption.APPEND);
+
+		waitFor(() -> submitted.containsKey("new.png"));
+		Thread.sleep(SETTLE_MS); // a second submission would have shown up by now
+		assertEquals(Collections.singletonMap("new.png", 1), submitted);
+	}
+
+	@Test(timeout = 20000)
+	public void deletedFilesAndDirectoriesAreReported() throws Exception {
+		Files.delete(root.resolve("a.png"));
+		Files.delete(root.resolve("gone/deeper/c.png"));
+		Files.delete(root.resolve("gone/deeper"));
+		Files.delete(root.resolve("gone/b.png"));
+		Files.delete(root.resolve("gone"));
+
+		waitFor(() -> deleted.contains("a.png") && deleted.contains("gone"));
+		assertTrue(submitted.isEmpty());
+	}
+
+	@Test(timeout = 20000)
+	public void newDirectoriesAreWalkedAndWatched() throws Exception {
+		write("later/sub/x.png");
+		waitFor(() -> submitted.containsKey("later/sub/x.png"));
+
+		write("later/sub/y.png"); // only seen if the new directories are watched as well
+		waitFor(() -> submitted.containsKey("later/sub/y.png"));
+		assertEquals(1, (int)submitted.get("later/sub/x.png"));
+	}
+
+	private void write(String name) throws IOException {
+		Path p = root.resolve(name.replace('/', File.separatorChar));
+		Files.createDirectories(p.getParent());
+		Files.write(p, new byte[] {1});
+	}
+
+	private String relative(Path p) {
+		return root.relativize(p).toString().replace(File.separatorChar, '/');
+	}
+
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		while(!condition.getAsBoolean())
+			Thread.sleep(20);
+	}
+}
@@ -0,0 +1,157 @@
+package gutzufusss.scan;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import gutzufusss.scan.FrameCache.Frame;
+import gutzufusss.util.Logger;
+
+public class FrameCacheTest {
+	private static final Logger LOGGER = new Logger(new PrintStream(new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+	}));
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private Path dir;
+
+	@Before
+	public void cacheDir() {
+		dir = tmp.getRoot().toPath().resolve("frames");
+	}
+
+	@Test
+	public void framesSurviveTheRoundTrip() throws IOException {
+		FrameCache cache = new FrameCache(LOGGER, dir, 1 << 20);
+		Frame frame = new Frame(40, 30, 3, 2, 0x1234abcdL, Arrays.asList(new Rectangle(1, 2, 30, 8), new Rectangle(1, 15, 20, 8)),
+				new Rectangle(5, 6, 400, 300), noise(40 * 30 * 3));
+		cache.store("hash", "scale(2000), grayscale, smooth", frame);
+
+		Frame back = cache.load("hash", new String[] {null, null, "scale(2000), grayscale, smooth"});
+		assertNotNull(back);
+		assertEquals(40, back.width);
+		assertEquals(30, back.height);
+		assertEquals(3, back.channels);
+		assertEquals(2, back.passes);
+		assertEquals(0x1234abcdL, back.perceptualHash);
+		assertEquals(frame.regions, back.regions);
+		assertEquals(frame.extent, back.extent);
+		assertArrayEquals(frame.pixels, back.pixels);
+
+		Frame whole = new Frame(4, 4, 1, 0, 0, null, new Rectangle(0, 0, 4, 4), new byte[16]);
+		cache.store("other", "scale(2000)", whole);
+		assertNull(cache.load("other", new String[] {"scale(2000)"}).regions);
+	}
+
+	@Test
+	public void theFurthestValidFrameWins() throws IOException {
+		FrameCache cache = new FrameCache(LOGGER, dir, 1 << 20);
+		cache.store("hash", "s0", frame(0));
+		cache.store("hash", "s0, smooth", frame(1));
+
+		assertEquals(1, cache.load("hash", new String[] {"s0", "s0, smooth", "s0, smooth, swt"}).passes);
+		assertEquals(0, cache.load("hash", new String[] {"s0", "s0, smooth(diameter=8)"}).passes); // a later filter changed
+		assertEquals(0, cache.load("hash", new String[] {"s0", null}).passes);
+		assertNull(cache.load("hash", new String[] {"s1"}));
+		assertNull(cache.load("changed", new String[] {"s0"}));
+	}
+
+	@Test
+	public void theLeastRecentlyUsedFramesGoFirst() throws IOException {
+		long frameBytes = storedSize();
+		FrameCache cache = new FrameCache(LOGGER, dir, frameBytes * 3 + frameBytes / 2);
+		cache.store("a", "s", frame(0));
+		cache.store("b", "s", frame(0));
+		cache.store("c", "s", frame(0));
+		assertNotNull(cache.load("a", new String[] {"s"}));
+		cache.store("d", "s", frame(0));
+
+		assertEquals(3, cache.getFrameCount());
+		assertTrue(cache.getBytes() <= frameBytes * 3 + frameBytes / 2);
+		assertNull(cache.load("b", new String[] {"s"}));
+		assertNotNull(cache.load("a", new String[] {"s"}));
+		assertNotNull(cache.load("d", new String[] {"s"}));
+	}
+
+	@Test
+	public void theCacheSurvivesRestarts() throws IOException {
+		FrameCache cache = new FrameCache(LOGGER, dir, 1 << 20);
+		cache.store("old", "s", frame(0));
+		cache.store("new", "s", frame(0));
+		setAllModified(1000);
+		Files.setLastModifiedTime(fileOf("new"), FileTime.fromMillis(2000));
+		Files.write(dir.resolve("x.frame.7.tmp"), new byte[] {1, 2, 3}); // an interrupted write
+
+		long frameBytes = cache.getBytes() / 2;
+		FrameCache restarted = new FrameCache(LOGGER, dir, frameBytes + frameBytes / 2); // only one fits now
+		assertEquals(1, restarted.getFrameCount());
+		assertNotNull(restarted.load("new", new String[] {"s"}));
+		assertNull(restarted.load("old", new String[] {"s"}));
+		assertFalse(Files.exists(dir.resolve("x.frame.7.tmp")));
+	}
+
+	@Test
+	public void brokenFramesAreDropped() throws IOException {
+		FrameCache cache = new FrameCache(LOGGER, dir, 1 << 20);
+		cache.store("hash", "s", frame(0));
+		Path file = fileOf("hash");
+		byte[] data = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(data, data.length / 2));
+
+		assertNull(cache.load("hash", new String[] {"s"}));
+		assertEquals(0, cache.getFrameCount());
+		assertFalse(Files.exists(file));
+	}
+
+	private static Frame frame(int passes) {
+		return new Frame(32, 32, 1, passes, 0, null, new Rectangle(0, 0, 32, 32), noise(32 * 32));
+	}
+
+	private static byte[] noise(int n) {
+		byte[] b = new byte[n];
+		new Random(n).nextBytes(b); // doesn't compress, so every frame has the same size
+		return b;
+	}
+
+	private long storedSize() throws IOException {
+		FrameCache probe = new FrameCache(LOGGER, tmp.newFolder().toPath(), 1 << 20);
+		probe.store("x", "s", frame(0));
+		return probe.getBytes();
+	}
+
+	private Path fileOf(String contentHash) throws IOException {
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(dir, contentHash + "-*" + FrameCache.EXT)) {
+			return files.iterator().next();
+		}
+	}
+
+	private void setAllModified(long millis) throws IOException {
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+			for(Path p : files)
+				Files.setLastModifiedTime(p, FileTime.fromMillis(millis));
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package gutzufusss.scan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+	@Test
+	public void percentilesAreCloseToTheExactOnes() {
+		Random rnd = new Random(5);
+		LatencyHistogram h = new LatencyHistogram();
+		long[] nanos = new long[10000];
+		for(int i = 0; i < nanos.length; i++) {
+			nanos[i] = (long)(Math.exp(rnd.nextGaussian() * 1.5 + 16)); // log-normal around 9ms, like ocr times
+			h.record(nanos[i]);
+		}
+		Arrays.sort(nanos);
+
+		for(double p : new double[] {0.5, 0.9, 0.95, 0.99}) {
+			double exact = nanos[(int)Math.ceil(p * nanos.length) - 1] / 1e6;
+			double estimate = h.getPercentileMs(p);
+			assertTrue("p" + p + ": " + estimate + " vs. " + exact, estimate >= exact && estimate <= exact * 1.2);
+		}
+		assertEquals(nanos[nanos.length - 1] / 1e6, h.getPercentileMs(1.0), 1e-9);
+		assertEquals(nanos[nanos.length - 1] / 1e6, h.getMaxMs(), 1e-9);
+		assertEquals(10000, h.getCount());
+	}
+
+	@Test
+	public void meanAndTotalAreExact() {
+		LatencyHistogram h = new LatencyHistogram();
+		h.record(1000000);
+		h.record(3000000);
+
+		assertEquals(2.0, h.getMeanMs(), 1e-9);
+		assertEquals(0.004, h.getTotalSeconds(), 1e-12);
+	}
+
+	@Test
+	public void emptyAndExtremeValues() {
+		LatencyHistogram h = new LatencyHistogram();
+		assertEquals(0, h.getPercentileMs(0.5), 0);
+		assertEquals(0, h.getMeanMs(), 0);
+
+		h.record(0);
+		h.record(3600L * 1000000000L); // a hung ocr, the bucket's bound is cut at the max
+		assertEquals(3600000.0, h.getPercentileMs(0.99), 0);
+		assertTrue(h.getPercentileMs(0.5) <= 0.002);
+	}
+
+	@Test
+	public void recordingFromManyThreadsLosesNothing() throws InterruptedException {
+		LatencyHistogram h = new LatencyHistogram();
+		Thread[] threads = new Thread[8];
+		for(int t = 0; t < threads.length; t++) {
+			long max = (t + 1) * 1000000L;
+			threads[t] = new Thread(() -> {
+				for(int i = 0; i < 10000; i++)
+					h.record(i % 2 == 0 ? max : 1000);
+			});
+			threads[t].start();
+		}
+		for(Thread t : threads)
+			t.join();
+
+		assertEquals(80000, h.getCount());
+		assertEquals(8.0, h.getMaxMs(), 0);
+	}
+}
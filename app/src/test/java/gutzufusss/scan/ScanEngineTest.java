@@ -0,0 +1,119 @@
+package gutzufusss.scan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import gutzufusss.util.Logger;
+
+public class ScanEngineTest {
+	private static final Logger LOGGER = new Logger(new PrintStream(new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+	}));
+
+	@Test(timeout = 10000)
+	public void everyJobPassesEveryStage() throws InterruptedException {
+		Set<String> persisted = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		ScanEngine engine = new ScanEngine(LOGGER);
+		engine.addStage("decode", 2, () -> job -> true);
+		engine.addStage("ocr", 3, () -> job -> {
+			job.result = "text of " + job.file.getName();
+			return true;
+		});
+		engine.addStage("persist", 1, () -> job -> persisted.add(job.result));
+		engine.start();
+
+		Set<String> expected = new HashSet<String>();
+		for(int i = 0; i < 200; i++) {
+			assertTrue(engine.submit(new File(i + ".png")));
+			expected.add("text of " + i + ".png");
+		}
+		engine.finish();
+
+		assertEquals(expected, persisted);
+		assertEquals(200, engine.getStage("persist").getProcessedCount());
+		assertEquals(0, engine.getFailedCount());
+	}
+
+	@Test(timeout = 10000)
+	public void failedAndFilteredJobsStopEarly() throws InterruptedException {
+		AtomicInteger reached = new AtomicInteger();
+		ScanEngine engine = new ScanEngine(LOGGER);
+		engine.addStage("decode", 2, () -> job -> {
+			if(job.file.getName().startsWith("broken"))
+				throw new IllegalStateException("can't decode");
+			return !job.file.getName().startsWith("unchanged"); // e.g. skipped by its fingerprint
+		});
+		engine.addStage("ocr", 1, () -> job -> reached.incrementAndGet() > 0);
+		engine.start();
+
+		for(String name : new String[] {"a.png", "broken.png", "unchanged.png", "b.png", "broken2.png"})
+			engine.submit(new File(name));
+		engine.finish();
+
+		assertEquals(2, reached.get());
+		assertEquals(2, engine.getFailedCount());
+		assertEquals(3, engine.getStage("decode").getProcessedCount());
+	}
+
+	@Test(timeout = 10000)
+	public void aSlowStageHoldsBackTheOnesBeforeIt() throws InterruptedException {
+		ScanEngine engine = new ScanEngine(LOGGER);
+		engine.addStage("decode", 1, () -> job -> true);
+		ScanStage ocr = engine.addStage("ocr", 1, () -> job -> {
+			Thread.sleep(2);
+			return true;
+		});
+		engine.start();
+
+		// two queues, a job in every worker and one being handed over
+		int inFlight = 2 * ScanStage.QUEUE_SLOTS_PER_WORKER + 3;
+		int maxAhead = 0;
+		for(int i = 0; i < 100; i++) {
+			engine.submit(new File(i + ".png"));
+			maxAhead = Math.max(maxAhead, i + 1 - ocr.getProcessedCount());
+		}
+		engine.finish();
+
+		assertTrue("submitted " + maxAhead + " images ahead of the ocr", maxAhead <= inFlight);
+		assertEquals(100, ocr.getProcessedCount());
+	}
+
+	@Test(timeout = 10000)
+	public void cancellingStillPersistsWhatWasRead() throws InterruptedException {
+		Set<String> read = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		Set<String> persisted = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		ScanEngine engine = new ScanEngine(LOGGER);
+		engine.addStage("decode", 1, () -> job -> true);
+		engine.addStage("ocr", 2, () -> job -> {
+			Thread.sleep(5);
+			return read.add(job.getPath());
+		});
+		engine.addStage("persist", 1, () -> job -> {
+			Thread.sleep(1);
+			return persisted.add(job.getPath());
+		});
+		engine.start();
+
+		for(int i = 0; i < 20; i++)
+			engine.submit(new File(i + ".png"));
+		engine.shutdownNow(); // returns once every stage stopped
+
+		assertTrue(read.size() < 20);
+		assertEquals(read, persisted);
+		for(ScanStage stage : engine.getStages())
+			assertEquals(0, stage.getAliveWorkers());
+	}
+}
@@ -0,0 +1,62 @@
+package gutzufusss.scan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import org.junit.Test;
+
+import gutzufusss.util.Logger;
+
+public class ScanMetricsTest {
+	private static final Logger LOGGER = new Logger(new PrintStream(new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+	}));
+
+	@Test
+	public void onlyTheSlowestImagesAreKept() {
+		ScanMetrics metrics = new ScanMetrics(LOGGER);
+		for(int i = 1; i <= 50; i++) {
+			ScanJob job = new ScanJob(new File(i + ".png"));
+			job.processingNanos = (i * 37 % 50 + 1) * 1000000000L / 10; // every 0.1s step once, shuffled
+			metrics.imageDone(job);
+		}
+
+		String[] slow = metrics.getSlowestImages();
+		assertEquals(ScanMetrics.NUM_SLOWEST, slow.length);
+		assertTrue(slow[0], slow[0].startsWith("5.0s "));
+		assertTrue(slow[ScanMetrics.NUM_SLOWEST - 1], slow[ScanMetrics.NUM_SLOWEST - 1].startsWith("4.1s "));
+		assertEquals(50, metrics.getImagesProcessed());
+	}
+
+	@Test(timeout = 10000)
+	public void everyStageIsTimed() throws InterruptedException {
+		ScanEngine engine = new ScanEngine(LOGGER);
+		engine.addStage("decode", 2, () -> job -> true);
+		engine.addStage("persist", 1, () -> job -> {
+			engine.getMetrics().imageDone(job);
+			return true;
+		});
+		engine.start();
+		for(int i = 0; i < 20; i++)
+			engine.submit(new File(i + ".png"));
+		engine.finish();
+
+		ScanMetrics metrics = engine.getMetrics();
+		assertNotNull(metrics.getTimer("decode"));
+		assertEquals(20, metrics.getTimer("decode").getCount());
+		assertEquals(20, metrics.getTimer("persist").getCount());
+		assertEquals(2, metrics.getLatencies().length);
+		assertEquals(20, metrics.getImagesProcessed());
+
+		String[] queues = metrics.getQueueDepths();
+		assertEquals("decode 0/" + 2 * ScanStage.QUEUE_SLOTS_PER_WORKER, queues[0]);
+		assertTrue(metrics.getSummaryLines().get(0).startsWith("Images: 20 done (0 duplicates), 0 skipped, 0 failed"));
+	}
+}
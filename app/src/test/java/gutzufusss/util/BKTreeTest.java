@@ -0,0 +1,119 @@
+package gutzufusss.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class BKTreeTest {
+	@Test
+	public void findsTheSameAsComparingAgainstAll() {
+		Random rnd = new Random(42);
+		BKTree<Integer> tree = new BKTree<Integer>();
+		Map<Integer, Long> all = new HashMap<Integer, Long>();
+		long[] centers = {rnd.nextLong(), rnd.nextLong(), rnd.nextLong()};
+		for(int i = 0; i < 2000; i++) {
+			long hash = flip(rnd, centers[i % centers.length], rnd.nextInt(12)); // clusters of near-duplicates, like real images
+			tree.add(hash, i);
+			all.put(i, hash);
+		}
+		assertEquals(2000, tree.size());
+
+		for(int q = 0; q < 50; q++) {
+			long query = flip(rnd, centers[q % centers.length], rnd.nextInt(8));
+			for(int maxDist : new int[] {0, 3, 8, 20})
+				assertEquals(bruteForce(all, query, maxDist), found(tree, query, maxDist));
+		}
+	}
+
+	@Test
+	public void closestMatchesComeFirst() {
+		BKTree<String> tree = new BKTree<String>();
+		tree.add(0b1111L, "four");
+		tree.add(0b0001L, "one");
+		tree.add(0b0000L, "zero");
+		tree.add(0b0011L, "two");
+
+		int last = -1;
+		for(BKTree.Match<String> m : tree.search(0, 64)) {
+			assertTrue(m.distance >= last);
+			assertEquals(PerceptualHash.distance(0, m.hash), m.distance);
+			last = m.distance;
+		}
+		assertEquals("zero", tree.search(0, 64).get(0).value);
+	}
+
+	@Test
+	public void removedAndReplacedValuesAreNotFound() {
+		BKTree<String> tree = new BKTree<String>();
+		tree.add(0L, "/a/1.png");
+		tree.add(1L, "/a/2.png");
+		tree.add(3L, "/b/3.png");
+
+		tree.remove("/a/1.png");
+		assertEquals(2, tree.size());
+		assertTrue(tree.search(0L, 0).isEmpty());
+		assertEquals(1, tree.search(0L, 1).size()); // only 2.png is left of the first two
+		assertEquals("/a/2.png", tree.search(0L, 1).get(0).value);
+
+		tree.add(-1L, "/b/3.png"); // the file changed
+		assertEquals(2, tree.size());
+		assertTrue(tree.search(3L, 0).isEmpty());
+		assertEquals("/b/3.png", tree.search(-1L, 0).get(0).value);
+
+		tree.removeIf(p -> p.startsWith("/a/"));
+		assertEquals(1, tree.size());
+		assertTrue(tree.search(1L, 1).isEmpty());
+	}
+
+	@Test
+	public void staysCorrectAfterRemovingMostEntries() {
+		Random rnd = new Random(7);
+		BKTree<Integer> tree = new BKTree<Integer>();
+		Map<Integer, Long> all = new HashMap<Integer, Long>();
+		for(int i = 0; i < 500; i++) {
+			long hash = rnd.nextLong();
+			tree.add(hash, i);
+			all.put(i, hash);
+		}
+		tree.removeIf(i -> i % 5 != 0); // rebuilds the tree
+		all.keySet().removeIf(i -> i % 5 != 0);
+		for(int i = 500; i < 550; i++) {
+			long hash = rnd.nextLong();
+			tree.add(hash, i);
+			all.put(i, hash);
+		}
+
+		assertEquals(all.size(), tree.size());
+		for(Long hash : all.values())
+			assertEquals(bruteForce(all, hash, 24), found(tree, hash, 24));
+	}
+
+	private static long flip(Random rnd, long hash, int bits) {
+		for(int i = 0; i < bits; i++)
+			hash ^= 1L << rnd.nextInt(64);
+		return hash;
+	}
+
+	private static Map<Integer, Integer> bruteForce(Map<Integer, Long> all, long query, int maxDist) {
+		Map<Integer, Integer> found = new TreeMap<Integer, Integer>();
+		for(Map.Entry<Integer, Long> e : all.entrySet()) {
+			int d = PerceptualHash.distance(query, e.getValue());
+			if(d <= maxDist)
+				found.put(e.getKey(), d);
+		}
+		return found;
+	}
+
+	private static Map<Integer, Integer> found(BKTree<Integer> tree, long query, int maxDist) {
+		Map<Integer, Integer> found = new TreeMap<Integer, Integer>();
+		for(BKTree.Match<Integer> m : tree.search(query, maxDist))
+			found.put(m.value, m.distance);
+		return found;
+	}
+}
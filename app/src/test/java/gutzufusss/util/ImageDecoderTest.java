@@ -0,0 +1,68 @@
+package gutzufusss.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class ImageDecoderTest {
+	@Test
+	public void readsTiffDimensionsInBothByteOrders() {
+		// header + one directory with ImageWidth as SHORT and ImageLength as LONG
+		byte[] le = {'I', 'I', 42, 0, 8, 0, 0, 0,
+				2, 0,
+				0, 1, 3, 0, 1, 0, 0, 0, (byte)0xa0, 0x0f, 0, 0,		// 256 SHORT 4000
+				1, 1, 4, 0, 1, 0, 0, 0, 0x70, 0x17, 0, 0};			// 257 LONG 6000
+		assertArrayEquals(new int[] {4000, 6000}, ImageDecoder.readDimensions(le));
+
+		byte[] be = {'M', 'M', 0, 42, 0, 0, 0, 8,
+				0, 2,
+				1, 0, 0, 3, 0, 0, 0, 1, 0x0f, (byte)0xa0, 0, 0,
+				1, 1, 0, 4, 0, 0, 0, 1, 0, 0, 0x17, 0x70};
+		assertArrayEquals(new int[] {4000, 6000}, ImageDecoder.readDimensions(be));
+	}
+
+	@Test
+	public void readsPnmDimensionsPastComments() {
+		byte[] pnm = "P6\n# scanned\n  1200 800\n255\n".getBytes(StandardCharsets.US_ASCII);
+		assertArrayEquals(new int[] {1200, 800}, ImageDecoder.readDimensions(pnm));
+	}
+
+	@Test
+	public void readsWebpDimensions() {
+		byte[] vp8x = webp("VP8X");
+		vp8x[24] = (byte)0xff; vp8x[25] = 0x1f;		// 8191 + 1
+		vp8x[27] = (byte)0x9f; vp8x[28] = 0x0f;		// 3999 + 1
+		assertArrayEquals(new int[] {8192, 4000}, ImageDecoder.readDimensions(vp8x));
+
+		byte[] vp8 = webp("VP8 ");
+		vp8[26] = (byte)0x80; vp8[27] = 0x07;		// 1920
+		vp8[28] = 0x38; vp8[29] = 0x04;				// 1080
+		assertArrayEquals(new int[] {1920, 1080}, ImageDecoder.readDimensions(vp8));
+
+		byte[] vp8l = webp("VP8L");
+		int bits = 639 | (479 << 14);				// 640x480, stored - 1
+		for(int i = 0; i < 4; i++)
+			vp8l[21 + i] = (byte)(bits >> (8 * i));
+		assertArrayEquals(new int[] {640, 480}, ImageDecoder.readDimensions(vp8l));
+	}
+
+	@Test
+	public void unknownOrCutOffHeadersHaveNoDimensions() {
+		assertNull(ImageDecoder.readDimensions(new byte[] {(byte)0x89, 'P', 'N', 'G', 0, 0, 0, 0}));
+		assertNull(ImageDecoder.readDimensions(new byte[] {'I', 'I', 42, 0, (byte)0xff, 0, 0, 0}));
+		assertNull(ImageDecoder.readDimensions(new byte[] {'I', 'I', 43, 0, 8, 0, 0, 0}));
+		assertNull(ImageDecoder.readDimensions(new byte[0]));
+	}
+
+	private static byte[] webp(String chunk) {
+		byte[] d = new byte[32];
+		System.arraycopy("RIFF".getBytes(StandardCharsets.US_ASCII), 0, d, 0, 4);
+		System.arraycopy("WEBP".getBytes(StandardCharsets.US_ASCII), 0, d, 8, 4);
+		System.arraycopy(chunk.getBytes(StandardCharsets.US_ASCII), 0, d, 12, 4);
+
+		return d;
+	}
+}
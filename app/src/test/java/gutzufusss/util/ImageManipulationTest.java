@@ -0,0 +1,187 @@
+package gutzufusss.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.Mat;
+
+// needs the opencv natives, skipped where they can't be loaded
+public class ImageManipulationTest {
+	private static ImageManipulation im;
+
+	@BeforeClass
+	public static void loadOpenCV() {
+		try {
+			im = new ImageManipulation(new Logger(new PrintStream(new OutputStream() {
+				@Override
+				public void write(int b) {
+				}
+			})));
+		} catch(Throwable t) {
+			Assume.assumeNoException(t);
+		}
+	}
+
+	@Test
+	public void pixelsSurviveTheRoundTrip() {
+		for(int type : new int[] {BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_BYTE_GRAY}) {
+			BufferedImage img = randomImage(37, 21, type);
+			BufferedImage back = im.toImg(im.toMat(img));
+
+			assertEquals(type, back.getType());
+			assertArrayEquals(pixels(img), pixels(back));
+		}
+	}
+
+	@Test
+	public void otherImageTypesAreRedrawnAsBgr() {
+		BufferedImage argb = new BufferedImage(4, 3, BufferedImage.TYPE_INT_ARGB);
+		argb.setRGB(1, 2, 0xff102030);
+		Mat mat = im.toMat(argb);
+
+		assertEquals(3, mat.channels());
+		byte[] bgr = new byte[3];
+		mat.get(2, 1, bgr);
+		assertArrayEquals(new byte[] {0x30, 0x20, 0x10}, bgr);
+	}
+
+	@Test
+	public void filtersAlternateBetweenTheScratchBuffers() {
+		BufferedImage img = randomImage(64, 48, BufferedImage.TYPE_3BYTE_BGR);
+		Mat in = im.toMat(img);
+		assertSame(in, im.toMat(img)); // no new native buffer per image
+
+		Mat gray = im.toGrayscale(in);
+		Mat border = im.addBorder(gray, 2);
+		assertNotSame(in, gray);
+		assertSame(in, border);
+		assertSame(gray, im.toGrayscale(gray)); // nothing to do
+		assertEquals(68, border.cols());
+		assertEquals(52, border.rows());
+
+		im.releaseScratch();
+		assertNotSame(in, im.toMat(img));
+	}
+
+	@Test
+	public void lookupTablesMapEveryValue() {
+		BufferedImage img = randomImage(16, 16, BufferedImage.TYPE_BYTE_GRAY);
+		byte[] lut = new byte[256];
+		for(int i = 0; i < 256; i++)
+			lut[i] = (byte)(255 - i);
+
+		byte[] in = pixels(img), out = im.toBytes(im.applyLut(im.toMat(img), lut));
+		for(int i = 0; i < in.length; i++)
+			assertEquals(lut[in[i] & 0xff], out[i]);
+	}
+
+	@Test
+	public void swtOnImagesMatchesTheMatVersion() {
+		BufferedImage img = randomImage(40, 30, BufferedImage.TYPE_3BYTE_BGR);
+		byte[] expected = im.toBytes(im.performSWT(im.toMat(img)));
+
+		BufferedImage swt = im.performSWT(img);
+		assertEquals(BufferedImage.TYPE_BYTE_GRAY, swt.getType());
+		assertEquals(40, swt.getWidth());
+		assertEquals(30, swt.getHeight());
+		assertArrayEquals(expected, pixels(swt));
+	}
+
+	@Test
+	public void onlyBigImagesAreShrunk() {
+		Mat in = im.toMat(randomImage(400, 200, BufferedImage.TYPE_BYTE_GRAY));
+		assertSame(in, im.limitSize(in, 400));
+		assertSame(in, im.limitSize(in, 0));
+
+		Mat small = im.limitSize(in, 100);
+		assertEquals(100, small.cols());
+		assertEquals(50, small.rows());
+	}
+
+	@Test
+	public void textLinesAreFound() {
+		BufferedImage img = new BufferedImage(400, 200, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g = img.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, 400, 200);
+		g.setColor(Color.BLACK);
+		g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 24));
+		g.drawString("Hello text regions", 20, 60);
+		g.dispose();
+
+		List<Rectangle> regions = im.findTextRegions(im.toMat(img));
+		assertTrue(!regions.isEmpty());
+		for(Rectangle r : regions) // one line, maybe split at the spaces
+			assertTrue(r.toString(), r.width >= r.height && r.height >= ImageManipulation.MIN_TEXT_HEIGHT && r.y < 60 && r.y + r.height > 50);
+	}
+
+	@Test
+	public void emptyImagesHaveNoText() {
+		BufferedImage img = new BufferedImage(100, 100, BufferedImage.TYPE_BYTE_GRAY);
+		assertTrue(im.findTextRegions(im.toMat(img)).isEmpty());
+	}
+
+	@Test
+	public void textIsScaledToTheLineHeight() {
+		Mat in = im.toMat(randomImage(100, 50, BufferedImage.TYPE_BYTE_GRAY));
+		List<Rectangle> regions = new ArrayList<Rectangle>(Arrays.asList(new Rectangle(10, 5, 40, 10), new Rectangle(10, 20, 40, 10), new Rectangle(5, 35, 80, 12)));
+
+		Mat out = im.normalizeTextHeight(in, regions, 20, 0);
+		assertEquals(200, out.cols());
+		assertEquals(100, out.rows());
+		assertEquals(new Rectangle(20, 10, 80, 20), regions.get(0));
+
+		regions = new ArrayList<Rectangle>(Arrays.asList(new Rectangle(0, 0, 40, 10)));
+		assertSame(in, im.normalizeTextHeight(in, regions, 10, 0)); // close enough already
+		assertEquals(150, im.normalizeTextHeight(in, regions, 100, 150).cols()); // the size limit wins
+	}
+
+	@Test
+	public void overlappingRegionsAreMergedAndCropped() {
+		BufferedImage img = randomImage(200, 100, BufferedImage.TYPE_BYTE_GRAY);
+		Mat in = im.toMat(img);
+		byte[] src = im.toBytes(in);
+		List<Rectangle> regions = new ArrayList<Rectangle>(Arrays.asList(new Rectangle(100, 60, 40, 8), new Rectangle(30, 14, 40, 8), new Rectangle(10, 10, 40, 8)));
+		Rectangle cropped = new Rectangle();
+
+		Mat out = im.cropToRegions(in, regions, cropped);
+		assertEquals(new Rectangle(8, 8, 134, 62), cropped); // padded by 2 around every region
+		assertEquals(cropped.width, out.cols());
+		assertEquals(cropped.height, out.rows());
+		assertEquals(Arrays.asList(new Rectangle(0, 0, 64, 16), new Rectangle(90, 50, 44, 12)), regions); // reading order, relative to the crop
+
+		byte[] px = new byte[1];
+		out.get(5, 7, px);
+		assertEquals(src[(8 + 5) * 200 + 8 + 7], px[0]);
+	}
+
+	private static BufferedImage randomImage(int w, int h, int type) {
+		BufferedImage img = new BufferedImage(w, h, type);
+		new Random(w * h).nextBytes(pixels(img));
+
+		return img;
+	}
+
+	private static byte[] pixels(BufferedImage img) {
+		return ((DataBufferByte)img.getRaster().getDataBuffer()).getData();
+	}
+}
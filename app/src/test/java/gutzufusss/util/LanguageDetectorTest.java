@@ -0,0 +1,68 @@
+package gutzufusss.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LanguageDetectorTest {
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private LanguageDetector detector;
+
+	@Before
+	public void writeWordlists() throws IOException {
+		wordlist("eng", "the", "and", "invoice", "total", "of", "for", "a");
+		wordlist("deu", "der", "und", "rechnung", "summe", "die", "f\u00fcr");
+		wordlist("ita", "il", "e", "fattura", "totale", "per");
+		detector = new LanguageDetector(new Logger(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		})), tmp.getRoot().toString(), new String[] {"eng", "deu", "ita", "spa"});
+	}
+
+	@Test
+	public void languagesWithoutWordlistAreNeverDetected() {
+		assertEquals(new HashSet<String>(Arrays.asList("eng", "deu", "ita")), detector.getLanguages());
+	}
+
+	@Test
+	public void detectsTheLanguageOfTheText() {
+		assertEquals("eng", detector.detect("The invoice total for the month of May"));
+		assertEquals("deu", detector.detect("Die Rechnung und die Summe F\u00dcR den Monat"));
+		assertEquals("ita", detector.detect("Il totale per la fattura del mese"));
+	}
+
+	@Test
+	public void mixedTextsGetAllTheirLanguages() {
+		assertEquals("deu+eng", detector.detect("Rechnung und Summe der Lieferung, the invoice total"));
+		assertEquals("eng", detector.detect("the invoice and the total for der Monat"));
+	}
+
+	@Test
+	public void shortOrUnknownTextsAreNotGuessed() {
+		assertNull(detector.detect("the invoice"));
+		assertNull(detector.detect("xq zzv wwpt kkr lorem ipsum dolor"));
+		assertNull(detector.detect(null));
+		assertNull(detector.detect("1234 5678 90 ..."));
+	}
+
+	private void wordlist(String lang, String... words) throws IOException {
+		Path dir = tmp.newFolder(lang).toPath();
+		Files.write(dir.resolve(lang + ".wordlist"), Arrays.asList(words), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,107 @@
+package gutzufusss.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LoggerTest {
+	private Logger logger;
+	private Config config;
+	private List<String> lines;
+
+	@Before
+	public void setUp() {
+		logger = new Logger(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		}));
+		config = new Config(logger);
+		config.curConfig.logLevel = Logger.LVL_DEBUG;
+		config.curConfig.logAsync = true;
+		config.curConfig.logCaller = true;
+		config.curConfig.debug = false;
+		logger.setConfig(config);
+		lines = Collections.synchronizedList(new ArrayList<String>());
+	}
+
+	@After
+	public void tearDown() {
+		logger.close();
+	}
+
+	@Test
+	public void asyncLinesReachTheListenerInOrder() {
+		logger.setLogListener(lines::addAll);
+		for(int i = 0; i < 2000; i++)
+			logger.log(Logger.LVL_INFO, "msg " + i);
+		logger.close(); // waits for the writer
+
+		List<String> got = messages();
+		assertEquals(2000, got.size());
+		for(int i = 0; i < got.size(); i++)
+			assertTrue(got.get(i), got.get(i).endsWith(">> msg " + i));
+	}
+
+	@Test
+	public void lateListenerGetsTheBacklog() {
+		config.curConfig.logAsync = false;
+		for(int i = 0; i < Logger.BACKLOG_SIZE + 10; i++)
+			logger.log(Logger.LVL_INFO, "early " + i);
+
+		logger.setLogListener(lines::addAll);
+		List<String> got = messages();
+		assertEquals(Logger.BACKLOG_SIZE, got.size()); // only the newest lines are kept
+		assertTrue(got.get(0).endsWith(">> early 10"));
+		assertTrue(got.get(got.size() - 1).endsWith(">> early " + (Logger.BACKLOG_SIZE + 9)));
+
+		logger.log(Logger.LVL_INFO, "later");
+		assertTrue(lines.get(lines.size() - 1).endsWith(">> later"));
+	}
+
+	@Test
+	public void levelAndCallerAreApplied() {
+		config.curConfig.logAsync = false;
+		logger.setLogListener(lines::addAll);
+		config.curConfig.logLevel = Logger.LVL_WARN;
+		logger.log(Logger.LVL_INFO, "too chatty");
+		logger.log(Logger.LVL_ERROR, "broken");
+
+		List<String> got = messages();
+		assertEquals(1, got.size());
+		assertTrue(got.get(0), got.get(0).startsWith("[ERROR]"));
+		assertTrue(got.get(0), got.get(0).contains("[LoggerTest::levelAndCallerAreApplied]>> broken"));
+
+		config.curConfig.logCaller = false;
+		logger.log(Logger.LVL_ERROR, "anonymous");
+		assertTrue(lines.get(lines.size() - 1), lines.get(lines.size() - 1).endsWith("]:>> anonymous"));
+	}
+
+	@Test
+	public void linesAfterCloseAreWrittenDirectly() {
+		logger.setLogListener(lines::addAll);
+		logger.close();
+		logger.log(Logger.LVL_INFO, "after close");
+		assertTrue(lines.get(lines.size() - 1).endsWith(">> after close"));
+	}
+
+	// the lines logged by the test itself, the logger may add a line about its log file
+	private List<String> messages() {
+		List<String> got = new ArrayList<String>();
+		synchronized(lines) {
+			for(String line : lines)
+				if(!line.endsWith("Log file was created."))
+					got.add(line);
+		}
+		return got;
+	}
+}
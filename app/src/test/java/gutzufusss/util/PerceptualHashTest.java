@@ -0,0 +1,72 @@
+package gutzufusss.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+public class PerceptualHashTest {
+	@Test
+	public void resizedAndRecoloredCopiesStayClose() {
+		BufferedImage page = page(900, 1200, Color.WHITE, Color.BLACK, 0);
+		long hash = PerceptualHash.dHash(page);
+
+		assertTrue(PerceptualHash.distance(hash, PerceptualHash.dHash(resize(page, 300, 400))) <= 4);
+		assertTrue(PerceptualHash.distance(hash, PerceptualHash.dHash(page(900, 1200, new Color(245, 240, 230), Color.DARK_GRAY, 0))) <= 4);
+	}
+
+	@Test
+	public void otherLayoutsAreFarAway() {
+		long a = PerceptualHash.dHash(page(900, 1200, Color.WHITE, Color.BLACK, 0));
+		long b = PerceptualHash.dHash(page(900, 1200, Color.WHITE, Color.BLACK, 1));
+
+		assertTrue(PerceptualHash.distance(a, b) > 10);
+	}
+
+	@Test
+	public void tinyImagesStillGetAHash() {
+		BufferedImage img = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+		assertEquals(0L, PerceptualHash.dHash(img));
+	}
+
+	@Test
+	public void distanceCountsDifferentBits() {
+		assertEquals(0, PerceptualHash.distance(0x1234L, 0x1234L));
+		assertEquals(64, PerceptualHash.distance(0L, -1L));
+		assertEquals(2, PerceptualHash.distance(0b1010L, 0b0000L));
+	}
+
+	// blocks of "text" in one of two layouts
+	private static BufferedImage page(int w, int h, Color bg, Color fg, int layout) {
+		BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = img.createGraphics();
+		g.setColor(bg);
+		g.fillRect(0, 0, w, h);
+		g.setColor(fg);
+		for(int i = 0; i < 12; i++) {
+			int y = h / 16 + i * h / 14;
+			if(layout == 0)
+				g.fillRect(w / 10, y, (i % 3 + 2) * w / 5, h / 40);
+			else
+				g.fillRect(w / 2 - (i % 4) * w / 10, y + h / 30, w / 3 + (i % 2) * w / 4, h / 30);
+		}
+		g.dispose();
+
+		return img;
+	}
+
+	private static BufferedImage resize(BufferedImage img, int w, int h) {
+		BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = out.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.drawImage(img, 0, 0, w, h, null);
+		g.dispose();
+
+		return out;
+	}
+}
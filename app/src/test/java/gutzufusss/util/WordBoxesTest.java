@@ -0,0 +1,113 @@
+package gutzufusss.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import gutzufusss.util.WordBoxes.Word;
+
+public class WordBoxesTest {
+	@Test
+	public void wordsSurvivePacking() {
+		List<Word> words = new ArrayList<Word>();
+		words.add(new Word("Rechnung", 93, 4000, 120, 95, 40));
+		words.add(new Word("Stra\u00dfe", 0, 10, 180, 4095, 0));		// next line: x goes back
+		words.add(new Word("\u65e5\u672c", 100, 10, 20, 1, 1));		// y goes back too
+		words.add(new Word("", 55, 0, 0, 0, 0));
+
+		List<Word> back = WordBoxes.unpack(WordBoxes.pack(words));
+		assertEquals(words.size(), back.size());
+		for(int i = 0; i < words.size(); i++)
+			assertWord(words.get(i), back.get(i));
+	}
+
+	@Test
+	public void randomPagesSurvivePacking() {
+		Random rnd = new Random(1);
+		List<Word> words = new ArrayList<Word>();
+		for(int i = 0; i < 1000; i++)
+			words.add(new Word("w" + rnd.nextInt(100000), rnd.nextInt(101), rnd.nextInt(WordBoxes.SCALE + 1), rnd.nextInt(WordBoxes.SCALE + 1),
+					rnd.nextInt(WordBoxes.SCALE + 1), rnd.nextInt(WordBoxes.SCALE + 1)));
+
+		List<Word> back = WordBoxes.unpack(WordBoxes.pack(words));
+		for(int i = 0; i < words.size(); i++)
+			assertWord(words.get(i), back.get(i));
+	}
+
+	@Test
+	public void confidencesAreClamped() {
+		List<Word> back = WordBoxes.unpack(WordBoxes.pack(Arrays.asList(new Word("a", -5, 0, 0, 1, 1), new Word("b", 250, 0, 0, 1, 1))));
+
+		assertEquals(0, back.get(0).conf);
+		assertEquals(100, back.get(1).conf);
+	}
+
+	@Test
+	public void readingOrderKeepsBoxesSmall() {
+		List<Word> line = new ArrayList<Word>();
+		for(int i = 0; i < 100; i++)
+			line.add(new Word("word", 90, 100 + i * 30, 500, 25, 12));
+
+		assertTrue(WordBoxes.pack(line).length <= 100 * (6 + 1 + 4) + 4);
+	}
+
+	@Test
+	public void nothingStoredMeansNoWords() {
+		assertTrue(WordBoxes.unpack(null).isEmpty());
+		assertTrue(WordBoxes.unpack(new byte[0]).isEmpty());
+		assertTrue(WordBoxes.unpack(WordBoxes.pack(new ArrayList<Word>())).isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void otherVersionsAreRejected() {
+		WordBoxes.unpack(new byte[] {7, 0});
+	}
+
+	@Test
+	public void findMatchesLikeTheFullTextIndex() {
+		List<Word> words = Arrays.asList(
+				new Word("Caf\u00e9,", 90, 0, 0, 1, 1),
+				new Word("INVOICE", 90, 0, 0, 1, 1),
+				new Word("invoices", 90, 0, 0, 1, 1),
+				new Word("(total)", 90, 0, 0, 1, 1),
+				new Word("tot", 90, 0, 0, 1, 1));
+
+		assertEquals(Arrays.asList("Caf\u00e9,"), texts(WordBoxes.find(words, Arrays.asList("cafe"))));
+		assertEquals(Arrays.asList("INVOICE"), texts(WordBoxes.find(words, Arrays.asList("Invoice"))));
+		assertEquals(Arrays.asList("INVOICE", "invoices"), texts(WordBoxes.find(words, Arrays.asList("invoice*"))));
+		assertEquals(Arrays.asList("(total)", "tot"), texts(WordBoxes.find(words, Arrays.asList("total", "TOT"))));
+		assertTrue(WordBoxes.find(words, Arrays.asList("*", "--")).isEmpty());
+	}
+
+	@Test
+	public void coordinatesAreScaledToTheImage() {
+		assertEquals(0, WordBoxes.toScale(0, 2000));
+		assertEquals(WordBoxes.SCALE, WordBoxes.toScale(2000, 2000));
+		assertEquals(2048, WordBoxes.toScale(1000, 2000));
+		assertEquals(WordBoxes.SCALE, WordBoxes.toScale(2500, 2000));
+		assertEquals(0, WordBoxes.toScale(-3, 2000));
+		assertEquals(0, WordBoxes.toScale(10, 0));
+	}
+
+	private static void assertWord(Word expected, Word actual) {
+		assertEquals(expected.text, actual.text);
+		assertEquals(Math.min(Math.max(expected.conf, 0), 100), actual.conf);
+		assertEquals(expected.x, actual.x);
+		assertEquals(expected.y, actual.y);
+		assertEquals(expected.w, actual.w);
+		assertEquals(expected.h, actual.h);
+	}
+
+	private static List<String> texts(List<Word> words) {
+		List<String> texts = new ArrayList<String>();
+		for(Word w : words)
+			texts.add(w.text);
+		return texts;
+	}
+}
@@ -0,0 +1,134 @@
+package gutzufusss.wrapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import gutzufusss.util.Logger;
+
+public class ConnectionPoolTest {
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private ConnectionPool pool;
+
+	@Before
+	public void openPool() throws SQLException {
+		pool = new ConnectionPool(new Logger(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		})), tmp.getRoot().toPath().resolve("test.db").toString());
+		try(Statement stmt = pool.getWriter().getConnection().createStatement()) {
+			stmt.executeUpdate("CREATE TABLE t (v INTEGER);");
+			stmt.executeUpdate("INSERT INTO t VALUES (1);");
+		}
+	}
+
+	@After
+	public void closePool() {
+		pool.close();
+	}
+
+	@Test
+	public void theDatabaseRunsInWalMode() throws SQLException {
+		PooledConnection reader = pool.borrowReader();
+		try(Statement stmt = reader.getConnection().createStatement(); ResultSet r = stmt.executeQuery("PRAGMA journal_mode;")) {
+			assertTrue(r.next());
+			assertEquals("wal", r.getString(1));
+		} finally {
+			pool.returnReader(reader);
+		}
+	}
+
+	@Test
+	public void readersDontWaitForAnOpenWrite() throws SQLException {
+		Connection writer = pool.getWriter().getConnection();
+		writer.setAutoCommit(false);
+		try(Statement stmt = writer.createStatement()) {
+			stmt.executeUpdate("INSERT INTO t VALUES (2);");
+			assertEquals(1, count()); // sees the last commit right away
+
+			writer.commit();
+			assertEquals(2, count());
+		} finally {
+			writer.setAutoCommit(true);
+		}
+	}
+
+	@Test
+	public void readersCantWrite() throws SQLException {
+		PooledConnection reader = pool.borrowReader();
+		try(Statement stmt = reader.getConnection().createStatement()) {
+			assertTrue(reader.isReadOnly());
+			stmt.executeUpdate("INSERT INTO t VALUES (3);");
+			fail("a reader wrote");
+		} catch(SQLException e) {
+			// expected
+		} finally {
+			pool.returnReader(reader);
+		}
+		assertFalse(pool.getWriter().isReadOnly());
+	}
+
+	@Test
+	public void readersAndTheirStatementsAreReused() throws SQLException {
+		PooledConnection reader = pool.borrowReader();
+		assertSame(reader.prepare("SELECT v FROM t;"), reader.prepare("SELECT v FROM t;"));
+		pool.returnReader(reader);
+		assertSame(reader, pool.borrowReader());
+
+		List<PooledConnection> all = new ArrayList<PooledConnection>();
+		all.add(reader);
+		for(int i = 1; i < ConnectionPool.READERS; i++) {
+			PooledConnection r = pool.borrowReader();
+			for(PooledConnection other : all)
+				assertNotSame(other, r);
+			all.add(r);
+		}
+
+		// all are in use, the next one waits for one to come back
+		new Thread(() -> {
+			try {
+				Thread.sleep(100);
+			} catch(InterruptedException e) {
+				// returns it right away then
+			}
+			pool.returnReader(all.get(2));
+		}).start();
+		assertSame(all.get(2), pool.borrowReader());
+	}
+
+	@Test(expected = SQLException.class)
+	public void aClosedPoolHasNoConnections() throws SQLException {
+		pool.close();
+		pool.borrowReader();
+	}
+
+	private int count() throws SQLException {
+		PooledConnection reader = pool.borrowReader();
+		try(ResultSet r = reader.prepare("SELECT count(*) FROM t;").executeQuery()) {
+			return r.next() ? r.getInt(1) : -1;
+		} finally {
+			pool.returnReader(reader);
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package gutzufusss.bench;
+
+import java.io.File;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import gutzufusss.util.Logger;
+
+// same as org.openjdk.jmh.Main, but always writes the results as json so they can be compared over releases
+public class BenchmarkMain {
+	public static final String RESULT_DIR = "bench-results";
+
+	public static void main(String[] args) throws Exception {
+		new File(RESULT_DIR).mkdirs();
+		String resultFile = RESULT_DIR + "/jmh_" + Logger.getTimestamp(true) + ".json";
+
+		new Runner(new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.resultFormat(ResultFormatType.JSON)
+				.result(resultFile)
+				.build()).run();
+
+		System.out.println("Results were written to " + resultFile);
+	}
+}
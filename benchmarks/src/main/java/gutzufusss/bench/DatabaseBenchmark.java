@@ -0,0 +1,98 @@
+package gutzufusss.bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import gutzufusss.ImageDBController;
+import gutzufusss.util.Logger;
+import gutzufusss.util.WordBoxes;
+
+// works on a database of its own with a fixed set of rows to search, inserted rows are removed again after every iteration
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class DatabaseBenchmark {
+	private static final String BENCH_PREFIX = "/imgfinder_bench/";
+	private static final String SEARCH_PREFIX = "/imgfinder_search/";
+	private static final String OCR_TEXT = "Lorem ipsum dolor sit amet, it's a \"quoted\" invoice #4711 for project ImgFinder";
+	private static final String[] FILLER = {"lorem", "ipsum", "dolor", "meeting", "deadline", "Rechnung", "Termin", "screenshot", "ticket", "invoice", "project"};
+
+	@Param({"10000"})
+	public int indexedImages;
+
+	private TempDatabase db;
+	private ImageDBController imgDB;
+	private byte[] words;
+	private long counter = 0;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		db = new TempDatabase();
+		db.getMain().getConfig().curConfig.logLevel = Logger.LVL_OFF; // we want to measure the database, not the logger
+		imgDB = db.getMain().getImgDB();
+
+		// one line of text, so the word boxes cost what they would for a real result
+		List<WordBoxes.Word> list = new ArrayList<WordBoxes.Word>();
+		int x = 40;
+		for(String w : OCR_TEXT.split(" ")) {
+			list.add(new WordBoxes.Word(w, 90, x, 200, w.length() * 30, 40));
+			x += w.length() * 30 + 15;
+		}
+		words = WordBoxes.pack(list);
+
+		// the same rows on every machine, enough of them match the query to fill the page
+		Random rnd = new Random(42);
+		for(int i = 0; i < indexedImages; i++) {
+			StringBuilder text = new StringBuilder();
+			for(int w = 0; w < 12; w++)
+				text.append(FILLER[rnd.nextInt(FILLER.length)]).append(' ');
+			imgDB.addResult("img_" + i + ".png", SEARCH_PREFIX + "img_" + i + ".png", 1024, i, "0123456789abcdef0123456789abcdef", i, text.toString(), words, 80);
+		}
+		imgDB.flushResults();
+	}
+
+	@TearDown(Level.Iteration)
+	public void cleanUp() {
+		imgDB.flushResults();
+		imgDB.execSQL("DELETE FROM " + ImageDBController.TABLE_IMG + " WHERE abs_path LIKE '" + BENCH_PREFIX + "%';");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		db.delete();
+	}
+
+	// how results were written before: one string concatenated statement per image in autocommit mode
+	@Benchmark
+	public void singleInsert() {
+		long n = counter++;
+		imgDB.execSQL("INSERT INTO " + ImageDBController.TABLE_IMG + " (name, abs_path, ocr_data, confidence) VALUES (" +
+				"'img_" + n + ".png', '" + BENCH_PREFIX + "img_" + n + ".png', '" + OCR_TEXT.replace("'", "''") + "', 80);");
+	}
+
+	@Benchmark
+	public void batchedInsert() {
+		long n = counter++;
+		imgDB.addResult("img_" + n + ".png", BENCH_PREFIX + "img_" + n + ".png", 1024, n, "0123456789abcdef0123456789abcdef", n, OCR_TEXT, words, 80);
+	}
+
+	// the same query over and over, answered by the search cache
+	@Benchmark
+	public int repeatedSearch() {
+		return imgDB.search("invoice project", 50).size();
+	}
+
+	@Benchmark
+	public int uncachedSearch() {
+		imgDB.getSearchCache().clear();
+		return imgDB.search("invoice project", 50).size();
+	}
+}
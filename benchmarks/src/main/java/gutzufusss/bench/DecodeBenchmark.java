@@ -0,0 +1,50 @@
+package gutzufusss.bench;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.*;
+
+import gutzufusss.util.ImageDecoder;
+import gutzufusss.util.Logger;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecodeBenchmark {
+	public static final int MAX_DIM = 1000; // small enough that 4000x3000 is subsampled
+
+	@Param({"png", "jpg", "bmp", "gif"})
+	public String format;
+
+	@Param({"1920x1080", "4000x3000"})
+	public String size;
+
+	private byte[] data;
+	private ImageDecoder decoder = new ImageDecoder(new Logger(), null);
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		String[] wh = size.split("x");
+		data = SyntheticImages.encode(SyntheticImages.create(Integer.parseInt(wh[0]), Integer.parseInt(wh[1]), 42), format);
+	}
+
+	// in memory, so this is the cpu cost of the decoder and not the disk
+	@Benchmark
+	public BufferedImage decode() throws IOException {
+		return ImageIO.read(new ByteArrayInputStream(data));
+	}
+
+	// what the scanner does: subsampled to at most twice the max dimension, straight to grayscale
+	@Benchmark
+	public BufferedImage decodeBoundedGray() throws IOException {
+		return decoder.decode(new ByteArrayInputStream(data), MAX_DIM, true);
+	}
+}
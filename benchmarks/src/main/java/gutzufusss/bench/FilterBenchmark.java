@@ -0,0 +1,69 @@
+package gutzufusss.bench;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import gutzufusss.util.ImageManipulation;
+import gutzufusss.util.Logger;
+import net.sourceforge.lept4j.Pix;
+import net.sourceforge.lept4j.util.LeptUtils;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterBenchmark {
+	@Param({"800x600", "1920x1080", "4000x3000"})
+	public String size;
+
+	private ImageManipulation imgManipulator;
+	private BufferedImage colorImg;
+	private BufferedImage grayImg;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		imgManipulator = new ImageManipulation(new Logger());
+		String[] wh = size.split("x");
+		colorImg = SyntheticImages.create(Integer.parseInt(wh[0]), Integer.parseInt(wh[1]), 42);
+		grayImg = imgManipulator.toGrayscale(colorImg);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		imgManipulator.releaseScratch();
+	}
+
+	@Benchmark
+	public BufferedImage toGrayscale() { return imgManipulator.toGrayscale(colorImg); }
+
+	@Benchmark
+	public BufferedImage toBinary() { return imgManipulator.toBinary(grayImg); }
+
+	@Benchmark
+	public BufferedImage smoothImg() { return imgManipulator.smoothImg(grayImg); }
+
+	@Benchmark
+	public BufferedImage addBorder() { return imgManipulator.addBorder(grayImg, 6); }
+
+	@Benchmark
+	public BufferedImage changeContrast() { return imgManipulator.changeContrast(grayImg, 0.1f); }
+
+	@Benchmark
+	public BufferedImage performSWT() { return imgManipulator.performSWT(grayImg); }
+
+	// the default chain (grayscale, smooth, border) as the preprocess stage runs it
+	@Benchmark
+	public BufferedImage defaultChain() {
+		return imgManipulator.toImg(imgManipulator.addBorder(imgManipulator.smoothImg(imgManipulator.toGrayscale(imgManipulator.toMat(colorImg))), 6));
+	}
+
+	@Benchmark
+	public void img2Pix() {
+		Pix pix = imgManipulator.img2Pix(grayImg);
+		LeptUtils.dispose(pix);
+	}
+}
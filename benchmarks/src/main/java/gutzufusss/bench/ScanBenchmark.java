@@ -0,0 +1,60 @@
+package gutzufusss.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import gutzufusss.ImageDBController;
+import gutzufusss.Main;
+import gutzufusss.util.Logger;
+import gutzufusss.wrapper.OCRWrapper;
+
+// end to end scan of a generated corpus into a database of its own, has to be started from the project root so tessdata/ is found
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ScanBenchmark {
+	@Param({"50"})
+	public int images;
+
+	@Param({"1280x720"})
+	public String size;
+
+	private TempDatabase db;
+	private Main main;
+	private File corpus;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		String[] wh = size.split("x");
+		corpus = SyntheticImages.createCorpus(images, Integer.parseInt(wh[0]), Integer.parseInt(wh[1]));
+
+		db = new TempDatabase(); // default config, so no frame cache or dedup skips the work after the warmup
+		main = db.getMain();
+		main.getConfig().curConfig.logLevel = Logger.LVL_WARN;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		db.delete();
+	}
+
+	// otherwise the second iteration would skip every image as unchanged
+	@Setup(Level.Iteration)
+	public void forgetCorpus() {
+		main.getImgDB().execSQL("DELETE FROM " + ImageDBController.TABLE_IMG + ";");
+	}
+
+	@Benchmark
+	public long scan() {
+		OCRWrapper ocr = new OCRWrapper(main.getLogger(), main.getConfig(), main, main.getImgDB(), corpus.getAbsolutePath());
+		ocr.scanDirectory(corpus.getAbsolutePath());
+
+		return ocr.getProcessedCount();
+	}
+}
@@ -0,0 +1,66 @@
+package gutzufusss.bench;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+// generates screenshot-like images with known text, so every run works on the same input
+public class SyntheticImages {
+	private static final String[] WORDS = {"invoice", "ticket", "project", "meeting", "deadline", "Rechnung", "Termin", "screenshot",
+			"error", "warning", "server", "database", "Lorem", "ipsum", "dolor", "sit", "amet", "2019", "#4711", "v1.2.9"};
+
+	public static BufferedImage create(int width, int height, long seed) {
+		Random rnd = new Random(seed);
+		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g = img.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+		// noisy background so the filters have something to do
+		g.setColor(new Color(230, 230, 225));
+		g.fillRect(0, 0, width, height);
+		for(int i = 0; i < width * height / 400; i++) {
+			g.setColor(new Color(rnd.nextInt(60) + 180, rnd.nextInt(60) + 180, rnd.nextInt(60) + 180));
+			g.fillRect(rnd.nextInt(width), rnd.nextInt(height), rnd.nextInt(6) + 1, rnd.nextInt(6) + 1);
+		}
+
+		int fontSize = Math.max(height / 30, 12);
+		g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, fontSize));
+		g.setColor(Color.BLACK);
+		for(int y = fontSize * 2; y < height - fontSize; y += fontSize * 2) {
+			StringBuilder line = new StringBuilder();
+			while(line.length() < width / (fontSize / 2))
+				line.append(WORDS[rnd.nextInt(WORDS.length)]).append(' ');
+			g.drawString(line.toString(), fontSize, y);
+		}
+		g.dispose();
+
+		return img;
+	}
+
+	public static byte[] encode(BufferedImage img, String format) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		if(!ImageIO.write(img, format, out))
+			throw new IOException("No ImageIO writer for " + format);
+		return out.toByteArray();
+	}
+
+	public static File createCorpus(int count, int width, int height) throws IOException {
+		File dir = new File(System.getProperty("java.io.tmpdir"), "imgfinder_bench_" + count + "_" + width + "x" + height);
+		dir.mkdirs();
+		for(int i = 0; i < count; i++) {
+			File f = new File(dir, "img_" + i + (i % 2 == 0 ? ".png" : ".jpg"));
+			if(!f.exists())
+				ImageIO.write(create(width, height, i), i % 2 == 0 ? "png" : "jpg", f);
+		}
+
+		return dir;
+	}
+}
@@ -0,0 +1,36 @@
+package gutzufusss.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import gutzufusss.Main;
+import gutzufusss.wrapper.SQLWrapper;
+
+// an empty database with the default config for every trial, the user's index and settings must not change the results
+public class TempDatabase {
+	private final Path dir;
+	private final Main main;
+
+	public TempDatabase() throws IOException {
+		dir = Files.createTempDirectory("imgfinder_bench_db");
+		System.setProperty(SQLWrapper.DB_PATH_PROPERTY, dir.resolve("img_finder_data.db").toString());
+		main = new Main(true); // nothing stored yet, so the config is the default one
+	}
+
+	public Main getMain() { return main; }
+
+	public void delete() throws IOException {
+		main.getImgDB().flushResults();
+		SQLWrapper.shutdown();
+		main.getLogger().close();
+		System.clearProperty(SQLWrapper.DB_PATH_PROPERTY);
+
+		try(Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+}